@@ -177,6 +177,20 @@ public final class ElevationHelper {
         return NO_ELEVATION;
     }
 
+    /**
+     * Gets the SRTM elevations (Z coordinates) of the given coordinates. This is faster than
+     * calling {@link #getSrtmElevation(ILatLon)} for each coordinate.
+     *
+     * @param coordinates
+     *            The coordinates.
+     * @param interpolate
+     *            if {@code true}, the elevation is interpolated between the surrounding SRTM samples
+     * @return The z coordinates, {@link Double#NaN} for coordinates where the elevation value could not be obtained
+     */
+    public static double[] getSrtmElevations(List<? extends ILatLon> coordinates, boolean interpolate) {
+        return HgtReader.readElevation(coordinates, interpolate);
+    }
+
     /**
      * Get the bounds for the pixel elevation for the latitude
      * @param location The location to get
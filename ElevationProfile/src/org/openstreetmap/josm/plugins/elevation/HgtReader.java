@@ -2,83 +2,100 @@
 package org.openstreetmap.josm.plugins.elevation;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.compress.utils.IOUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Preferences;
 import org.openstreetmap.josm.data.coor.ILatLon;
-import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
- *  Class HgtReader reads data from SRTM HGT files. Currently this class is restricted to a resolution of 3 arc seconds.
+ *  Class HgtReader reads data from SRTM HGT files. Both SRTM1 (1 arc second) and SRTM3 (3 arc seconds) files are supported.
+ *
+ *  Loaded files are kept in a least recently used cache, bounded by the preference {@code elevation.hgt.cache.size} (in MiB).
+ *  All methods are thread-safe.
  *
  *  SRTM data files are available at the <a href="http://dds.cr.usgs.gov/srtm/version2_1/SRTM3">NASA SRTM site</a>
  *  @author Oliver Wieland &lt;oliver.wieland@online.de&gt;
  */
 public class HgtReader {
-    private static final int SRTM_EXTENT = 1; // degree
     private static final List<String> COMPRESSION_EXT = Arrays.asList("xz", "gzip", "zip", "bz", "bz2");
+    private static final Pattern FILE_NAME = Pattern.compile("([NS])(\\d{2})([EW])(\\d{3})");
 
     public static final String HGT_EXT = ".hgt";
 
-    // alter these values for different SRTM resolutions
     public static final int HGT_VOID = Short.MIN_VALUE; // magic number which indicates 'void data' in HGT file
 
-    private static final HashMap<String, short[][]> cache = new HashMap<>();
+    /** The maximum size of the cached tiles in MiB. The most recently used tile is always kept. */
+    public static final IntegerProperty CACHE_SIZE = new IntegerProperty("elevation.hgt.cache.size", 256);
+
+    // guarded by cache
+    private static final Map<Integer, HgtTile> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // tiles which have been searched but are not there, guarded by cache
+    private static final Set<Integer> missing = new HashSet<>();
+    // guarded by cache
+    private static long cacheBytes;
+    // consecutive lookups usually hit the same tile, so check it before taking the lock
+    private static volatile HgtTile lastTile;
 
     public static double getElevationFromHgt(ILatLon coor) {
-        try {
-            String file = getHgtFileName(coor);
-            // given area in cache?
-            if (!cache.containsKey(file)) {
+        HgtTile tile = getTile(coor.lat(), coor.lon(), true);
+        return tile == null ? ElevationHelper.NO_ELEVATION : tile.getElevation(coor.lat(), coor.lon());
+    }
 
-                // fill initial cache value. If no file is found, then
-                // we use it as a marker to indicate 'file has been searched
-                // but is not there'
-                cache.put(file, null);
-                // Try all resource directories
-                for (String location : Preferences.getAllPossiblePreferenceDirs()) {
-                    String fullPath = new File(location + File.separator + "elevation", file).getPath();
-                    File f = new File(fullPath);
-                    if (!f.exists()) {
-                        for (String ext : COMPRESSION_EXT) {
-                            f = new File(fullPath + "." + ext);
-                            if (f.exists()) break;
-                        }
-                    }
-                    if (f.exists()) {
-                        read(f);
-                        break;
-                    }
-                }
+    /**
+     * Gets the elevation values for a list of coordinates, loading the HGT files as needed.
+     *
+     * @param coors the coordinates to get the elevation data for
+     * @param interpolate if {@code true}, interpolate bilinearly between the surrounding samples instead of using the nearest one
+     * @return the elevation values, {@link ElevationHelper#NO_ELEVATION} for coordinates without data
+     */
+    public static double[] readElevation(List<? extends ILatLon> coors, boolean interpolate) {
+        double[] result = new double[coors.size()];
+        HgtTile tile = null;
+        int tileKey = Integer.MIN_VALUE;
+        for (int i = 0; i < result.length; i++) {
+            ILatLon coor = coors.get(i);
+            if (coor == null || !coor.isLatLonKnown()) {
+                result[i] = ElevationHelper.NO_ELEVATION;
+                continue;
+            }
+            double lat = coor.lat();
+            double lon = coor.lon();
+            int key = getTileKey((int) Math.floor(lat), (int) Math.floor(lon));
+            if (key != tileKey) {
+                tile = getTile(lat, lon, true);
+                tileKey = key;
+            }
+            if (tile == null) {
+                result[i] = ElevationHelper.NO_ELEVATION;
+            } else {
+                result[i] = interpolate ? tile.getInterpolatedElevation(lat, lon) : tile.getElevation(lat, lon);
             }
-
-            // read elevation value
-            return readElevation(coor, file);
-        } catch (FileNotFoundException e) {
-            Logging.error("Get elevation from HGT " + coor + " failed: => " + e.getMessage());
-            // no problem... file not there
-            return ElevationHelper.NO_ELEVATION;
-        } catch (Exception ioe) {
-            // oops...
-            Logging.error(ioe);
-            // fallback
-            return ElevationHelper.NO_ELEVATION;
         }
+        return result;
+    }
+
+    /**
+     * Gets the elevation values of the nearest samples for a list of coordinates, loading the HGT files as needed.
+     *
+     * @param coors the coordinates to get the elevation data for
+     * @return the elevation values, {@link ElevationHelper#NO_ELEVATION} for coordinates without data
+     */
+    public static double[] readElevation(List<? extends ILatLon> coors) {
+        return readElevation(coors, false);
     }
 
     public static Bounds read(File file) throws IOException {
@@ -86,60 +103,35 @@ public class HgtReader {
         for (String ext : COMPRESSION_EXT) {
             location = location.replaceAll("\\." + ext + "$", "");
         }
-        short[][] sb = readHgtFile(file.getPath());
-        // Overwrite the cache file (assume that is desired)
-        cache.put(location, sb);
-        Pattern pattern = Pattern.compile("([NS])(\\d{2})([EW])(\\d{3})");
-        Matcher matcher = pattern.matcher(location);
-        if (matcher.lookingAt()) {
-            int lat = ("S".equals(matcher.group(1)) ? -1 : 1) * Integer.parseInt(matcher.group(2));
-            int lon = ("W".equals(matcher.group(3)) ? -1 : 1) * Integer.parseInt(matcher.group(4));
-            return new Bounds(lat, lon, lat + 1, lon + 1);
+        Matcher matcher = FILE_NAME.matcher(location);
+        if (!matcher.lookingAt()) {
+            Logging.warn("Cannot determine the location of HGT file " + file);
+            return null;
         }
-        return null;
-    }
-
-    private static short[][] readHgtFile(String file) throws IOException {
-        CheckParameterUtil.ensureParameterNotNull(file);
-
-        short[][] data = null;
-
-        try (InputStream fis = Compression.getUncompressedFileInputStream(Paths.get(file))) {
-            // choose the right endianness
-            ByteBuffer bb = ByteBuffer.wrap(IOUtils.toByteArray(fis));
-            //System.out.println(Arrays.toString(bb.array()));
-            bb.order(ByteOrder.BIG_ENDIAN);
-            int size = (int) Math.sqrt(bb.array().length / 2);
-            data = new short[size][size];
-            int x = 0;
-            int y = 0;
-            while (x < size) {
-                while (y < size) {
-                    data[x][y] = bb.getShort(2 * (x * size + y));
-                    y++;
-                }
-                x++;
-                y = 0;
-            }
+        int lat = ("S".equals(matcher.group(1)) ? -1 : 1) * Integer.parseInt(matcher.group(2));
+        int lon = ("W".equals(matcher.group(3)) ? -1 : 1) * Integer.parseInt(matcher.group(4));
+        HgtTile tile = HgtTile.read(file, lat, lon);
+        // Overwrite the cached tile (assume that is desired)
+        synchronized (cache) {
+            put(getTileKey(lat, lon), tile);
         }
-
-        return data;
+        return tile.getBounds();
     }
 
     /**
-     * Reads the elevation value for the given coordinate.
+     * Reads the elevation value for the given coordinate, if its HGT file has already been loaded.
      *
      * See also <a href="http://gis.stackexchange.com/questions/43743/how-to-extract-elevation-from-hgt-file">stackexchange.com</a>
      * @param coor the coordinate to get the elevation data for
      * @return the elevation value or <code>Double.NaN</code>, if no value is present
      */
     public static double readElevation(ILatLon coor) {
-        String tag = getHgtFileName(coor);
-        return readElevation(coor, tag);
+        HgtTile tile = getTile(coor.lat(), coor.lon(), false);
+        return tile == null ? ElevationHelper.NO_ELEVATION : tile.getElevation(coor.lat(), coor.lon());
     }
 
     /**
-     * Reads the elevation value for the given coordinate.
+     * Reads the elevation value for the given coordinate, if its HGT file has already been loaded.
      *
      * See also <a href="http://gis.stackexchange.com/questions/43743/how-to-extract-elevation-from-hgt-file">stackexchange.com</a>
      * @param coor the coordinate to get the elevation data for
@@ -147,74 +139,116 @@ public class HgtReader {
      * @return the elevation value or <code>Double.NaN</code>, if no value is present
      */
     public static double readElevation(ILatLon coor, String fileName) {
-
-        short[][] sb = cache.get(fileName);
-
-        if (sb == null) {
-            return ElevationHelper.NO_ELEVATION;
-        }
-
-        int[] index = getIndex(coor, sb.length);
-        short ele = sb[index[0]][index[1]];
-
-        if (ele == HGT_VOID) {
+        CheckParameterUtil.ensureParameterNotNull(fileName);
+        if (!fileName.equals(getHgtFileName(coor))) {
             return ElevationHelper.NO_ELEVATION;
         }
-        return ele;
+        return readElevation(coor);
     }
 
     public static Optional<Bounds> getBounds(ILatLon location) {
-        final String fileName = getHgtFileName(location);
-        final short[][] sb = cache.get(fileName);
-
-        if (sb == null) {
+        HgtTile tile = getTile(location.lat(), location.lon(), false);
+        if (tile == null) {
             return Optional.empty();
         }
-
-        final double latDegrees = location.lat();
-        final double lonDegrees = location.lon();
-
-        final float fraction = ((float) SRTM_EXTENT) / sb.length;
-        final int latitude = (int) Math.floor(latDegrees) + (latDegrees < 0 ? 1 : 0);
-        final int longitude = (int) Math.floor(lonDegrees) + (lonDegrees < 0 ? 1 : 0);
-
-        final int[] index = getIndex(location, sb.length);
-        final int latSign = latitude > 0 ? 1 : -1;
-        final int lonSign = longitude > 0 ? 1 : -1;
-        final double minLat = latitude + latSign * fraction * index[0];
-        final double maxLat = latitude + latSign * fraction * (index[0] + 1);
-        final double minLon = longitude + lonSign * fraction * index[1];
-        final double maxLon = longitude + lonSign * fraction * (index[1] + 1);
-        return Optional.of(new Bounds(Math.min(minLat, maxLat), Math.min(minLon, maxLon),
-                Math.max(minLat, maxLat), Math.max(minLon, maxLon)));
+        return Optional.of(tile.getSampleBounds(location.lat(), location.lon()));
     }
 
     /**
-     * Get the index to use for a short[latitude][longitude] = height in meters array
+     * Gets the tile containing the given coordinate.
      *
-     * @param latLon
-     *            The location to get the index for
-     * @param mapSize
-     *            The size of the map
-     * @return A [latitude, longitude] = int (index) array.
+     * @param lat the latitude
+     * @param lon the longitude
+     * @param load if {@code true}, search the HGT file if the tile is not cached
+     * @return the tile, or {@code null} if it is not available
      */
-    private static int[] getIndex(ILatLon latLon, int mapSize)
-    {
-        double latDegrees = latLon.lat();
-        double lonDegrees = latLon.lon();
+    private static HgtTile getTile(double lat, double lon, boolean load) {
+        HgtTile tile = lastTile;
+        if (tile != null && tile.contains(lat, lon)) {
+            return tile;
+        }
+        int tileLat = (int) Math.floor(lat);
+        int tileLon = (int) Math.floor(lon);
+        Integer key = getTileKey(tileLat, tileLon);
+        synchronized (cache) {
+            tile = cache.get(key);
+            if (tile != null || !load || missing.contains(key)) {
+                if (tile != null) {
+                    lastTile = tile;
+                }
+                return tile;
+            }
+        }
+        // Read the file without holding the lock, other threads may use the cached tiles meanwhile
+        tile = loadTile(tileLat, tileLon);
+        synchronized (cache) {
+            HgtTile existing = cache.get(key);
+            if (existing != null) {
+                tile = existing;
+            } else if (tile == null) {
+                // mark as 'file has been searched but is not there'
+                missing.add(key);
+                return null;
+            } else {
+                put(key, tile);
+            }
+            lastTile = tile;
+            return tile;
+        }
+    }
 
-        float fraction = ((float) SRTM_EXTENT) / (mapSize - 1);
-        int latitude = (int) Math.round(frac(latDegrees) / fraction);
-        int longitude = (int) Math.round(frac(lonDegrees) / fraction);
-        if (latDegrees >= 0)
-        {
-            latitude = mapSize - latitude - 1;
+    private static HgtTile loadTile(int lat, int lon) {
+        String file = getHgtFileName(lat, lon);
+        // Try all resource directories
+        for (String location : Preferences.getAllPossiblePreferenceDirs()) {
+            String fullPath = new File(location + File.separator + "elevation", file).getPath();
+            File f = new File(fullPath);
+            if (!f.exists()) {
+                for (String ext : COMPRESSION_EXT) {
+                    f = new File(fullPath + "." + ext);
+                    if (f.exists()) break;
+                }
+            }
+            if (f.exists()) {
+                try {
+                    return HgtTile.read(f, lat, lon);
+                } catch (IOException e) {
+                    Logging.error("Get elevation from HGT " + f + " failed: => " + e.getMessage());
+                    Logging.debug(e);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a tile to the cache and evicts the least recently used tiles exceeding the cache size. Must hold the lock.
+     */
+    private static void put(Integer key, HgtTile tile) {
+        HgtTile previous = cache.put(key, tile);
+        if (previous != null) {
+            cacheBytes -= previous.getByteSize();
+        }
+        missing.remove(key);
+        cacheBytes += tile.getByteSize();
+        long maxBytes = Math.max(0, CACHE_SIZE.get()) * 1024L * 1024L;
+        Iterator<HgtTile> it = cache.values().iterator();
+        while (cacheBytes > maxBytes && cache.size() > 1) {
+            HgtTile evicted = it.next();
+            cacheBytes -= evicted.getByteSize();
+            it.remove();
+            if (evicted == lastTile) {
+                lastTile = null;
+            }
         }
-        if (lonDegrees < 0)
-        {
-            longitude = mapSize - longitude - 1;
+        if (previous == lastTile) {
+            lastTile = null;
         }
-        return new int[] { latitude, longitude };
+    }
+
+    private static int getTileKey(int lat, int lon) {
+        return (lat + 90) * 360 + lon + 180;
     }
 
     /**
@@ -226,9 +260,10 @@ public class HgtReader {
      * @return the file name of the HGT file
      */
     public static String getHgtFileName(ILatLon latLon) {
-        int lat = (int) Math.floor(latLon.lat());
-        int lon = (int) Math.floor(latLon.lon());
+        return getHgtFileName((int) Math.floor(latLon.lat()), (int) Math.floor(latLon.lon()));
+    }
 
+    private static String getHgtFileName(int lat, int lon) {
         String latPref = "N";
         if (lat < 0) {
             latPref = "S";
@@ -241,7 +276,7 @@ public class HgtReader {
             lon = Math.abs(lon);
         }
 
-        return String.format("%s%2d%s%03d" + HGT_EXT, latPref, lat, lonPref, lon);
+        return String.format("%s%02d%s%03d" + HGT_EXT, latPref, lat, lonPref, lon);
     }
 
     public static double frac(double d) {
@@ -255,6 +290,11 @@ public class HgtReader {
     }
 
     public static void clearCache() {
-        cache.clear();
+        synchronized (cache) {
+            cache.clear();
+            missing.clear();
+            cacheBytes = 0;
+            lastTile = null;
+        }
     }
 }
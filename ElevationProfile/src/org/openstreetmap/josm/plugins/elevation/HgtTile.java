@@ -0,0 +1,157 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.elevation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * The elevation samples of a single HGT file, covering one degree of latitude and longitude.
+ *
+ * The samples are stored row by row from north to south, each row from west to east, as big endian signed shorts.
+ * The grid size is derived from the file size, so both SRTM1 (3601 x 3601) and SRTM3 (1201 x 1201) files are supported.
+ * Uncompressed files are memory-mapped, compressed files are decompressed into the heap.
+ */
+final class HgtTile {
+    private final ShortBuffer data;
+    private final int size;
+    private final int lat;
+    private final int lon;
+
+    private HgtTile(ShortBuffer data, int size, int lat, int lon) {
+        this.data = data;
+        this.size = size;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    /**
+     * Reads a HGT file.
+     * @param file the file, may be compressed
+     * @param lat the latitude of the south-west corner
+     * @param lon the longitude of the south-west corner
+     * @return the tile
+     * @throws IOException if the file cannot be read or is not a square grid of samples
+     */
+    static HgtTile read(File file, int lat, int lon) throws IOException {
+        ByteBuffer bytes;
+        if (file.getName().toLowerCase().endsWith(HgtReader.HGT_EXT)) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                // Mappings are only released by the garbage collector, so they may run out if tiles are evicted too often
+                Logging.debug(e);
+                bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            }
+        } else {
+            try (InputStream fis = Compression.getUncompressedFileInputStream(file.toPath())) {
+                bytes = ByteBuffer.wrap(IOUtils.toByteArray(fis));
+            }
+        }
+        int size = (int) Math.round(Math.sqrt(bytes.capacity() / 2.0));
+        if (size < 2 || 2L * size * size != bytes.capacity()) {
+            throw new IOException("Invalid HGT file " + file + ": " + bytes.capacity() + " bytes is not a square grid of samples");
+        }
+        return new HgtTile(bytes.order(ByteOrder.BIG_ENDIAN).asShortBuffer(), size, lat, lon);
+    }
+
+    /**
+     * Gets the number of samples per row and column.
+     * @return 3601 for SRTM1, 1201 for SRTM3
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the memory used by the samples of this tile.
+     * @return the size in bytes
+     */
+    long getByteSize() {
+        return 2L * size * size;
+    }
+
+    /**
+     * Checks if a coordinate belongs to this tile, using the same rule as {@link HgtReader#getHgtFileName}.
+     */
+    boolean contains(double latitude, double longitude) {
+        return (int) Math.floor(latitude) == lat && (int) Math.floor(longitude) == lon;
+    }
+
+    Bounds getBounds() {
+        return new Bounds(lat, lon, lat + 1, lon + 1);
+    }
+
+    /**
+     * Gets the elevation of the sample nearest to the given coordinate.
+     * @return the elevation or {@link ElevationHelper#NO_ELEVATION}, if the sample is void
+     */
+    double getElevation(double latitude, double longitude) {
+        return toElevation(get(nearest(getRow(latitude)), nearest(getColumn(longitude))));
+    }
+
+    /**
+     * Gets the elevation at the given coordinate, interpolated bilinearly between the four surrounding samples.
+     * If one of them is void, the nearest sample is used.
+     * @return the elevation or {@link ElevationHelper#NO_ELEVATION}, if no value is present
+     */
+    double getInterpolatedElevation(double latitude, double longitude) {
+        double row = getRow(latitude);
+        double column = getColumn(longitude);
+        int r = Math.min((int) row, size - 2);
+        int c = Math.min((int) column, size - 2);
+        short nw = get(r, c);
+        short ne = get(r, c + 1);
+        short sw = get(r + 1, c);
+        short se = get(r + 1, c + 1);
+        if (nw == HgtReader.HGT_VOID || ne == HgtReader.HGT_VOID || sw == HgtReader.HGT_VOID || se == HgtReader.HGT_VOID) {
+            return toElevation(get(nearest(row), nearest(column)));
+        }
+        double dr = row - r;
+        double dc = column - c;
+        return (nw * (1 - dc) + ne * dc) * (1 - dr) + (sw * (1 - dc) + se * dc) * dr;
+    }
+
+    /**
+     * Gets the area represented by the sample nearest to the given coordinate.
+     */
+    Bounds getSampleBounds(double latitude, double longitude) {
+        double step = 1.0 / (size - 1);
+        int row = nearest(getRow(latitude));
+        int column = nearest(getColumn(longitude));
+        return new Bounds(lat + 1 - (row + 0.5) * step, lon + (column - 0.5) * step,
+                lat + 1 - (row - 0.5) * step, lon + (column + 0.5) * step);
+    }
+
+    private double getRow(double latitude) {
+        return Math.max(0, Math.min(size - 1, (lat + 1 - latitude) * (size - 1)));
+    }
+
+    private double getColumn(double longitude) {
+        return Math.max(0, Math.min(size - 1, (longitude - lon) * (size - 1)));
+    }
+
+    private static int nearest(double index) {
+        return (int) Math.round(index);
+    }
+
+    private short get(int row, int column) {
+        // absolute get, so the buffer can be shared between threads
+        return data.get(row * size + column);
+    }
+
+    private static double toElevation(short ele) {
+        return ele == HgtReader.HGT_VOID ? ElevationHelper.NO_ELEVATION : ele;
+    }
+}
@@ -9,6 +9,7 @@ import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
 
@@ -119,20 +120,19 @@ public class ElevationGridTile extends Tile {
         LatLon h1 = new LatLon(min.lat(), max.lon());
         LatLon h2 = new LatLon(max.lat(), min.lon());
 
-        double eleMin = ElevationHelper.getSrtmElevation(min);
-        double eleMax = ElevationHelper.getSrtmElevation(max);
+        double[] ele = ElevationHelper.getSrtmElevations(Arrays.asList(min, h1, max, h2), false);
 
         // SRTM files present?
-        if (!ElevationHelper.isValidElevation(eleMax) || !ElevationHelper.isValidElevation(eleMin)) {
+        if (!ElevationHelper.isValidElevation(ele[2]) || !ElevationHelper.isValidElevation(ele[0])) {
             setError(tr("No SRTM data"));
             return;
         }
 
         // compute elevation coords
-        EleCoordinate p0 = new EleCoordinate(min, eleMin);
-        EleCoordinate p1 = new EleCoordinate(h1, ElevationHelper.getSrtmElevation(h1));
-        EleCoordinate p2 = new EleCoordinate(max, eleMax);
-        EleCoordinate p3 = new EleCoordinate(h2, ElevationHelper.getSrtmElevation(h2));
+        EleCoordinate p0 = new EleCoordinate(min, ele[0]);
+        EleCoordinate p1 = new EleCoordinate(h1, ele[1]);
+        EleCoordinate p2 = new EleCoordinate(max, ele[2]);
+        EleCoordinate p3 = new EleCoordinate(h2, ele[3]);
 
         // compute initial vertices
         EleVertex v1 = new EleVertex(p0, p1, p2);
@@ -1,22 +1,32 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.elevation;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
@@ -49,6 +59,12 @@ class HgtReaderTest {
             throw ex.getCause();
         }
     }
+
+    @AfterEach
+    void tearDown() {
+        HgtReader.clearCache();
+    }
+
     static Stream<Arguments> testHgtData() {
         return Stream.of(
             // Staufenberg, Hessen
@@ -78,4 +94,79 @@ class HgtReaderTest {
 
         assertEquals(expHeight, (int) d);
     }
+
+    @Test
+    void testBatchElevation() {
+        List<LatLon> coors = Arrays.asList(new LatLon(50.6607106, 8.7337029), new LatLon(50.5767627, 9.1938483),
+                new LatLon(50.5, 8.5), null, new LatLon(0.5, 0.5), new LatLon(50.0000001, 8.999999));
+        double[] ele = HgtReader.readElevation(coors);
+        assertArrayEquals(new double[] {199, 560, 274, Double.NaN, Double.NaN, 132}, ele);
+    }
+
+    @Test
+    void testInterpolatedElevation() {
+        List<LatLon> coors = Arrays.asList(new LatLon(50.6607106, 8.7337029), new LatLon(50.5, 8.5));
+        double[] nearest = HgtReader.readElevation(coors, false);
+        double[] interpolated = HgtReader.readElevation(coors, true);
+        // Staufenberg is between samples, so the interpolated value differs a little
+        assertEquals(nearest[0], interpolated[0], 10);
+        // 50.5, 8.5 is exactly a sample of a SRTM3 file
+        assertEquals(nearest[1], interpolated[1], 1e-9);
+    }
+
+    /**
+     * Test bilinear interpolation and void samples on a small grid
+     * @param dir temporary directory
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void testSmallGrid(@TempDir Path dir) throws IOException {
+        // rows from north to south
+        Path file = writeHgt(dir.resolve("S11W011.hgt"), 3, new short[] {
+            0, 10, 20,
+            30, 40, (short) HgtReader.HGT_VOID,
+            60, 70, 80});
+        Bounds bounds = HgtReader.read(file.toFile());
+        assertEquals(new Bounds(-11, -11, -10, -10), bounds);
+
+        assertEquals(0, HgtReader.readElevation(new LatLon(-10.0000001, -11)), 1e-9);
+        assertEquals(80, HgtReader.readElevation(new LatLon(-10.9999999, -10.0000001)), 1e-9);
+        assertEquals(40, HgtReader.readElevation(new LatLon(-10.5, -10.5)), 1e-9);
+        assertTrue(Double.isNaN(HgtReader.readElevation(new LatLon(-10.5, -10.0000001))));
+
+        double[] ele = HgtReader.readElevation(Arrays.asList(new LatLon(-10.25, -10.75), new LatLon(-10.5, -10.75),
+                new LatLon(-10.6, -10.1), new LatLon(-10.25, -10.5)), true);
+        assertEquals(20, ele[0], 1e-9); // (0 + 10 + 30 + 40) / 4
+        assertEquals(35, ele[1], 1e-9); // (30 + 40) / 2
+        // next to the void sample, the nearest sample is used
+        assertTrue(Double.isNaN(ele[2]));
+        assertEquals(40, ele[3], 1e-9);
+    }
+
+    /**
+     * Test that 1 arc second files are supported
+     * @param dir temporary directory
+     * @throws IOException if the test file cannot be written
+     */
+    @Test
+    void testSrtm1(@TempDir Path dir) throws IOException {
+        int size = 3601;
+        short[] samples = new short[size * size];
+        for (int row = 0; row < size; row++) {
+            Arrays.fill(samples, row * size, (row + 1) * size, (short) (size - 1 - row));
+        }
+        HgtReader.read(writeHgt(dir.resolve("N47E011.hgt"), size, samples).toFile());
+
+        // one sample per arc second, increasing to the north
+        assertEquals(1800, HgtReader.readElevation(new LatLon(47.5, 11.5)), 1e-9);
+        assertEquals(3600, HgtReader.readElevation(new LatLon(47.9999999, 11.5)), 1e-9);
+        double[] ele = HgtReader.readElevation(Arrays.asList(new LatLon(47 + 100.5 / 3600, 11.2)), true);
+        assertEquals(100.5, ele[0], 1e-6);
+    }
+
+    private static Path writeHgt(Path file, int size, short[] samples) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * size * size).order(ByteOrder.BIG_ENDIAN);
+        buffer.asShortBuffer().put(samples);
+        return Files.write(file, buffer.array());
+    }
 }
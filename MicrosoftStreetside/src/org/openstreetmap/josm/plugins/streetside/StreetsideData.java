@@ -16,6 +16,7 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.plugins.streetside.cache.CacheUtils;
@@ -35,6 +36,10 @@ import org.openstreetmap.josm.plugins.streetside.utils.StreetsideProperties;
  */
 public class StreetsideData implements Data {
   private final Set<StreetsideAbstractImage> images = ConcurrentHashMap.newKeySet();
+  /**
+   * Spatial index of {@link #images}, for painting and searching the images near a position.
+   */
+  private final StreetsideImageIndex index = new StreetsideImageIndex();
   /**
    * The image currently selected, this is the one being shown.
    */
@@ -88,7 +93,9 @@ public class StreetsideData implements Data {
    *        (updates are currently unsupported by Streetside).
    */
   public void add(StreetsideAbstractImage image, boolean update) {
-    	images.add(image);
+    	if (images.add(image)) {
+    		index.add(image);
+    	}
     	if (update) {
     		StreetsideLayer.invalidateInstance();
     	}
@@ -111,7 +118,11 @@ public class StreetsideData implements Data {
    * @param update Whether the map must be updated or not.
    */
   public void addAll(Collection<? extends StreetsideAbstractImage> newImages, boolean update) {
-    images.addAll(newImages);
+    for (StreetsideAbstractImage image : newImages) {
+      if (images.add(image)) {
+        index.add(image);
+      }
+    }
     if (update) {
       StreetsideLayer.invalidateInstance();
     }
@@ -194,6 +205,8 @@ public class StreetsideData implements Data {
 
   /**
    * Returns a Set containing all images.
+   * Images must be added with {@link #add(StreetsideAbstractImage)} or {@link #addAll(Collection)}
+   * to be found by {@link #searchImages(Bounds)} and {@link #searchNearestImages(LatLon, double)}.
    *
    * @return A Set object containing all images.
    */
@@ -201,6 +214,40 @@ public class StreetsideData implements Data {
     return images;
   }
 
+  /**
+   * Returns the images inside the given bounds, using a spatial index instead of testing all images.
+   *
+   * @param bounds the bounds to search
+   * @return the images whose moving position is inside the bounds, in no particular order
+   */
+  public List<StreetsideAbstractImage> searchImages(Bounds bounds) {
+    return index.search(bounds).stream().filter(images::contains).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the images near the given position, using a spatial index instead of testing all images.
+   *
+   * @param latLon the position
+   * @param maxDistance the maximum distance in meters
+   * @return the images whose moving position is nearer than {@code maxDistance}, sorted by distance (nearest first)
+   */
+  public List<StreetsideAbstractImage> searchNearestImages(LatLon latLon, double maxDistance) {
+    return index.searchNearest(latLon, maxDistance).stream().filter(images::contains).collect(Collectors.toList());
+  }
+
+  /**
+   * Updates the spatial index after images have been moved.
+   *
+   * @param movedImages the images whose moving position has changed
+   */
+  public void imagesMoved(Collection<? extends StreetsideAbstractImage> movedImages) {
+    for (StreetsideAbstractImage image : movedImages) {
+      if (images.contains(image)) {
+        index.add(image);
+      }
+    }
+  }
+
   /**
    * Returns a Set of all sequences, that the images are part of.
    * @return all sequences that are contained in the Streetside data
@@ -411,7 +458,12 @@ public class StreetsideData implements Data {
   public void setImages(Collection<StreetsideAbstractImage> newImages) {
     synchronized (this) {
       images.clear();
-      images.addAll(newImages);
+      index.clear();
+      for (StreetsideAbstractImage image : newImages) {
+        if (images.add(image)) {
+          index.add(image);
+        }
+      }
     }
   }
 
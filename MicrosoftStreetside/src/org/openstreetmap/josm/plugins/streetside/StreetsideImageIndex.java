@@ -0,0 +1,175 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.streetside;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
+
+/**
+ * Spatial index of {@link StreetsideAbstractImage} objects, using a regular grid of latitude/longitude cells.
+ * Images are indexed by their moving position, so an image has to be added again after it was moved.
+ * All methods are thread-safe.
+ *
+ * @see StreetsideData
+ */
+final class StreetsideImageIndex {
+  /** The size of a grid cell in degrees, about 200 m in latitude. Dense areas have a few hundred images per cell. */
+  private static final double CELL_SIZE = 0.002;
+
+  private final Map<Long, List<StreetsideAbstractImage>> cells = new HashMap<>();
+  private final Map<StreetsideAbstractImage, Long> cellOfImage = new HashMap<>();
+
+  /**
+   * Adds an image to the index, or moves it to the cell of its current position if it is already indexed.
+   *
+   * @param image the image
+   */
+  synchronized void add(StreetsideAbstractImage image) {
+    remove(image);
+    final LatLon latLon = image.getMovingLatLon();
+    if (latLon == null) {
+      return;
+    }
+    final long cell = getCell(getIndex(latLon.lat()), getIndex(latLon.lon()));
+    cells.computeIfAbsent(cell, c -> new ArrayList<>()).add(image);
+    cellOfImage.put(image, cell);
+  }
+
+  /**
+   * Removes an image from the index.
+   *
+   * @param image the image
+   */
+  synchronized void remove(StreetsideAbstractImage image) {
+    final Long cell = cellOfImage.remove(image);
+    if (cell != null) {
+      final List<StreetsideAbstractImage> cellImages = cells.get(cell);
+      cellImages.remove(image);
+      if (cellImages.isEmpty()) {
+        cells.remove(cell);
+      }
+    }
+  }
+
+  /**
+   * Removes all images from the index.
+   */
+  synchronized void clear() {
+    cells.clear();
+    cellOfImage.clear();
+  }
+
+  /**
+   * Returns the images inside the given bounds.
+   *
+   * @param bounds the bounds, may cross the 180th meridian
+   * @return the images whose moving position is inside the bounds, in no particular order
+   */
+  synchronized List<StreetsideAbstractImage> search(Bounds bounds) {
+    final List<StreetsideAbstractImage> result = new ArrayList<>();
+    if (bounds.crosses180thMeridian()) {
+      search(bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), 180, result);
+      search(bounds.getMinLat(), -180, bounds.getMaxLat(), bounds.getMaxLon(), result);
+    } else {
+      search(bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), bounds.getMaxLon(), result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the images nearer to the given position than the given distance.
+   *
+   * @param center the position
+   * @param maxDistance the maximum distance in meters
+   * @return the images sorted by their distance from {@code center}, nearest first
+   */
+  synchronized List<StreetsideAbstractImage> searchNearest(LatLon center, double maxDistance) {
+    // The polar radius is the smallest one, so the search area is never too small
+    final double deltaLat = Math.toDegrees(maxDistance / Ellipsoid.WGS84.b);
+    final double maxAbsLat = Math.min(90, Math.abs(center.lat()) + deltaLat);
+    final double cos = Math.cos(Math.toRadians(maxAbsLat));
+    final double deltaLon = cos * 180 > deltaLat ? deltaLat / cos : 180;
+
+    final List<StreetsideAbstractImage> candidates = new ArrayList<>();
+    final double minLat = center.lat() - deltaLat;
+    final double maxLat = center.lat() + deltaLat;
+    if (deltaLon >= 180) {
+      search(minLat, -180, maxLat, 180, candidates);
+    } else {
+      final double minLon = center.lon() - deltaLon;
+      final double maxLon = center.lon() + deltaLon;
+      search(minLat, Math.max(minLon, -180), maxLat, Math.min(maxLon, 180), candidates);
+      if (minLon < -180) {
+        search(minLat, minLon + 360, maxLat, 180, candidates);
+      }
+      if (maxLon > 180) {
+        search(minLat, -180, maxLat, maxLon - 360, candidates);
+      }
+    }
+
+    final double[] distances = new double[candidates.size()];
+    final Integer[] order = new Integer[candidates.size()];
+    int count = 0;
+    for (int i = 0; i < candidates.size(); i++) {
+      final double distance = candidates.get(i).getMovingLatLon().greatCircleDistance((ILatLon) center);
+      if (distance < maxDistance) {
+        distances[i] = distance;
+        order[count++] = i;
+      }
+    }
+    Arrays.sort(order, 0, count, Comparator.comparingDouble(i -> distances[i]));
+    final List<StreetsideAbstractImage> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(candidates.get(order[i]));
+    }
+    return result;
+  }
+
+  private void search(double minLat, double minLon, double maxLat, double maxLon, List<StreetsideAbstractImage> result) {
+    final long minX = getIndex(minLon);
+    final long maxX = getIndex(maxLon);
+    final long minY = getIndex(minLat);
+    final long maxY = getIndex(maxLat);
+    if ((maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+      // Zoomed out: the area covers more cells than are occupied, so test all occupied cells instead
+      for (List<StreetsideAbstractImage> cellImages : cells.values()) {
+        addInside(cellImages, minLat, minLon, maxLat, maxLon, result);
+      }
+      return;
+    }
+    for (long y = minY; y <= maxY; y++) {
+      for (long x = minX; x <= maxX; x++) {
+        final List<StreetsideAbstractImage> cellImages = cells.get(getCell(y, x));
+        if (cellImages != null) {
+          addInside(cellImages, minLat, minLon, maxLat, maxLon, result);
+        }
+      }
+    }
+  }
+
+  private static void addInside(List<StreetsideAbstractImage> cellImages, double minLat, double minLon, double maxLat, double maxLon,
+      List<StreetsideAbstractImage> result) {
+    for (StreetsideAbstractImage image : cellImages) {
+      final LatLon latLon = image.getMovingLatLon();
+      if (latLon.lat() >= minLat && latLon.lat() <= maxLat && latLon.lon() >= minLon && latLon.lon() <= maxLon) {
+        result.add(image);
+      }
+    }
+  }
+
+  private static long getIndex(double degrees) {
+    return (long) Math.floor(degrees / CELL_SIZE);
+  }
+
+  private static long getCell(long y, long x) {
+    return (y << 32) | (x & 0xffffffffL);
+  }
+}
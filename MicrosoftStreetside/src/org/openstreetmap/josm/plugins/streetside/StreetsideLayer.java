@@ -13,16 +13,17 @@ import java.awt.RenderingHints;
 import java.awt.TexturePaint;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.IntSummaryStatistics;
-import java.util.Optional;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.Action;
 import javax.swing.Icon;
 
 import org.apache.log4j.Logger;
 import org.openstreetmap.josm.data.Bounds;
-import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
@@ -298,8 +299,12 @@ ActiveLayerChangeListener, StreetsideDataListener {
       }
       g.draw(MapViewGeometryUtil.getSequencePath(mv, seq));
     }*/
-    for (StreetsideAbstractImage imageAbs : data.getImages()) {
-      if (imageAbs.isVisible() && mv != null && mv.contains(mv.getPoint(imageAbs.getMovingLatLon()))) {
+    if (mv == null) {
+      return;
+    }
+    // Only the images in the visible area are tested, the spatial index avoids iterating over all images
+    for (StreetsideAbstractImage imageAbs : data.searchImages(mv.getRealBounds())) {
+      if (imageAbs.isVisible() && mv.contains(mv.getPoint(imageAbs.getMovingLatLon()))) {
         drawImageMarker(g, imageAbs);
       }
     }
@@ -452,22 +457,21 @@ ActiveLayerChangeListener, StreetsideDataListener {
    * @return An array containing the closest images belonging to different sequences sorted by distance from target.
    */
   private StreetsideImage[] getNearestImagesFromDifferentSequences(StreetsideAbstractImage target, int limit) {
-    return data.getSequences().parallelStream()
-      .filter(seq -> seq.getId() != null && !seq.getId().equals(target.getSequence().getId()))
-      .map(seq -> { // Maps sequence to image from sequence that is nearest to target
-        Optional<StreetsideAbstractImage> resImg = seq.getImages().parallelStream()
-          .filter(img -> img instanceof StreetsideImage && img.isVisible())
-          .min(new NearestImgToTargetComparator(target));
-        return resImg.orElse(null);
-      })
-      .filter(img -> // Filters out images too far away from target
-        img != null &&
-        img.getMovingLatLon().greatCircleDistance((ILatLon) target.getMovingLatLon())
-          < StreetsideProperties.SEQUENCE_MAX_JUMP_DISTANCE.get()
-       )
-      .sorted(new NearestImgToTargetComparator(target))
-      .limit(limit)
-      .toArray(StreetsideImage[]::new);
+    // The images are sorted by distance, so the first image of a sequence is the nearest one of that sequence
+    final List<StreetsideImage> result = new ArrayList<>(limit);
+    final Set<String> sequenceIds = new HashSet<>();
+    sequenceIds.add(target.getSequence().getId());
+    for (StreetsideAbstractImage img : data.searchNearestImages(target.getMovingLatLon(),
+        StreetsideProperties.SEQUENCE_MAX_JUMP_DISTANCE.get())) {
+      if (result.size() >= limit) {
+        break;
+      }
+      final String sequenceId = img.getSequence().getId();
+      if (img instanceof StreetsideImage && img.isVisible() && sequenceId != null && sequenceIds.add(sequenceId)) {
+        result.add((StreetsideImage) img);
+      }
+    }
+    return result.toArray(new StreetsideImage[0]);
   }
 
   private synchronized void updateNearestImages() {
@@ -488,22 +492,4 @@ ActiveLayerChangeListener, StreetsideDataListener {
       }
     }
   }
-
-  private static class NearestImgToTargetComparator implements Comparator<StreetsideAbstractImage> {
-    private final StreetsideAbstractImage target;
-
-    public NearestImgToTargetComparator(StreetsideAbstractImage target) {
-      this.target = target;
-    }
-    /* (non-Javadoc)
-     * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-     */
-    @Override
-    public int compare(StreetsideAbstractImage img1, StreetsideAbstractImage img2) {
-      return (int) Math.signum(
-        img1.getMovingLatLon().greatCircleDistance((ILatLon) target.getMovingLatLon()) -
-        img2.getMovingLatLon().greatCircleDistance((ILatLon) target.getMovingLatLon())
-      );
-    }
-  }
 }
@@ -41,6 +41,9 @@ public class CommandMove extends StreetsideCommand {
       image.move(-x, -y);
       image.stopMoving();
     }
+    if (StreetsideLayer.hasInstance()) {
+      StreetsideLayer.getInstance().getData().imagesMoved(images);
+    }
     StreetsideLayer.invalidateInstance();
   }
 
@@ -50,6 +53,9 @@ public class CommandMove extends StreetsideCommand {
       image.move(x, y);
       image.stopMoving();
     }
+    if (StreetsideLayer.hasInstance()) {
+      StreetsideLayer.getInstance().getData().imagesMoved(images);
+    }
     StreetsideLayer.invalidateInstance();
   }
 
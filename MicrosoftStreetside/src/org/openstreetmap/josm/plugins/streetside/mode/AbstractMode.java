@@ -4,6 +4,7 @@ package org.openstreetmap.josm.plugins.streetside.mode;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.util.Calendar;
 
@@ -36,8 +37,12 @@ public abstract class AbstractMode extends MouseAdapter implements
     double snapDistance = 10;
     double minDistance = Double.MAX_VALUE;
     StreetsideAbstractImage closest = null;
-    for (StreetsideAbstractImage image : StreetsideLayer.getInstance().getData().getImages()) {
-      Point imagePoint = MainApplication.getMap().mapView.getPoint(image.getMovingLatLon());
+    // Only the images near the click point can be within the snap distance
+    final MapView mv = MainApplication.getMap().mapView;
+    final int snap = (int) Math.ceil(snapDistance);
+    final Bounds searchBounds = mv.getLatLonBounds(new Rectangle(clickPoint.x - snap, clickPoint.y - snap, 2 * snap, 2 * snap));
+    for (StreetsideAbstractImage image : StreetsideLayer.getInstance().getData().searchImages(searchBounds)) {
+      Point imagePoint = mv.getPoint(image.getMovingLatLon());
       imagePoint.setLocation(imagePoint.getX(), imagePoint.getY());
       double dist = clickPoint.distanceSq(imagePoint);
       if (minDistance > dist && clickPoint.distance(imagePoint) < snapDistance
@@ -111,6 +111,7 @@ public class SelectMode extends AbstractMode {
         LatLon imgLatLon = MainApplication.getMap().mapView.getLatLon(highlightImgPoint.getX(), highlightImgPoint.getY());
         StreetsideLayer.getInstance().getData().getMultiSelectedImages().parallelStream().filter(img -> !(img instanceof StreetsideImage) || StreetsideProperties.DEVELOPER.get())
                 .forEach(img -> img.move(eventLatLon.getX() - imgLatLon.getX(), eventLatLon.getY() - imgLatLon.getY()));
+        StreetsideLayer.getInstance().getData().imagesMoved(StreetsideLayer.getInstance().getData().getMultiSelectedImages());
       }
       StreetsideLayer.invalidateInstance();
     }
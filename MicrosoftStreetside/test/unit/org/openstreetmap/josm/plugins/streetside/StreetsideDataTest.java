@@ -5,14 +5,18 @@ package org.openstreetmap.josm.plugins.streetside;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.concurrent.ConcurrentSkipListSet;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledIf;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.testutils.annotations.Main;
 
@@ -80,6 +84,35 @@ class StreetsideDataTest {
     assertEquals(5, data.getImages().size());
   }
 
+  /**
+   * Tests the {@link StreetsideData#searchImages(Bounds)} method, also after images have been moved.
+   */
+  @Test
+  void testSearchImages() {
+    assertEquals(new HashSet<>(Arrays.asList(img2, img3)), new HashSet<>(data.searchImages(new Bounds(0.15, 0.15, 0.35, 0.35))));
+    assertTrue(data.searchImages(new Bounds(0.5, 0.5, 0.6, 0.6)).isEmpty());
+
+    img4.move(0.15, 0.15);
+    img4.stopMoving();
+    data.imagesMoved(Collections.singleton(img4));
+    assertEquals(Collections.singletonList(img4), data.searchImages(new Bounds(0.5, 0.5, 0.6, 0.6)));
+    assertEquals(new HashSet<>(Arrays.asList(img2, img3)), new HashSet<>(data.searchImages(new Bounds(0.15, 0.15, 0.45, 0.45))));
+  }
+
+  /**
+   * Tests the {@link StreetsideData#searchNearestImages(LatLon, double)} method.
+   */
+  @Test
+  void testSearchNearestImages() {
+    // The images are about 15.7 km apart
+    assertEquals(Arrays.asList(img1, img2), data.searchNearestImages(new LatLon(0.1, 0.1), 20_000));
+    assertEquals(Arrays.asList(img3, img4, img2), data.searchNearestImages(new LatLon(0.31, 0.31), 20_000));
+    assertTrue(data.searchNearestImages(new LatLon(1, 1), 20_000).isEmpty());
+
+    data.setImages(Arrays.asList(img2, img3));
+    assertEquals(Collections.singletonList(img2), data.searchNearestImages(new LatLon(0.1, 0.1), 20_000));
+  }
+
   /**
    * Test the {@link StreetsideData#setHighlightedImage(StreetsideAbstractImage)}
    * and {@link StreetsideData#getHighlightedImage()} methods.
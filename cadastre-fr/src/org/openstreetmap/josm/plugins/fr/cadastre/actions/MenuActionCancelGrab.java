@@ -29,7 +29,7 @@ public class MenuActionCancelGrab extends JosmAction {
 
     @Override
     public void actionPerformed(ActionEvent arg0) {
-        if (wmsLayer.grabThread.getImagesToGrabSize() > 0) {
+        if (wmsLayer.grabThread.isGrabbing()) {
             wmsLayer.grabThread.cancel();
         }
     }
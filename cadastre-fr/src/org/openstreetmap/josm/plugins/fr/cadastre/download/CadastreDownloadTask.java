@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
@@ -27,6 +29,7 @@ import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.fr.cadastre.api.CadastreAPI;
+import org.openstreetmap.josm.plugins.fr.cadastre.edigeo.pci.EdigeoPciImporter;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
@@ -60,15 +63,23 @@ public class CadastreDownloadTask extends DownloadOsmTask {
     @Override
     public Future<?> download(DownloadParams settings, Bounds downloadArea, ProgressMonitor progressMonitor) {
         List<Future<?>> tasks = new ArrayList<>();
+        // The sheets are downloaded and parsed in parallel, the layers are then created one after the other by the worker
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Config.getPref().getInt("cadastre.download.threads", 4)),
+                Utils.newThreadFactory("cadastre-download-%d", Thread.NORM_PRIORITY));
         try {
             for (String id : CadastreAPI.getSheets(downloadArea)) {
                 String url = String.join("/", CADASTRE_URL, id.substring(0, id.startsWith("97") ? 3 : 2), id.substring(0, 5), "edigeo-"+id+".tar.bz2");
-                tasks.add(MainApplication.worker.submit(new InternalDownloadTask(settings, url, progressMonitor, zoomAfterDownload)));
+                Future<DataSet> parsedData = executor.submit(() -> new EdigeoPciImporter().parseDataSet(url, data));
+                tasks.add(MainApplication.worker.submit(
+                        new InternalDownloadTask(settings, url, parsedData, progressMonitor, zoomAfterDownload)));
             }
         } catch (IOException e) {
             Logging.error(e);
             new Notification(Utils.escapeReservedCharactersHTML(Utils.getRootCause(e).getMessage()))
                 .setIcon(JOptionPane.ERROR_MESSAGE).show();
+        } finally {
+            // Threads are stopped once all submitted sheets are parsed
+            executor.shutdown();
         }
         return MainApplication.worker.submit(() -> {
             for (Future<?> f : tasks) {
@@ -87,7 +98,7 @@ public class CadastreDownloadTask extends DownloadOsmTask {
 
     @Override
     public Future<?> loadUrl(DownloadParams settings, String url, ProgressMonitor progressMonitor) {
-        downloadTask = new InternalDownloadTask(settings, url, progressMonitor, zoomAfterDownload);
+        downloadTask = new InternalDownloadTask(settings, url, null, progressMonitor, zoomAfterDownload);
         currentBounds = null;
         return MainApplication.worker.submit(downloadTask);
     }
@@ -113,8 +124,8 @@ public class CadastreDownloadTask extends DownloadOsmTask {
 
         private final String url;
 
-        InternalDownloadTask(DownloadParams settings, String url, ProgressMonitor progressMonitor, boolean zoom) {
-            super(settings, new CadastreServerReader(url, data), progressMonitor, zoom);
+        InternalDownloadTask(DownloadParams settings, String url, Future<DataSet> parsedData, ProgressMonitor progressMonitor, boolean zoom) {
+            super(settings, new CadastreServerReader(url, data, parsedData), progressMonitor, zoom);
             this.url = url;
         }
 
@@ -4,6 +4,8 @@ package org.openstreetmap.josm.plugins.fr.cadastre.download;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -18,6 +20,7 @@ public class CadastreServerReader extends OsmServerReader {
 
     private final String url;
     private final CadastreDownloadData data;
+    private final Future<DataSet> parsedData;
 
     /**
      * Constructs a new {@code CadastreServerReader}.
@@ -25,15 +28,39 @@ public class CadastreServerReader extends OsmServerReader {
      * @param data defines which data has to be downloaded
      */
     public CadastreServerReader(String url, CadastreDownloadData data) {
+        this(url, data, null);
+    }
+
+    /**
+     * Constructs a new {@code CadastreServerReader} returning data which is downloaded and parsed by another task.
+     * @param url source URL
+     * @param data defines which data has to be downloaded
+     * @param parsedData the task downloading and parsing the data from {@code url}, or {@code null} to do it in {@link #parseOsm}
+     */
+    public CadastreServerReader(String url, CadastreDownloadData data, Future<DataSet> parsedData) {
         this.url = Objects.requireNonNull(url);
         this.data = Objects.requireNonNull(data);
+        this.parsedData = parsedData;
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (parsedData != null) {
+            parsedData.cancel(true);
+        }
     }
 
     @Override
     public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
         try {
             progressMonitor.beginTask(tr("Contacting Server..."), 10);
+            if (parsedData != null) {
+                return parsedData.get();
+            }
             return new EdigeoPciImporter().parseDataSet(url, data);
+        } catch (ExecutionException e) {
+            throw new OsmTransferException(e.getCause());
         } catch (Exception e) {
             throw new OsmTransferException(e);
         } finally {
@@ -4,12 +4,18 @@ package org.openstreetmap.josm.plugins.fr.cadastre.edigeo;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.openstreetmap.josm.actions.SimplifyWayAction;
 import org.openstreetmap.josm.command.SequenceCommand;
@@ -17,6 +23,7 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.plugins.fr.cadastre.download.CadastreDownloadData;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Edigeo THF file.
@@ -258,16 +265,28 @@ public class EdigeoFileTHF extends EdigeoFile {
             }
         }
 
-        void readFiles(Path path) throws IOException, ReflectiveOperationException {
+        /**
+         * Reads the files of this lot, except the geographic data files which are only created.
+         * @param path path to THF file
+         * @return the geographic data files, to be read once this method has returned
+         */
+        List<EdigeoFileVEC> readFiles(Path path) throws IOException, ReflectiveOperationException {
             Path dir = path.getParent();
             allFiles.add(new EdigeoFileGEN(this, genId, dir.resolve(name + genName + ".GEN")).read());
             allFiles.add(new EdigeoFileGEO(this, geoId, dir.resolve(name + geoName + ".GEO")).read());
             allFiles.add(new EdigeoFileDIC(this, dicId, dir.resolve(name + dicName + ".DIC")).read());
             allFiles.add(new EdigeoFileSCD(this, scdId, dir.resolve(name + scdName + ".SCD")).read());
             allFiles.add(new EdigeoFileQAL(this, qalId, dir.resolve(name + qalName + ".QAL")).read());
+            List<EdigeoFileVEC> vecFiles = new ArrayList<>();
             for (int i = 0; i < getNumberOfGeoData(); i++) {
-                allFiles.add(new EdigeoFileVEC(this, vecId.get(i), dir.resolve(name + vecName.get(i) + ".VEC")).read());
+                EdigeoFileVEC vecFile = new EdigeoFileVEC(this, vecId.get(i), dir.resolve(name + vecName.get(i) + ".VEC"));
+                vecFiles.add(vecFile);
+                allFiles.add(vecFile);
             }
+            return vecFiles;
+        }
+
+        void resolveFiles() {
             allFiles.forEach(EdigeoFile::resolve);
             for (EdigeoFile f : allFiles) {
                 boolean valid = f.isValid();
@@ -481,12 +500,65 @@ public class EdigeoFileTHF extends EdigeoFile {
     @Override
     public EdigeoFileTHF read() throws IOException, ReflectiveOperationException {
         super.read();
-        for (Lot lot : getLots()) {
-            lot.readFiles(path);
+        // Lots are independent, and the geographic data files of a lot only refer to the other files of the lot.
+        // So the other files of all lots are read, then all geographic data files, then the lots are resolved, in parallel.
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                Utils.newThreadFactory("edigeo-reader-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Callable<List<EdigeoFileVEC>>> lotTasks = new ArrayList<>();
+            for (Lot lot : getLots()) {
+                lotTasks.add(() -> lot.readFiles(path));
+            }
+            List<Callable<EdigeoFile>> vecTasks = new ArrayList<>();
+            for (List<EdigeoFileVEC> vecFiles : invokeAll(executor, lotTasks)) {
+                for (EdigeoFileVEC vecFile : vecFiles) {
+                    vecTasks.add(vecFile::read);
+                }
+            }
+            invokeAll(executor, vecTasks);
+            List<Callable<Void>> resolveTasks = new ArrayList<>();
+            for (Lot lot : getLots()) {
+                resolveTasks.add(() -> {
+                    lot.resolveFiles();
+                    return null;
+                });
+            }
+            invokeAll(executor, resolveTasks);
+        } finally {
+            executor.shutdownNow();
         }
         return this;
     }
 
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) throws IOException, ReflectiveOperationException {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
     @Override
     public EdigeoFileTHF fill(DataSet ds, CadastreDownloadData data) {
         super.fill(ds, data);
@@ -26,6 +26,11 @@ public abstract class EdigeoLotFile<B extends ChildBlock> extends EdigeoFile {
     private final Map<String, Class<? extends B>> classes = new HashMap<>();
     protected final ClassToInstancesMap<B> blocks = new MutableClassToInstancesMap<>();
 
+    /** Blocks by type and identifier, so that references are resolved without iterating over all blocks */
+    private final Map<String, Map<String, B>> index = new HashMap<>();
+    /** Last block created, indexed when the next block starts as its identifier is then complete */
+    private B lastBlock;
+
     EdigeoLotFile(Lot lot, String subsetId, Path path) throws IOException {
         super(path);
         this.lot = Objects.requireNonNull(lot, "lot");
@@ -40,12 +45,22 @@ public abstract class EdigeoLotFile<B extends ChildBlock> extends EdigeoFile {
     @Override
     protected final Block createBlock(String type) throws ReflectiveOperationException {
         Class<? extends B> klass = classes.get(type);
-        return addBlock(blocks.get(klass), klass.getDeclaredConstructor(Lot.class, String.class).newInstance(lot, type));
+        indexLastBlock();
+        lastBlock = addBlock(blocks.get(klass), klass.getDeclaredConstructor(Lot.class, String.class).newInstance(lot, type));
+        return lastBlock;
+    }
+
+    private void indexLastBlock() {
+        if (lastBlock != null) {
+            index.computeIfAbsent(lastBlock.type, k -> new HashMap<>()).putIfAbsent(lastBlock.identifier, lastBlock);
+            lastBlock = null;
+        }
     }
 
     @Override
     public EdigeoLotFile<B> read() throws IOException, ReflectiveOperationException {
         super.read();
+        indexLastBlock();
         return this;
     }
 
@@ -91,6 +106,15 @@ public abstract class EdigeoLotFile<B extends ChildBlock> extends EdigeoFile {
         assert values.get(0).equals(lot.identifier) : values + " / " + lot.identifier;
         assert values.get(1).equals(subsetId) : values + " / " + subsetId;
         assert klass.isAssignableFrom(classes.get(values.get(2))) : values;
+        Map<String, B> blocksOfType = index.get(values.get(2));
+        B block = blocksOfType != null ? blocksOfType.get(values.get(3)) : null;
+        if (block != null) {
+            if (!klass.isInstance(block)) {
+                throw new IllegalArgumentException(values + " / " + klass + " / " + block.getClass());
+            }
+            return klass.cast(block);
+        }
+        // Not indexed: the block is still being read, or does not exist
         List<T> list = blocks.getInstances(klass);
         if (list == null) {
             Class<? extends B> realClass = classes.get(values.get(2));
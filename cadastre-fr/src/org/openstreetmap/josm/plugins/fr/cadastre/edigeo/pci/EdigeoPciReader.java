@@ -6,6 +6,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -13,6 +16,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
@@ -262,6 +269,9 @@ public class EdigeoPciReader extends AbstractReader {
         return false;
     }
 
+    /** Size of the buffer between the bzip2 decompression and the tar extraction */
+    private static final int PIPE_SIZE = 1 << 16;
+
     /**
      * Constructs a new {@code EdigeoReader}.
      */
@@ -287,24 +297,8 @@ public class EdigeoPciReader extends AbstractReader {
         Path thfPath = path;
         try {
             if (thfPath.toString().endsWith(".tar.bz2")) {
-                try (InputStream fin = Files.newInputStream(path);
-                     BufferedInputStream in = new BufferedInputStream(fin);
-                     BZip2CompressorInputStream bzIn = new BZip2CompressorInputStream(in);
-                     TarArchiveInputStream tar = new TarArchiveInputStream(bzIn)
-                ) {
-                    TarArchiveEntry entry;
-                    tmpDir = Files.createTempDirectory(Utils.getJosmTempDir().toPath(), "cadastre");
-                    while ((entry = tar.getNextTarEntry()) != null) {
-                        File file = tmpDir.resolve(entry.getName()).toFile();
-                        try (FileOutputStream out = new FileOutputStream(file)) {
-                            if (IOUtils.copy(tar, out) < entry.getSize()) {
-                                throw new IOException(String.format("Unable to write ''%s'' entirely", file));
-                            } else if (file.toString().endsWith(".THF")) {
-                                thfPath = file.toPath();
-                            }
-                        }
-                    }
-                }
+                tmpDir = Files.createTempDirectory(Utils.getJosmTempDir().toPath(), "cadastre");
+                thfPath = extract(path, tmpDir);
             }
             DataSet ds = new DataSet();
             ds.setUploadPolicy(UploadPolicy.BLOCKED);
@@ -318,6 +312,61 @@ public class EdigeoPciReader extends AbstractReader {
         }
     }
 
+    /**
+     * Extracts a {@code .tar.bz2} archive. The bzip2 decompression runs in its own thread,
+     * so that it streams into the tar extraction instead of alternating with it.
+     * @param path path to the archive
+     * @param dir directory where files are extracted
+     * @return path to the THF file, or {@code path} if the archive does not contain any
+     * @throws IOException if any I/O error occurs
+     */
+    static Path extract(Path path, Path dir) throws IOException {
+        Path thfPath = path;
+        PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+        ExecutorService executor = Executors.newSingleThreadExecutor(Utils.newThreadFactory("edigeo-bzip2-%d", Thread.NORM_PRIORITY));
+        try {
+            Future<?> decompression = executor.submit(() -> {
+                // Close the pipe first of all, even if the bzip2 header is broken, or the tar reader waits forever
+                try (PipedOutputStream out = pipeOut;
+                     InputStream fin = Files.newInputStream(path);
+                     BufferedInputStream in = new BufferedInputStream(fin);
+                     BZip2CompressorInputStream bzIn = new BZip2CompressorInputStream(in)
+                ) {
+                    IOUtils.copy(bzIn, out, PIPE_SIZE);
+                }
+                return null;
+            });
+            try (TarArchiveInputStream tar = new TarArchiveInputStream(pipeIn)) {
+                TarArchiveEntry entry;
+                while ((entry = tar.getNextTarEntry()) != null) {
+                    File file = dir.resolve(entry.getName()).toFile();
+                    try (FileOutputStream out = new FileOutputStream(file)) {
+                        if (IOUtils.copy(tar, out) < entry.getSize()) {
+                            throw new IOException(String.format("Unable to write ''%s'' entirely", file));
+                        } else if (file.toString().endsWith(".THF")) {
+                            thfPath = file.toPath();
+                        }
+                    }
+                }
+                // Read the data after the end of archive marker, or closing the pipe fails the decompression with "Pipe closed"
+                IOUtils.skip(pipeIn, Long.MAX_VALUE);
+            }
+            try {
+                decompression.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        } finally {
+            // Unblocks the decompression if the extraction failed
+            executor.shutdownNow();
+        }
+        return thfPath;
+    }
+
     @Override
     protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
         return null;
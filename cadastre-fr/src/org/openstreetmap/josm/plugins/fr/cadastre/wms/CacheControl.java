@@ -3,15 +3,13 @@ package org.openstreetmap.josm.plugins.fr.cadastre.wms;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
 import java.util.concurrent.Callable;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -31,9 +29,10 @@ import org.openstreetmap.josm.tools.Logging;
  * wait status on GUI, fast saving even in big file). A separate thread is created for each WMS
  * layer to not suspend the GUI until disk I/O is terminated (a file for the cache can take
  * several MB's). If the cache file already exists, new images are just appended to the file
- * (performance). Since we use the ObjectStream methods, it is required to modify the standard
- * ObjectOutputStream in order to have objects appended readable (otherwise a stream header
- * is inserted before each append and an exception is raised at objects read).
+ * (performance). The cache file is written in the indexed format of {@link CacheFile}, so that
+ * the images of a vectorized layer are read only when they are displayed.
+ * Cache files of the previous format, written with the ObjectStream methods, are still read
+ * and then rewritten in the indexed format.
  */
 public class CacheControl implements Runnable {
 
@@ -41,17 +40,6 @@ public class CacheControl implements Runnable {
 
     public static final String C_UTM20N = "UTM";
 
-    public static class ObjectOutputStreamAppend extends ObjectOutputStream {
-        public ObjectOutputStreamAppend(OutputStream out) throws IOException {
-            super(out);
-        }
-
-        @Override
-        protected void writeStreamHeader() throws IOException {
-            reset();
-        }
-    }
-
     public static boolean cacheEnabled = true;
 
     public static int cacheSize = 500;
@@ -155,6 +143,9 @@ public class CacheControl implements Runnable {
     }
 
     public boolean loadCache(File file, int currentLambertZone) {
+        if (CacheFile.isIndexed(file)) {
+            return loadIndexedCache(file, currentLambertZone);
+        }
         boolean successfulRead = false;
         try (
             FileInputStream fis = new FileInputStream(file);
@@ -173,9 +164,46 @@ public class CacheControl implements Runnable {
             // serialized raster bufferedImage hangs-up on Java6. Recreate them here
             wmsLayer.getImage(0).image = RasterImageModifier.fixRasterImage(wmsLayer.getImage(0).image);
         }
+        if (successfulRead && cacheEnabled) {
+            // rewrite the cache file in the indexed format
+            List<GeorefImage> images;
+            wmsLayer.imagesLock.lock();
+            try {
+                images = new ArrayList<>(wmsLayer.getImages());
+            } finally {
+                wmsLayer.imagesLock.unlock();
+            }
+            for (GeorefImage image : images) {
+                saveCache(image);
+            }
+        }
         return successfulRead;
     }
 
+    private boolean loadIndexedCache(File file, int currentLambertZone) {
+        List<GeorefImage> images;
+        try {
+            wmsLayer.setAssociatedFile(file);
+            images = new CacheFile(file).open(wmsLayer, currentLambertZone);
+            if (images != null && wmsLayer.isRaster() && !images.isEmpty()) {
+                // the raster image is always kept in memory
+                images.get(0).image = RasterImageModifier.fixRasterImage(images.get(0).readFromCache());
+            }
+        } catch (IOException ex) {
+            Logging.error(ex);
+            GuiHelper.runInEDTAndWait(() -> JOptionPane.showMessageDialog(MainApplication.getMainFrame(),
+                    tr("Error loading file.\nProbably an old version of the cache file."),
+                    tr("Error"), JOptionPane.ERROR_MESSAGE));
+            return false;
+        }
+        if (images == null) {
+            return false;
+        }
+        wmsLayer.setImages(new Vector<>(images));
+        Logging.info("Cache loaded for location "+wmsLayer.getLocation()+" with "+images.size()+" images");
+        return true;
+    }
+
     public synchronized void saveCache(GeorefImage image) {
         imagesLock.lock();
         try {
@@ -197,24 +225,22 @@ public class CacheControl implements Runnable {
             imagesLock.unlock();
             if (size > 0) {
                 File file = new File(CadastrePlugin.cacheDir + wmsLayer.getName() + "." + WMSFileExtension());
+                List<GeorefImage> images;
+                imagesLock.lock();
+                try {
+                    images = new ArrayList<>(imagesToSave.subList(0, size));
+                } finally {
+                    imagesLock.unlock();
+                }
                 try {
-                    if (file.exists()) {
-                        try (ObjectOutputStreamAppend oos = new ObjectOutputStreamAppend(
-                                new BufferedOutputStream(new FileOutputStream(file, true)))) {
-                            for (int i = 0; i < size; i++) {
-                                oos.writeObject(imagesToSave.get(i));
-                            }
-                        }
-                    } else {
-                        try (ObjectOutputStream oos = new ObjectOutputStream(
-                                new BufferedOutputStream(new FileOutputStream(file)))) {
-                            wmsLayer.setAssociatedFile(file);
-                            wmsLayer.write(oos);
-                            for (int i = 0; i < size; i++) {
-                                oos.writeObject(imagesToSave.get(i));
-                            }
-                        }
+                    CacheFile cacheFile = new CacheFile(file);
+                    if (!file.exists() || !CacheFile.isIndexed(file)) {
+                        // new cache file, or a file of the previous format whose images are all in the queue
+                        wmsLayer.setAssociatedFile(file);
+                        cacheFile.create(wmsLayer);
                     }
+                    cacheFile.append(images);
+                    wmsLayer.imageLoader.imagesSaved(images);
                 } catch (IOException e) {
                     Logging.error(e);
                 }
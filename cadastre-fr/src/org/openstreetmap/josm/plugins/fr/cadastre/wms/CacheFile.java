@@ -0,0 +1,213 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.fr.cadastre.wms;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Cache file of a WMS layer in the indexed format, which replaces the Java serialization of the layer.
+ * The file starts with the layer header, followed by one record per image: the georeference primitives,
+ * then the image compressed as PNG, prefixed by its length. New images are appended at the end of the file.
+ * Opening a file only reads the georeferences and skips the images, which are read on demand
+ * with {@link #readImage(long, int)}.
+ */
+final class CacheFile {
+
+    /** "CWMS", distinct from the header of the Java serialization stream used by the previous format */
+    private static final int MAGIC = 0x43574D53;
+
+    /**
+     * v5 = indexed format, with the image length before each image
+     */
+    static final int FORMAT_VERSION = 5;
+
+    private final File file;
+
+    CacheFile(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Determines if the given file is a cache file in the indexed format.
+     * @param file the cache file
+     * @return {@code true} if the file starts with the header of the indexed format
+     */
+    static boolean isIndexed(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates the file, replacing any existing one, and writes the layer header.
+     * @param wmsLayer the layer
+     * @throws IOException if any I/O error occurs
+     */
+    void create(WMSLayer wmsLayer) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            wmsLayer.writeHeader(out);
+        }
+    }
+
+    /**
+     * Reads the layer header and the georeferences of all images. The images are not read.
+     * A truncated last record, left by an interrupted write, is ignored and removed from the file,
+     * so that the next images are appended after the last complete record.
+     * @param wmsLayer the layer
+     * @param currentLambertZone current Lambert zone
+     * @return the images without their raster, in the order they were written, or {@code null} if the header is not compatible
+     * @throws IOException if any I/O error occurs
+     */
+    List<GeorefImage> open(WMSLayer wmsLayer, int currentLambertZone) throws IOException {
+        List<GeorefImage> images = new ArrayList<>();
+        long end;
+        try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file));
+             DataInputStream in = new DataInputStream(counter)) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported cache file version " + version + " in " + file);
+            }
+            if (!wmsLayer.readHeader(in, currentLambertZone)) {
+                return null;
+            }
+            // end of the last complete record
+            end = counter.position;
+            try {
+                for (;;) {
+                    GeorefImage image = GeorefImage.readGeoref(in, wmsLayer);
+                    int length = in.readInt();
+                    long offset = counter.position;
+                    if (length < 0 || offset + length > file.length()) {
+                        // corrupted length, or image not completely written
+                        throw new EOFException();
+                    }
+                    in.skipBytes(length);
+                    image.setCacheEntry(this, offset, length);
+                    images.add(image);
+                    end = offset + length;
+                }
+            } catch (EOFException e) {
+                // expected exception when all images are read
+                Logging.trace(e);
+            }
+        }
+        if (file.length() > end) {
+            Logging.warn("Truncated image record at position " + end + " removed from " + file);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(end);
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Appends images at the end of the file. Once written, the images can be read again from this file.
+     * @param images the images to write
+     * @throws IOException if any I/O error occurs
+     */
+    void append(List<GeorefImage> images) throws IOException {
+        long position = file.length();
+        long[] offsets = new long[images.size()];
+        int[] lengths = new int[images.size()];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            for (int i = 0; i < images.size(); i++) {
+                png.reset();
+                ImageIO.write(images.get(i).image, "png", png);
+                images.get(i).writeGeoref(out);
+                out.writeInt(png.size());
+                // DataOutputStream counts the bytes written since its creation
+                offsets[i] = position + out.size();
+                lengths[i] = png.size();
+                png.writeTo(out);
+            }
+        }
+        // only now the images can be read again
+        for (int i = 0; i < images.size(); i++) {
+            images.get(i).setCacheEntry(this, offsets[i], lengths[i]);
+        }
+    }
+
+    /**
+     * Reads an image written in this file.
+     * @param offset the position of the image in the file
+     * @param length the length of the compressed image
+     * @return the image
+     * @throws IOException if any I/O error occurs
+     */
+    BufferedImage readImage(long offset, int length) throws IOException {
+        byte[] png = new byte[length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            raf.readFully(png);
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Invalid image at position " + offset + " in " + file);
+        }
+        return image;
+    }
+
+    /**
+     * Buffered input stream which knows its position in the file, so that the images can be skipped while reading the georeferences.
+     */
+    private static final class CountingInputStream extends BufferedInputStream {
+        private long position;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public synchronized long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
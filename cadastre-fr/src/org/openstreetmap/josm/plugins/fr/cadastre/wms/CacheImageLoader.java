@@ -0,0 +1,171 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.fr.cadastre.wms;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.openstreetmap.josm.plugins.fr.cadastre.CadastrePlugin;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Reads the images of a vectorized WMS layer from its cache file when they are painted, and releases the least
+ * recently painted ones when the images in memory exceed the preference {@code cadastrewms.imagesMemory} (in MB).
+ * Only images written in the cache file are released, and never those painted the last time the layer was painted.
+ */
+class CacheImageLoader {
+
+    public static final int DEFAULT_IMAGES_MEMORY = 128;
+
+    private final WMSLayer wmsLayer;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Utils.newThreadFactory("cadastre-cache-loader-%d", Thread.NORM_PRIORITY));
+
+    // images in memory which can be read again from the cache file, with the count of the paint which used them last
+    private final Map<GeorefImage, Long> loadedImages = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Set<GeorefImage> pendingImages = new HashSet<>();
+
+    private long loadedBytes;
+
+    private long paintCount;
+
+    CacheImageLoader(WMSLayer wmsLayer) {
+        this.wmsLayer = wmsLayer;
+    }
+
+    /**
+     * Starts a new paint of the layer.
+     */
+    synchronized void startPaint() {
+        paintCount++;
+    }
+
+    /**
+     * Called when an image is painted, or would be painted if it were in memory. Must hold the images lock of the layer.
+     * @param image the visible image
+     */
+    synchronized void imagePainted(GeorefImage image) {
+        if (image.image != null) {
+            if (loadedImages.containsKey(image)) {
+                loadedImages.put(image, paintCount);
+            }
+        } else if (image.isInCache() && !executor.isShutdown() && pendingImages.add(image)) {
+            executor.execute(() -> load(image));
+        }
+    }
+
+    /**
+     * Called when images are written in the cache file, so that they can be released from memory.
+     * @param images the images written in the cache file
+     */
+    void imagesSaved(List<GeorefImage> images) {
+        if (wmsLayer.isRaster()) {
+            // the raster image is modified in place by the georeferencing, it is never released
+            return;
+        }
+        wmsLayer.imagesLock.lock();
+        try {
+            synchronized (this) {
+                for (GeorefImage image : images) {
+                    if (image.image != null && !loadedImages.containsKey(image)) {
+                        // just grabbed, so probably visible
+                        loadedImages.put(image, paintCount);
+                        loadedBytes += getByteSize(image.image);
+                    }
+                }
+                releaseImages();
+            }
+        } finally {
+            wmsLayer.imagesLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets all images, when the images of the layer are replaced.
+     */
+    synchronized void clear() {
+        loadedImages.clear();
+        loadedBytes = 0;
+    }
+
+    /**
+     * Stops reading images, when the layer is destroyed.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        clear();
+    }
+
+    private void load(GeorefImage georefImage) {
+        BufferedImage image = null;
+        try {
+            image = georefImage.readFromCache();
+        } catch (IOException e) {
+            Logging.warn("Unable to read image from cache file: " + e.getMessage());
+            Logging.debug(e);
+        }
+        wmsLayer.imagesLock.lock();
+        try {
+            synchronized (this) {
+                pendingImages.remove(georefImage);
+                List<GeorefImage> images = wmsLayer.getImages();
+                int index = images == null ? -1 : images.indexOf(georefImage);
+                if (image == null || index < 0 || georefImage.image != null) {
+                    // not readable, or the image has been removed from the layer meanwhile
+                    return;
+                }
+                georefImage.image = image;
+                if (CadastrePlugin.backgroundTransparent) {
+                    // mask the zones covered by other images, as if the images were grabbed again in the same order
+                    for (int i = 0; i < images.size(); i++) {
+                        GeorefImage other = images.get(i);
+                        if (i < index ? !other.overlap(georefImage) : i > index && georefImage.overlap(other)) {
+                            georefImage.withdraw(other);
+                        }
+                    }
+                }
+                loadedImages.put(georefImage, paintCount);
+                loadedBytes += getByteSize(image);
+                releaseImages();
+            }
+        } finally {
+            wmsLayer.imagesLock.unlock();
+        }
+        wmsLayer.invalidate();
+    }
+
+    private void releaseImages() {
+        long maxBytes = Math.max(0, Config.getPref().getInt("cadastrewms.imagesMemory", DEFAULT_IMAGES_MEMORY)) * 1024L * 1024L;
+        Iterator<Map.Entry<GeorefImage, Long>> it = loadedImages.entrySet().iterator();
+        while (loadedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<GeorefImage, Long> entry = it.next();
+            if (entry.getValue() >= paintCount) {
+                // all next images are visible
+                break;
+            }
+            GeorefImage image = entry.getKey();
+            if (image.image != null) {
+                loadedBytes -= getByteSize(image.image);
+                image.image = null;
+            }
+            it.remove();
+        }
+    }
+
+    private static long getByteSize(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
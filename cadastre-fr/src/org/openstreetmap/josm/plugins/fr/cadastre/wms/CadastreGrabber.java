@@ -5,12 +5,9 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
-import javax.imageio.ImageIO;
-
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.io.OsmTransferException;
 import org.openstreetmap.josm.plugins.fr.cadastre.CadastrePlugin;
@@ -20,6 +17,9 @@ public class CadastreGrabber {
 
     private CadastreInterface wmsInterface = new CadastreInterface();
 
+    /**
+     * Grabs the image of a bounding box. Can be called by several threads at the same time.
+     */
     GeorefImage grab(WMSLayer wmsLayer, EastNorth lambertMin, EastNorth lambertMax)
             throws IOException, OsmTransferException {
         try {
@@ -82,10 +82,8 @@ public class CadastreGrabber {
                 lambertMin, lambertMax);
     }
 
-    private BufferedImage grab(URL url) throws IOException, OsmTransferException {
-        try (InputStream is = wmsInterface.getContent(url)) {
-            return ImageIO.read(is);
-        }
+    private BufferedImage grab(URL url) throws IOException {
+        return wmsInterface.getImage(url);
     }
 
     CadastreInterface getWmsInterface() {
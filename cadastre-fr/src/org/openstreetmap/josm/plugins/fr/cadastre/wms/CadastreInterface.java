@@ -4,8 +4,10 @@ package org.openstreetmap.josm.plugins.fr.cadastre.wms;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.GridBagLayout;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.CookieHandler;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -17,6 +19,12 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
 
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
@@ -37,11 +45,26 @@ import org.openstreetmap.josm.tools.HttpClient.Response;
 import org.openstreetmap.josm.tools.Logging;
 
 public class CadastreInterface {
-    boolean downloadCanceled;
+    volatile boolean downloadCanceled;
     private Response urlConn;
 
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    /**
+     * Limits the images grabbed at the same time from the cadastre server, by all layers together,
+     * to the preference {@code cadastrewms.maxConnections}.
+     */
+    private static final Semaphore GRAB_PERMITS = new Semaphore(
+            Math.max(1, Config.getPref().getInt("cadastrewms.maxConnections", DEFAULT_MAX_CONNECTIONS)));
+
+    // connections of the images being grabbed, which share the cookie of this interface
+    private final Set<Response> grabConnections = ConcurrentHashMap.newKeySet();
+
+    // incremented by cancelGrabs(), so that the images connecting meanwhile are canceled too
+    private final AtomicInteger grabCancellations = new AtomicInteger();
+
     private String csrfToken;
-    private String cookie;
+    private volatile String cookie;
     private String interfaceRef;
     private String lastWMSLayerName;
     private URL searchFormURL;
@@ -549,12 +572,59 @@ public class CadastreInterface {
         if (urlConn != null) {
             urlConn.disconnect();
         }
+        cancelGrabs();
         downloadCanceled = true;
         lastWMSLayerName = null;
     }
 
+    /**
+     * Disconnects the images being grabbed, so that they stop holding connections to the cadastre server.
+     * Unlike {@link #cancel()}, the session is kept and the next grabs are not canceled.
+     */
+    void cancelGrabs() {
+        grabCancellations.incrementAndGet();
+        for (Response response : grabConnections) {
+            response.disconnect();
+        }
+    }
+
     InputStream getContent(URL url) throws IOException, OsmTransferException {
         urlConn = getHttpClient(url).setHeader("Connection", "close").connect();
         return urlConn.getContent();
     }
+
+    /**
+     * Grabs an image with the session of this interface. Can be called by several threads at the same time,
+     * waits while the maximum number of connections to the cadastre server is reached.
+     * @param url the image URL
+     * @return the image, or {@code null} if the content is not an image
+     * @throws IOException if any I/O error occurs, or if the thread is interrupted while waiting
+     */
+    BufferedImage getImage(URL url) throws IOException {
+        int cancellations = grabCancellations.get();
+        try {
+            GRAB_PERMITS.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+        try {
+            Response response = getHttpClient(url).setHeader("Connection", "close").connect();
+            grabConnections.add(response);
+            try {
+                if (cancellations != grabCancellations.get()) {
+                    // canceled while connecting, before cancelGrabs() could disconnect it
+                    response.disconnect();
+                    throw new InterruptedIOException("Grab canceled");
+                }
+                try (InputStream is = response.getContent()) {
+                    return ImageIO.read(is);
+                }
+            } finally {
+                grabConnections.remove(response);
+            }
+        } finally {
+            GRAB_PERMITS.release();
+        }
+    }
 }
@@ -12,6 +12,8 @@ import java.awt.Image;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -45,6 +47,15 @@ public class GeorefImage implements Serializable, ImageObserver, Cloneable {
     private double pixelPerEast;
     private double pixelPerNorth;
 
+    // where the image can be read again, once written in the cache file
+    private CacheFile cacheFile;
+    private long cacheOffset;
+    private int cacheLength;
+
+    private GeorefImage(WMSLayer wmsLayer) {
+        this.wmsLayer = wmsLayer;
+    }
+
     public GeorefImage(BufferedImage img, EastNorth min, EastNorth max, WMSLayer wmsLayer) {
         image = Objects.requireNonNull(img);
 
@@ -118,7 +129,7 @@ public class GeorefImage implements Serializable, ImageObserver, Cloneable {
         Point minPt = nc.getPoint(new EastNorth(min.east()+dx, min.north()+dy));
         Point maxPt = nc.getPoint(new EastNorth(max.east()+dx, max.north()+dy));
 
-        if (!g.hitClip(minPt.x, maxPt.y, maxPt.x - minPt.x, minPt.y - maxPt.y))
+        if (!isVisible(g, minPt, maxPt))
             return;
 
         if (backgroundTransparent && transparency < 1.0f)
@@ -159,6 +170,25 @@ public class GeorefImage implements Serializable, ImageObserver, Cloneable {
             g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
     }
 
+    /**
+     * Is this image inside the clip area of the graphics ?
+     */
+    public boolean isVisible(Graphics2D g, NavigatableComponent nc) {
+        if (min == null || max == null)
+            return false;
+        double dx = 0, dy = 0;
+        if (wmsLayer != null) {
+            dx = wmsLayer.deltaEast;
+            dy = wmsLayer.deltaNorth;
+        }
+        return isVisible(g, nc.getPoint(new EastNorth(min.east()+dx, min.north()+dy)),
+                nc.getPoint(new EastNorth(max.east()+dx, max.north()+dy)));
+    }
+
+    private static boolean isVisible(Graphics2D g, Point minPt, Point maxPt) {
+        return g.hitClip(minPt.x, maxPt.y, maxPt.x - minPt.x, minPt.y - maxPt.y);
+    }
+
     /**
      * Is the given bbox overlapping this image ?
      */
@@ -179,7 +209,8 @@ public class GeorefImage implements Serializable, ImageObserver, Cloneable {
         double maxMaskEast = (georefImage.max.east() < this.max.east()) ? georefImage.max.east() : this.max.east();
         double minMaskNorth = (georefImage.min.north() > this.min.north()) ? georefImage.min.north() : this.min.north();
         double maxMaskNorth = (georefImage.max.north() < this.max.north()) ? georefImage.max.north() : this.max.north();
-        if ((maxMaskNorth - minMaskNorth) > 0 && (maxMaskEast - minMaskEast) > 0) {
+        // an image not read from the cache yet is masked when it is read
+        if (image != null && (maxMaskNorth - minMaskNorth) > 0 && (maxMaskEast - minMaskEast) > 0) {
             double pxPerEast = (max.east() - min.east()) / image.getWidth();
             double pxPerNorth = (max.north() - min.north()) / image.getHeight();
             int minXMaskPixel = (int) ((minMaskEast - min.east()) / pxPerEast);
@@ -256,9 +287,84 @@ public class GeorefImage implements Serializable, ImageObserver, Cloneable {
         ImageIO.write(image, "png", ImageIO.createImageOutputStream(out));
     }
 
+    /**
+     * Write the georeference of the image in the indexed cache file, without the image itself.
+     * Use only primitives for stability in time (not influenced by josm-core changes).
+     * @param out output stream
+     * @throws IOException if any I/O error occurs
+     * @see CacheFile
+     */
+    void writeGeoref(DataOutput out) throws IOException {
+        out.writeDouble(max.getX()); out.writeDouble(max.getY());
+        out.writeDouble(min.getX()); out.writeDouble(min.getY());
+        out.writeDouble(angle);
+        for (EastNorth[] corners : new EastNorth[][] {orgRaster, orgCroppedRaster}) {
+            for (int i = 0; i < 4; i++) {
+                // old format layers have no original raster, use the bbox instead
+                EastNorth corner = corners != null ? corners[i] : new EastNorth(
+                        i < 2 ? min.getX() : max.getX(), i == 1 || i == 2 ? max.getY() : min.getY());
+                out.writeDouble(corner.getX()); out.writeDouble(corner.getY());
+            }
+        }
+        out.writeInt(imageOriginalHeight);
+        out.writeInt(imageOriginalWidth);
+        out.writeInt(image.getWidth());
+        out.writeInt(image.getHeight());
+    }
+
+    /**
+     * Read the georeference of an image written by {@link #writeGeoref}. The image itself is not read.
+     * @param in input stream
+     * @param wmsLayer the layer of the image
+     * @return the georeferenced image, without its image
+     * @throws IOException if any I/O error occurs
+     */
+    static GeorefImage readGeoref(DataInput in, WMSLayer wmsLayer) throws IOException {
+        GeorefImage georefImage = new GeorefImage(wmsLayer);
+        georefImage.max = new EastNorth(in.readDouble(), in.readDouble());
+        georefImage.min = new EastNorth(in.readDouble(), in.readDouble());
+        georefImage.angle = in.readDouble();
+        for (int i = 0; i < 4; i++) {
+            georefImage.orgRaster[i] = new EastNorth(in.readDouble(), in.readDouble());
+        }
+        for (int i = 0; i < 4; i++) {
+            georefImage.orgCroppedRaster[i] = new EastNorth(in.readDouble(), in.readDouble());
+        }
+        georefImage.imageOriginalHeight = in.readInt();
+        georefImage.imageOriginalWidth = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        georefImage.updatePixelPer(width, height);
+        return georefImage;
+    }
+
+    void setCacheEntry(CacheFile cacheFile, long offset, int length) {
+        this.cacheFile = cacheFile;
+        this.cacheOffset = offset;
+        this.cacheLength = length;
+    }
+
+    /**
+     * Determines if the image can be read again from the cache file, i.e. if it can be released from memory.
+     */
+    boolean isInCache() {
+        return cacheFile != null;
+    }
+
+    /**
+     * Read the image from the cache file, see {@link #isInCache()}. The field {@link #image} is not modified.
+     */
+    BufferedImage readFromCache() throws IOException {
+        return cacheFile.readImage(cacheOffset, cacheLength);
+    }
+
     private void updatePixelPer() {
-        pixelPerEast = image.getWidth()/(max.east()-min.east());
-        pixelPerNorth = image.getHeight()/(max.north()-min.north());
+        updatePixelPer(image.getWidth(), image.getHeight());
+    }
+
+    private void updatePixelPer(int width, int height) {
+        pixelPerEast = width/(max.east()-min.east());
+        pixelPerNorth = height/(max.north()-min.north());
     }
 
     public double getPixelPerEast() {
@@ -4,8 +4,12 @@ package org.openstreetmap.josm.plugins.fr.cadastre.wms;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Point;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -13,11 +17,20 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.io.OsmTransferException;
 import org.openstreetmap.josm.plugins.fr.cadastre.CadastrePlugin;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
+/**
+ * Thread grabbing the images of a WMS layer. The images waiting to be grabbed are downloaded by a pool of
+ * {@code cadastrewms.grabThreads} workers sharing the session of the layer, and added to the layer in the order they
+ * were requested. The connections to the cadastre server are limited by {@link CadastreInterface#getImage}.
+ */
 public class GrabThread extends Thread {
 
-    private boolean canceled;
+    public static final int DEFAULT_GRAB_THREADS = 4;
+
+    private volatile boolean canceled;
 
     private CadastreGrabber grabber;
 
@@ -29,7 +42,8 @@ public class GrabThread extends Thread {
 
     private CacheControl cacheControl = null;
 
-    private EastNorthBound currentGrabImage;
+    // images being grabbed, removed once added to the layer
+    private List<EastNorthBound> currentGrabImages = new ArrayList<>();
 
     private Lock lockCurrentGrabImage = new ReentrantLock();
 
@@ -62,6 +76,22 @@ public class GrabThread extends Thread {
         }
     }
 
+    /**
+     * Determines if images are waiting to be grabbed, or being grabbed.
+     * @return {@code true} if a grab is in progress
+     */
+    public boolean isGrabbing() {
+        if (getImagesToGrabSize() > 0) {
+            return true;
+        }
+        lockCurrentGrabImage.lock();
+        try {
+            return !currentGrabImages.isEmpty();
+        } finally {
+            lockCurrentGrabImage.unlock();
+        }
+    }
+
     ArrayList<EastNorthBound> getImagesToGrabCopy() {
         ArrayList<EastNorthBound> copyList = new ArrayList<>();
         lockImagesToGrag.lock();
@@ -88,63 +118,12 @@ public class GrabThread extends Thread {
     @Override
     public void run() {
         for (;;) {
-            while (getImagesToGrabSize() > 0) {
-                lockImagesToGrag.lock();
-                lockCurrentGrabImage.lock();
-                currentGrabImage = imagesToGrab.get(0);
-                lockCurrentGrabImage.unlock();
-                imagesToGrab.remove(0);
-                lockImagesToGrag.unlock();
-                if (canceled) {
-                    break;
-                } else {
-                    GeorefImage newImage;
-                    try {
-                        wmsLayer.invalidate(); // paint the current grab box
-                        newImage = grabber.grab(wmsLayer, currentGrabImage.min, currentGrabImage.max);
-                    } catch (IOException e) {
-                        Logging.warn("Download action canceled by user or server did not respond");
-                        setCanceled(true);
-                        break;
-                    } catch (OsmTransferException e) {
-                        Logging.error("OSM transfer failed");
-                        setCanceled(true);
-                        break;
-                    }
-                    if (grabber.getWmsInterface().downloadCanceled) {
-                        Logging.info("Download action canceled by user");
-                        setCanceled(true);
-                        break;
-                    }
-                    try {
-                        if (CadastrePlugin.backgroundTransparent) {
-                            wmsLayer.imagesLock.lock();
-                            try {
-                                for (GeorefImage img : wmsLayer.getImages()) {
-                                    if (img.overlap(newImage))
-                                        // mask overlapping zone in already grabbed image
-                                        img.withdraw(newImage);
-                                    else
-                                        // mask overlapping zone in new image only when new image covers completely the
-                                        // existing image
-                                        newImage.withdraw(img);
-                                }
-                            } finally {
-                                wmsLayer.imagesLock.unlock();
-                            }
-                        }
-                        wmsLayer.addImage(newImage);
-                        wmsLayer.invalidate();
-                        saveToCache(newImage);
-                    } catch (NullPointerException e) {
-                        Logging.info("Layer destroyed. Cancel grab thread");
-                        setCanceled(true);
-                    }
-                }
+            while (getImagesToGrabSize() > 0 && !canceled) {
+                grabImages(takeImagesToGrab());
             }
             Logging.info("grab thread list empty");
             lockCurrentGrabImage.lock();
-            currentGrabImage = null;
+            currentGrabImages.clear();
             lockCurrentGrabImage.unlock();
             if (canceled) {
                 clearImagesToGrab();
@@ -157,6 +136,95 @@ public class GrabThread extends Thread {
         }
     }
 
+    private List<EastNorthBound> takeImagesToGrab() {
+        List<EastNorthBound> boxes;
+        lockImagesToGrag.lock();
+        try {
+            boxes = new ArrayList<>(imagesToGrab);
+            // move the boxes at once, so that the grab is never seen as finished meanwhile
+            lockCurrentGrabImage.lock();
+            try {
+                currentGrabImages.addAll(boxes);
+            } finally {
+                lockCurrentGrabImage.unlock();
+            }
+            imagesToGrab.clear();
+        } finally {
+            lockImagesToGrag.unlock();
+        }
+        return boxes;
+    }
+
+    private void grabImages(List<EastNorthBound> boxes) {
+        int threads = Math.min(boxes.size(), Math.max(1, Config.getPref().getInt("cadastrewms.grabThreads", DEFAULT_GRAB_THREADS)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("cadastre-grab-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Future<GeorefImage>> futures = new ArrayList<>(boxes.size());
+            for (EastNorthBound box : boxes) {
+                futures.add(executor.submit(() -> grabber.grab(wmsLayer, box.min, box.max)));
+            }
+            wmsLayer.invalidate(); // paint the current grab boxes
+            // add the images in the requested order, whatever the order the downloads end
+            for (int i = 0; i < futures.size() && !canceled; i++) {
+                GeorefImage newImage;
+                try {
+                    newImage = futures.get(i).get();
+                } catch (InterruptedException e) {
+                    Logging.warn("Grab thread interrupted");
+                    setCanceled(true);
+                    break;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof OsmTransferException) {
+                        Logging.error("OSM transfer failed");
+                    } else {
+                        Logging.warn("Download action canceled by user or server did not respond");
+                    }
+                    setCanceled(true);
+                    break;
+                }
+                if (grabber.getWmsInterface().downloadCanceled) {
+                    Logging.info("Download action canceled by user");
+                    setCanceled(true);
+                    break;
+                }
+                try {
+                    if (CadastrePlugin.backgroundTransparent) {
+                        wmsLayer.imagesLock.lock();
+                        try {
+                            for (GeorefImage img : wmsLayer.getImages()) {
+                                if (img.overlap(newImage))
+                                    // mask overlapping zone in already grabbed image
+                                    img.withdraw(newImage);
+                                else
+                                    // mask overlapping zone in new image only when new image covers completely the
+                                    // existing image
+                                    newImage.withdraw(img);
+                            }
+                        } finally {
+                            wmsLayer.imagesLock.unlock();
+                        }
+                    }
+                    wmsLayer.addImage(newImage);
+                    lockCurrentGrabImage.lock();
+                    try {
+                        currentGrabImages.remove(boxes.get(i));
+                    } finally {
+                        lockCurrentGrabImage.unlock();
+                    }
+                    wmsLayer.invalidate();
+                    saveToCache(newImage);
+                } catch (NullPointerException e) {
+                    Logging.info("Layer destroyed. Cancel grab thread");
+                    setCanceled(true);
+                }
+            }
+        } finally {
+            // stop the downloads which are not needed anymore, after a cancellation
+            executor.shutdownNow();
+        }
+    }
+
     void saveToCache(GeorefImage image) {
         if (CacheControl.cacheEnabled && !wmsLayer.isRaster()) {
             getCacheControl().saveCache(image);
@@ -179,6 +247,11 @@ public class GrabThread extends Thread {
      */
     public void cancel() {
         clearImagesToGrab();
+        // stop the images being grabbed too, interrupting the workers does not stop a blocking read
+        setCanceled(true);
+        if (grabber != null) {
+            grabber.getWmsInterface().cancelGrabs();
+        }
         if (cacheControl != null) {
             while (!cacheControl.isCachePipeEmpty()) {
                 Logging.info("Try to close a WMSLayer which is currently saving in cache : wait 1 sec.");
@@ -209,10 +282,13 @@ public class GrabThread extends Thread {
             }
         }
         lockCurrentGrabImage.lock();
-        if (currentGrabImage != null) {
-            paintBox(g, mv, currentGrabImage, Color.orange);
+        try {
+            for (EastNorthBound img : currentGrabImages) {
+                paintBox(g, mv, img, Color.orange);
+            }
+        } finally {
+            lockCurrentGrabImage.unlock();
         }
-        lockCurrentGrabImage.unlock();
     }
 
     private void paintBox(Graphics g, MapView mv, EastNorthBound img, Color color) {
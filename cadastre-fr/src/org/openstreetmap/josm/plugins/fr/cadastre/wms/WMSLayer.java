@@ -13,10 +13,11 @@ import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Locale;
@@ -68,6 +69,8 @@ public class WMSLayer extends Layer implements ImageObserver {
 
     Lock imagesLock = new ReentrantLock();
 
+    final CacheImageLoader imageLoader = new CacheImageLoader(this);
+
     /**
      * v1 to v2 = not supported
      * v2 to v3 = add 4 more EastNorth coordinates in GeorefImages
@@ -147,6 +150,7 @@ public class WMSLayer extends Layer implements ImageObserver {
         if (grabThread != null)
                 grabThread.cancel();
         grabThread = null;
+        imageLoader.shutdown();
         super.destroy();
         images = null;
         dividedBbox = null;
@@ -297,9 +301,12 @@ public class WMSLayer extends Layer implements ImageObserver {
                 g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
             else
                 g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            imageLoader.startPaint();
             imagesLock.lock();
             try {
                 for (GeorefImage img : images) {
+                    if (img.isVisible(g, mv))
+                        imageLoader.imagePainted(img);
                     img.paint(g, mv, CadastrePlugin.backgroundTransparent,
                             CadastrePlugin.transparency, CadastrePlugin.drawBoundaries);
                 }
@@ -335,9 +342,9 @@ public class WMSLayer extends Layer implements ImageObserver {
         saveAsPng = new MenuActionSaveRasterAs(this);
         saveAsPng.setEnabled(isRaster);
         cancelGrab = new MenuActionCancelGrab(this);
-        cancelGrab.setEnabled(!isRaster && grabThread.getImagesToGrabSize() > 0);
+        cancelGrab.setEnabled(!isRaster && grabThread.isGrabbing());
         refineGeoRef = new MenuActionRefineGeoRef(this);
-        refineGeoRef.setEnabled(isRaster && grabThread.getImagesToGrabSize() == 0);
+        refineGeoRef.setEnabled(isRaster && !grabThread.isGrabbing());
         Action resetOffset = new ResetOffsetActionMenu();
         resetOffset.setEnabled(!isRaster && !images.isEmpty() && (deltaEast != 0.0 || deltaNorth != 0.0));
         return new Action[] {
@@ -457,16 +464,14 @@ public class WMSLayer extends Layer implements ImageObserver {
     }
 
     /**
-     * Called by CacheControl when a new cache file is created on disk.
+     * Called by CacheFile when a new cache file is created on disk.
      * Save only primitives to keep cache independent of software changes.
      * @param oos output stream
      * @throws IOException if any I/O error occurs
      */
-    public void write(ObjectOutputStream oos) throws IOException {
-        currentFormat = this.serializeFormatVersion;
-        oos.writeInt(this.serializeFormatVersion);
-        oos.writeObject(this.location);    // String
-        oos.writeObject(this.codeCommune); // String
+    void writeHeader(DataOutput oos) throws IOException {
+        oos.writeUTF(this.location);
+        oos.writeUTF(this.codeCommune);
         oos.writeInt(this.lambertZone);
         oos.writeBoolean(this.isRaster);
         oos.writeBoolean(false); // previously buildingsOnly
@@ -483,6 +488,38 @@ public class WMSLayer extends Layer implements ImageObserver {
         oos.writeDouble(this.communeBBox.max.getY());
     }
 
+    /**
+     * Called by CacheFile when a cache file in the indexed format is read from disk.
+     * @param in input stream
+     * @param currentLambertZone current Lambert zone
+     * @return {@code true} for success
+     * @throws IOException if any I/O error occurs
+     */
+    boolean readHeader(DataInput in, int currentLambertZone) throws IOException {
+        this.setLocation(in.readUTF());
+        this.setCodeCommune(in.readUTF());
+        this.lambertZone = in.readInt();
+        this.setRaster(in.readBoolean());
+        in.readBoolean();
+        if (this.isRaster) {
+            this.rasterMin = new EastNorth(in.readDouble(), in.readDouble());
+            this.rasterMax = new EastNorth(in.readDouble(), in.readDouble());
+            this.rasterRatio = in.readDouble();
+        }
+        double minX = in.readDouble();
+        double minY = in.readDouble();
+        double maxX = in.readDouble();
+        double maxY = in.readDouble();
+        this.communeBBox = new EastNorthBound(new EastNorth(minX, minY), new EastNorth(maxX, maxY));
+        if (this.lambertZone != currentLambertZone && currentLambertZone != -1) {
+            JOptionPane.showMessageDialog(MainApplication.getMainFrame(), tr("Lambert zone {0} in cache "+
+                    "incompatible with current Lambert zone {1}",
+                    this.lambertZone+1, currentLambertZone), tr("Cache Lambert Zone Error"), JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Called by CacheControl when a cache file is read from disk.
      * Cache uses only primitives to stay independent of software changes.
@@ -741,6 +778,7 @@ public class WMSLayer extends Layer implements ImageObserver {
         imagesLock.lock();
         try {
             this.images = images;
+            imageLoader.clear();
         } finally {
             imagesLock.unlock();
         }
@@ -750,6 +788,7 @@ public class WMSLayer extends Layer implements ImageObserver {
         imagesLock.lock();
         try {
             images.clear();
+            imageLoader.clear();
         } finally {
             imagesLock.unlock();
         }
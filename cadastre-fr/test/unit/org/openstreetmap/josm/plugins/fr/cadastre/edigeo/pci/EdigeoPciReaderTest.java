@@ -0,0 +1,78 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.fr.cadastre.edigeo.pci;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test of {@link EdigeoPciReader}.
+ */
+@Timeout(20)
+class EdigeoPciReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void addEntry(TarArchiveOutputStream tar, String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        tar.putArchiveEntry(entry);
+        tar.write(content);
+        tar.closeArchiveEntry();
+    }
+
+    /**
+     * Unit test of {@link EdigeoPciReader#extract} with an archive padded after its end marker,
+     * further than the buffer between the decompression and the extraction.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testExtractPaddedArchive() throws IOException {
+        byte[] thf = "RTYSA03:GTS\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] vec = new byte[200_000];
+        for (int i = 0; i < vec.length; i++) {
+            vec[i] = (byte) (i * 31 + i / 256);
+        }
+        Path archive = tempDir.resolve("test.tar.bz2");
+        try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(archive))) {
+            TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+            addEntry(tar, "TEST.VEC", vec);
+            addEntry(tar, "TEST.THF", thf);
+            tar.finish();
+            // padding written by some archivers after the end marker
+            out.write(new byte[1 << 20]);
+        }
+        Path dir = Files.createDirectory(tempDir.resolve("extract"));
+
+        assertEquals(dir.resolve("TEST.THF"), EdigeoPciReader.extract(archive, dir));
+        assertArrayEquals(thf, Files.readAllBytes(dir.resolve("TEST.THF")));
+        assertArrayEquals(vec, Files.readAllBytes(dir.resolve("TEST.VEC")));
+    }
+
+    /**
+     * Unit test of {@link EdigeoPciReader#extract} with a broken bzip2 header, which must fail instead of waiting forever.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testExtractBrokenHeader() throws IOException {
+        Path archive = tempDir.resolve("broken.tar.bz2");
+        Files.write(archive, "not a bzip2 archive".getBytes(StandardCharsets.US_ASCII));
+        Path dir = Files.createDirectory(tempDir.resolve("extract"));
+
+        assertThrows(IOException.class, () -> EdigeoPciReader.extract(archive, dir));
+    }
+}
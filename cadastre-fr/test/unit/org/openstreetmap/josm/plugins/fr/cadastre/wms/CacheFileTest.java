@@ -0,0 +1,224 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.fr.cadastre.wms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.plugins.fr.cadastre.CadastrePlugin;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit test of {@link CacheFile}.
+ */
+@BasicPreferences
+@Projection
+class CacheFileTest {
+
+    /** size of the georeference written by {@link GeorefImage#writeGeoref} */
+    private static final int GEOREF_SIZE = 5 * 8 + 16 * 8 + 4 * 4;
+
+    @TempDir
+    Path tempDir;
+
+    private WMSLayer layer;
+
+    @BeforeEach
+    void setUp() {
+        layer = new WMSLayer("TEST", "12345", -1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        layer.destroy();
+    }
+
+    private static GeorefImage newImage(WMSLayer wmsLayer, int index, Color color) {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 20, 10);
+        g.setColor(Color.BLACK);
+        g.drawLine(0, 0, index, 9);
+        g.dispose();
+        return new GeorefImage(image, new EastNorth(100 * index, 50), new EastNorth(100 * index + 200, 150), wmsLayer);
+    }
+
+    private static void assertSameImage(GeorefImage expected, GeorefImage actual) throws IOException {
+        assertEquals(expected.min, actual.min);
+        assertEquals(expected.max, actual.max);
+        assertArrayEquals(expected.orgRaster, actual.orgRaster);
+        assertArrayEquals(expected.orgCroppedRaster, actual.orgCroppedRaster);
+        assertTrue(actual.isInCache());
+        BufferedImage expectedImage = expected.image;
+        BufferedImage actualImage = actual.readFromCache();
+        assertEquals(expectedImage.getWidth(), actualImage.getWidth());
+        assertEquals(expectedImage.getHeight(), actualImage.getHeight());
+        int w = expectedImage.getWidth();
+        int h = expectedImage.getHeight();
+        assertArrayEquals(expectedImage.getRGB(0, 0, w, h, null, 0, w), actualImage.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    private static List<GeorefImage> open(File file) throws IOException {
+        WMSLayer wmsLayer = new WMSLayer();
+        try {
+            List<GeorefImage> images = new CacheFile(file).open(wmsLayer, -1);
+            assertEquals("TEST", wmsLayer.getLocation());
+            assertEquals("12345", wmsLayer.getCodeCommune());
+            return images;
+        } finally {
+            wmsLayer.destroy();
+        }
+    }
+
+    /**
+     * Unit test of {@link CacheFile#create}, {@link CacheFile#append}, {@link CacheFile#open} and {@link CacheFile#readImage}.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        File file = tempDir.resolve("cache.0").toFile();
+        CacheFile cacheFile = new CacheFile(file);
+        cacheFile.create(layer);
+        assertTrue(CacheFile.isIndexed(file));
+        assertTrue(open(file).isEmpty());
+
+        List<GeorefImage> images = Arrays.asList(newImage(layer, 0, Color.RED), newImage(layer, 1, Color.GREEN));
+        cacheFile.append(images);
+        cacheFile.append(Arrays.asList(newImage(layer, 2, Color.BLUE)));
+        // the appended images can be read again from the file
+        assertTrue(images.get(0).isInCache());
+
+        List<GeorefImage> loaded = open(file);
+        assertEquals(3, loaded.size());
+        assertSameImage(images.get(0), loaded.get(0));
+        assertSameImage(images.get(1), loaded.get(1));
+        assertSameImage(newImage(layer, 2, Color.BLUE), loaded.get(2));
+        // images are not read when the file is opened
+        assertNull(loaded.get(0).image);
+    }
+
+    /**
+     * Unit test of {@link CacheFile#open} with a last record truncated by an interrupted write, followed by another append.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testTruncatedRecord() throws IOException {
+        File file = tempDir.resolve("cache.0").toFile();
+        CacheFile cacheFile = new CacheFile(file);
+        cacheFile.create(layer);
+        cacheFile.append(Arrays.asList(newImage(layer, 0, Color.RED), newImage(layer, 1, Color.GREEN)));
+        long length = file.length();
+        cacheFile.append(Arrays.asList(newImage(layer, 2, Color.BLUE)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 10);
+        }
+
+        assertEquals(2, open(file).size());
+        // the partial record is removed, so that the next images are appended after the last complete record
+        assertEquals(length, file.length());
+        cacheFile = new CacheFile(file);
+        cacheFile.append(Arrays.asList(newImage(layer, 3, Color.YELLOW)));
+
+        List<GeorefImage> loaded = open(file);
+        assertEquals(3, loaded.size());
+        assertSameImage(newImage(layer, 0, Color.RED), loaded.get(0));
+        assertSameImage(newImage(layer, 3, Color.YELLOW), loaded.get(2));
+    }
+
+    /**
+     * Unit test of {@link CacheFile#open} with a corrupted negative image length.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    void testNegativeLength() throws IOException {
+        File file = tempDir.resolve("cache.0").toFile();
+        CacheFile cacheFile = new CacheFile(file);
+        cacheFile.create(layer);
+        cacheFile.append(Arrays.asList(newImage(layer, 0, Color.RED)));
+        long length = file.length();
+        GeorefImage corrupted = newImage(layer, 1, Color.GREEN);
+        cacheFile.append(Arrays.asList(corrupted));
+        // the image length is written just before the image
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(length + GEOREF_SIZE);
+            raf.writeInt(-5);
+        }
+
+        List<GeorefImage> loaded = open(file);
+        assertEquals(1, loaded.size());
+        assertSameImage(newImage(layer, 0, Color.RED), loaded.get(0));
+        assertEquals(length, file.length());
+    }
+
+    /**
+     * Unit test of the migration of a cache file of the previous format to the indexed format.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testLegacyMigration() throws Exception {
+        CadastrePlugin.cacheDir = tempDir.toFile().getAbsolutePath() + File.separator;
+        // name of the cache file of the layer, outside of the Lambert projections
+        File file = tempDir.resolve(layer.getName() + ".0").toFile();
+        List<GeorefImage> images = Arrays.asList(newImage(layer, 0, Color.RED), newImage(layer, 1, Color.GREEN));
+        // previous format, written with the Java serialization
+        WMSLayer.currentFormat = 4;
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeInt(4);
+            oos.writeObject("TEST");
+            oos.writeObject("12345");
+            oos.writeInt(-1);
+            oos.writeBoolean(false);
+            oos.writeBoolean(false);
+            oos.writeDouble(0);
+            oos.writeDouble(0);
+            oos.writeDouble(1000);
+            oos.writeDouble(1000);
+            for (GeorefImage image : images) {
+                oos.writeObject(image);
+            }
+        }
+        assertFalse(CacheFile.isIndexed(file));
+
+        WMSLayer legacyLayer = new WMSLayer();
+        try {
+            CacheControl cacheControl = legacyLayer.grabThread.getCacheControl();
+            assertTrue(cacheControl.loadCache(file, -1));
+            assertEquals(2, legacyLayer.getImages().size());
+            // the images are rewritten in the background
+            long timeout = System.currentTimeMillis() + 10_000;
+            while (!cacheControl.isCachePipeEmpty() && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertTrue(cacheControl.isCachePipeEmpty());
+        } finally {
+            legacyLayer.destroy();
+        }
+
+        assertTrue(CacheFile.isIndexed(file));
+        List<GeorefImage> loaded = open(file);
+        assertEquals(2, loaded.size());
+        assertSameImage(images.get(0), loaded.get(0));
+        assertSameImage(images.get(1), loaded.get(1));
+    }
+}
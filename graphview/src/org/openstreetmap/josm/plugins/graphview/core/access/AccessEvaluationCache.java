@@ -0,0 +1,100 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.graphview.core.access;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * bounded cache for the results of access evaluations.
+ * There is one cache for each combination of ruleset and access parameters,
+ * so evaluators created again for the same ruleset and vehicle profile reuse earlier results.
+ * Only the caches for the most recently used combinations are kept.
+ */
+final class AccessEvaluationCache {
+
+    /** maximum number of results per cache */
+    private static final int MAX_RESULTS = 10000;
+
+    /** maximum number of ruleset/parameter combinations that results are kept for */
+    private static final int MAX_CACHES = 8;
+
+    private static final Map<CacheKey, AccessEvaluationCache> CACHES =
+        new LinkedHashMap<CacheKey, AccessEvaluationCache>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, AccessEvaluationCache> eldest) {
+                return size() > MAX_CACHES;
+            }
+        };
+
+    private final Map<Object, Boolean> results =
+        new LinkedHashMap<Object, Boolean>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                return size() > MAX_RESULTS;
+            }
+        };
+
+    private AccessEvaluationCache() {
+        // use getCache
+    }
+
+    /**
+     * returns the cache for a ruleset and access parameters, creates it if necessary.
+     * Rulesets are compared by identity, access parameters using their equals method.
+     *
+     * @param ruleset     ruleset used for evaluation; != null
+     * @param parameters  parameters used for evaluation; != null
+     */
+    static synchronized AccessEvaluationCache getCache(AccessRuleset ruleset, AccessParameters parameters) {
+        assert ruleset != null && parameters != null;
+
+        CacheKey key = new CacheKey(ruleset, parameters);
+        AccessEvaluationCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new AccessEvaluationCache();
+            CACHES.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * returns the cached result for a key or null if none is available
+     * @param key  key that contains everything the result depends on; != null
+     */
+    synchronized Boolean get(Object key) {
+        return results.get(key);
+    }
+
+    /**
+     * stores the result for a key
+     * @param key  key that contains everything the result depends on, must not be modified later; != null
+     */
+    synchronized void put(Object key, boolean result) {
+        results.put(key, result);
+    }
+
+    private static final class CacheKey {
+        private final AccessRuleset ruleset;
+        private final AccessParameters parameters;
+
+        CacheKey(AccessRuleset ruleset, AccessParameters parameters) {
+            this.ruleset = ruleset;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey otherKey = (CacheKey) obj;
+            return ruleset == otherKey.ruleset && parameters.equals(otherKey.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(ruleset) + parameters.hashCode();
+        }
+    }
+
+}
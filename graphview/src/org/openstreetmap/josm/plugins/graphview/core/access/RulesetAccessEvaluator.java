@@ -11,16 +11,24 @@ import org.openstreetmap.josm.plugins.graphview.core.data.DataSource;
 import org.openstreetmap.josm.plugins.graphview.core.data.MapBasedTagGroup;
 import org.openstreetmap.josm.plugins.graphview.core.data.Tag;
 import org.openstreetmap.josm.plugins.graphview.core.data.TagGroup;
+import org.openstreetmap.josm.plugins.graphview.core.data.TagSetKey;
 import org.openstreetmap.josm.plugins.graphview.core.property.RoadPropertyType;
 
 /**
- * AccessEvaluator based on a single AccessRuleset
+ * AccessEvaluator based on a single AccessRuleset.
+ * Results are cached for each combination of tags and road property values,
+ * the cache is shared with other evaluators for the same ruleset and parameters.
  */
 public class RulesetAccessEvaluator<N, W, R, M> implements AccessEvaluator<N, W> {
 
+    private static final int NODE = 0;
+    private static final int WAY_FORWARD = 1;
+    private static final int WAY_BACKWARD = 2;
+
     private final DataSource<N, W, R, M> dataSource;
     private final AccessRuleset ruleset;
     private final AccessParameters parameters;
+    private final AccessEvaluationCache cache;
 
     /**
      * @param dataSource  object that allows access to data objects and tags/members; != null
@@ -34,6 +42,7 @@ public class RulesetAccessEvaluator<N, W, R, M> implements AccessEvaluator<N, W>
         this.dataSource = dataSource;
         this.ruleset = ruleset;
         this.parameters = parameters;
+        this.cache = AccessEvaluationCache.getCache(ruleset, parameters);
 
     }
 
@@ -43,6 +52,20 @@ public class RulesetAccessEvaluator<N, W, R, M> implements AccessEvaluator<N, W>
 
         TagGroup wayTags = dataSource.getTagsW(way);
 
+        EvaluationKey key = new EvaluationKey(new TagSetKey(wayTags),
+                forward ? WAY_FORWARD : WAY_BACKWARD, segmentPropertyValues);
+
+        Boolean result = cache.get(key);
+        if (result == null) {
+            result = wayUsable(wayTags, forward, segmentPropertyValues);
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private boolean wayUsable(TagGroup wayTags, boolean forward,
+            Map<RoadPropertyType<?>, Object> segmentPropertyValues) {
+
         TagGroup wayTagsWithImplications = new MapBasedTagGroup(wayTags);
         for (Implication implication : ruleset.getImplications()) {
             wayTagsWithImplications = implication.apply(wayTagsWithImplications);
@@ -87,7 +110,14 @@ public class RulesetAccessEvaluator<N, W, R, M> implements AccessEvaluator<N, W>
 
         TagGroup nodeTags = dataSource.getTagsN(node);
 
-        return objectUsable(roadPropertyValues, nodeTags);
+        EvaluationKey key = new EvaluationKey(new TagSetKey(nodeTags), NODE, roadPropertyValues);
+
+        Boolean result = cache.get(key);
+        if (result == null) {
+            result = objectUsable(roadPropertyValues, nodeTags);
+            cache.put(key, result);
+        }
+        return result;
     }
 
     private boolean objectUsable(Map<RoadPropertyType<?>, Object> roadPropertyValues,
@@ -200,4 +230,36 @@ public class RulesetAccessEvaluator<N, W, R, M> implements AccessEvaluator<N, W>
         }
     }
 
+    /**
+     * everything the result of an evaluation depends on, apart from ruleset and parameters
+     */
+    private static final class EvaluationKey {
+        private final TagSetKey tags;
+        private final int type;
+        private final Map<RoadPropertyType<?>, Object> roadPropertyValues;
+        private final int hashCode;
+
+        EvaluationKey(TagSetKey tags, int type, Map<RoadPropertyType<?>, Object> roadPropertyValues) {
+            this.tags = tags;
+            this.type = type;
+            this.roadPropertyValues = roadPropertyValues;
+            this.hashCode = (31 * tags.hashCode() + type) * 31 + roadPropertyValues.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EvaluationKey)) {
+                return false;
+            }
+            EvaluationKey otherKey = (EvaluationKey) obj;
+            return hashCode == otherKey.hashCode && type == otherKey.type
+                    && tags.equals(otherKey.tags) && roadPropertyValues.equals(otherKey.roadPropertyValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
 }
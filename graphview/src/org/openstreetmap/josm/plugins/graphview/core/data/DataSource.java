@@ -25,6 +25,12 @@ public interface DataSource<N, W, R, M> {
     /** returns a node's longitude */
     double getLon(N node);
 
+    /** returns whether a way is part of the data, that is, whether it would be returned by {@link #getWays()} */
+    boolean containsW(W way);
+
+    /** returns whether a relation is part of the data, that is, whether it would be returned by {@link #getRelations()} */
+    boolean containsR(R relation);
+
     /** returns a way's nodes */
     Iterable<N> getNodes(W way);
 
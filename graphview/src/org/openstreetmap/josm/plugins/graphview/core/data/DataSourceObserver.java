@@ -1,6 +1,8 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.graphview.core.data;
 
+import java.util.Collection;
+
 /**
  * observer that will be informed about changes in a DataSource
  * if it has been registered using {@link DataSource#addObserver(DataSourceObserver)}.
@@ -13,4 +15,19 @@ public interface DataSourceObserver {
      * @param dataSource  observed data source that has changed; != null
      */
     void update(DataSource<?, ?, ?, ?> dataSource);
+
+    /**
+     * informs this observer about changes of some elements of an observed data source.
+     * Added, modified and removed elements are all reported as changed elements.
+     * Observers that cannot use this information are informed using {@link #update(DataSource)}.
+     *
+     * @param dataSource        observed data source that has changed; != null
+     * @param changedNodes      nodes that have changed; != null
+     * @param changedWays       ways that have changed; != null
+     * @param changedRelations  relations that have changed; != null
+     */
+    default void update(DataSource<?, ?, ?, ?> dataSource,
+            Collection<?> changedNodes, Collection<?> changedWays, Collection<?> changedRelations) {
+        update(dataSource);
+    }
 }
@@ -0,0 +1,77 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.graphview.core.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * immutable representation of all tags of a TagGroup that is compared by value.
+ * Can be used as key for results that only depend on the tags,
+ * because many objects share the same tag combinations.
+ */
+public final class TagSetKey {
+
+    private static final Comparator<Tag> TAG_COMPARATOR = new Comparator<Tag>() {
+        @Override
+        public int compare(Tag tag1, Tag tag2) {
+            return tag1.key.compareTo(tag2.key);
+        }
+    };
+
+    /** keys and values of the tags, sorted by key: key1, value1, key2, value2, ... */
+    private final String[] keysAndValues;
+    private final int hashCode;
+
+    /**
+     * @param tags  tags to create the key from; != null
+     */
+    public TagSetKey(TagGroup tags) {
+        assert tags != null;
+
+        List<Tag> tagList = new ArrayList<>(tags.size());
+        for (Tag tag : tags) {
+            tagList.add(tag);
+        }
+        Collections.sort(tagList, TAG_COMPARATOR);
+
+        keysAndValues = new String[2 * tagList.size()];
+        for (int i = 0; i < tagList.size(); i++) {
+            keysAndValues[2 * i] = tagList.get(i).key;
+            keysAndValues[2 * i + 1] = tagList.get(i).value;
+        }
+        hashCode = Arrays.hashCode(keysAndValues);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof TagSetKey)) {
+            return false;
+        } else {
+            TagSetKey otherKey = (TagSetKey) obj;
+            return hashCode == otherKey.hashCode && Arrays.equals(keysAndValues, otherKey.keysAndValues);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(keysAndValues[i]).append('=').append(keysAndValues[i + 1]);
+        }
+        return result.append('}').toString();
+    }
+
+}
@@ -5,9 +5,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 
 import org.openstreetmap.josm.plugins.graphview.core.property.GraphEdgePropertyType;
@@ -16,6 +19,7 @@ import org.openstreetmap.josm.plugins.graphview.core.transition.Restriction;
 import org.openstreetmap.josm.plugins.graphview.core.transition.Segment;
 import org.openstreetmap.josm.plugins.graphview.core.transition.SegmentNode;
 import org.openstreetmap.josm.plugins.graphview.core.transition.TransitionStructure;
+import org.openstreetmap.josm.plugins.graphview.core.transition.TransitionStructureChange;
 import org.openstreetmap.josm.plugins.graphview.core.transition.TransitionStructureObserver;
 
 /**
@@ -65,6 +69,14 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
             outgoingEdges.add(edge);
         }
 
+        public void removeIncomingEdge(GraphEdge edge) {
+            incomingEdges.remove(edge);
+        }
+
+        public void removeOutgoingEdge(GraphEdge edge) {
+            outgoingEdges.remove(edge);
+        }
+
         @Override
         public Collection<GraphEdge> getOutboundEdges() {
             return outgoingEdges;
@@ -123,8 +135,47 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
 
     private final TransitionStructure transitionStructure;
 
-    private Collection<GraphNode> nodes;
-    private List<GraphEdge> edges;
+    private final Set<GraphNode> nodes = new LinkedHashSet<>();
+    private final Set<GraphEdge> edges = new LinkedHashSet<>();
+
+    /* the following maps are kept between updates
+     * to create only the evaluation groups that are affected by a change of the transition structure */
+
+    /** map from SegmentNodes to the junction evaluation group they are part of */
+    private final Map<SegmentNode, JunctionEvaluationGroup> junctionGroupMap = new HashMap<>();
+
+    /** map from Segments to the connector evaluation group they are part of */
+    private final Map<Segment, ConnectorEvaluationGroup> connectorGroupMap = new HashMap<>();
+
+    /** map from junction evaluation groups to the GraphNodes that have been created for them */
+    private final Map<JunctionEvaluationGroup, Collection<GraphNodeImpl>> groupNodeMap = new HashMap<>();
+
+    /** map from evaluation groups to the GraphEdges that have been created for them */
+    private final Map<EvaluationGroup, Collection<GraphEdge>> groupEdgeMap = new HashMap<>();
+
+    /** map from SegmentNodes to the restrictions that have the SegmentNode as start of a via segment or of a to segment */
+    private final Map<SegmentNode, Collection<Restriction>> restrictionNodeMap = new HashMap<>();
+
+    //map from Segments to GraphNodes;
+    //for those GraphNodes representing an "approaching node on segment" state
+    private final Map<Segment, GraphNodeImpl> segment2GNMap_approaching = new HashMap<>();
+
+    //map from Segments to GraphNodes;
+    //for those GraphNodes representing a "leaving node on segment" state
+    private final Map<Segment, GraphNodeImpl> segment2GNMap_leaving = new HashMap<>();
+
+    //map from SegmentNodes to GraphNode collections;
+    //for those GraphNodes representing an "approaching node on segment" state
+    private final Map<SegmentNode, Collection<GraphNodeImpl>> segNode2GNMap_approaching = new HashMap<>();
+
+    //map from SegmentNodes to GraphNodes collections;
+    //for those GraphNodes representing a "leaving node on segment" state
+    private final Map<SegmentNode, Collection<GraphNodeImpl>> segNode2GNMap_leaving = new HashMap<>();
+
+    /* elements whose evaluation groups have to be created during the current update */
+
+    private final Set<SegmentNode> dirtyNodes = new LinkedHashSet<>();
+    private final Set<Segment> dirtySegments = new LinkedHashSet<>();
 
     /**
      * create a WayGraph based on a {@link TransitionStructure}
@@ -149,188 +200,420 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
         return nodes;
     }
 
+    /**
+     * creates all nodes and edges from the current state of the transition structure
+     */
     private void createNodesAndEdges() {
 
-        Collection<EvaluationGroup> evaluationGroups =
-            createEvaluationGroups(transitionStructure);
+        nodes.clear();
+        edges.clear();
+
+        junctionGroupMap.clear();
+        connectorGroupMap.clear();
+        groupNodeMap.clear();
+        groupEdgeMap.clear();
+        restrictionNodeMap.clear();
+
+        segment2GNMap_approaching.clear();
+        segment2GNMap_leaving.clear();
+        segNode2GNMap_approaching.clear();
+        segNode2GNMap_leaving.clear();
 
-        for (EvaluationGroup evaluationGroup : evaluationGroups) {
-            evaluationGroup.evaluate(transitionStructure.getRestrictions());
+        for (Restriction restriction : transitionStructure.getRestrictions()) {
+            addToRestrictionNodeMap(restriction);
         }
 
-        createNodesAndEdgesFromEvaluationGroups(evaluationGroups);
+        dirtyNodes.addAll(transitionStructure.getNodes());
+        dirtySegments.addAll(transitionStructure.getSegments());
 
-        evaluationGroups = null;
+        createDirtyEvaluationGroups(new HashSet<SegmentNode>(0), new HashSet<Segment>(0));
     }
 
-    private static Collection<EvaluationGroup> createEvaluationGroups(
-            TransitionStructure transitionStructure) {
+    /**
+     * updates the nodes and edges of evaluation groups that are affected by a change.
+     * A group is affected if it contains a removed element, or an element that is connected
+     * to an added or removed segment or part of an added or removed restriction.
+     */
+    private void updateNodesAndEdges(TransitionStructureChange change) {
 
-        Map<SegmentNode, Set<SegmentNode>> nodeSetMap =
-            new HashMap<>();
+        Set<SegmentNode> removedNodes = new HashSet<>(change.getRemovedNodes());
+        Set<Segment> removedSegments = new HashSet<>(change.getRemovedSegments());
 
-        /* first step: everything that is part of the same restriction goes into the same set */
+        for (Restriction restriction : change.getRemovedRestrictions()) {
+            removeFromRestrictionNodeMap(restriction);
+            dirtyNodes.addAll(getRestrictionNodes(restriction));
+        }
+        for (Restriction restriction : change.getAddedRestrictions()) {
+            addToRestrictionNodeMap(restriction);
+            dirtyNodes.addAll(getRestrictionNodes(restriction));
+        }
 
-        for (Restriction restriction : transitionStructure.getRestrictions()) {
+        for (Segment segment : change.getRemovedSegments()) {
+            dirtyNodes.add(segment.getNode1());
+            dirtyNodes.add(segment.getNode2());
+            if (connectorGroupMap.containsKey(segment)) {
+                removeConnectorGroup(connectorGroupMap.get(segment));
+            }
+        }
+        for (Segment segment : change.getAddedSegments()) {
+            dirtyNodes.add(segment.getNode1());
+            dirtyNodes.add(segment.getNode2());
+            dirtySegments.add(segment);
+        }
 
-            /* group every node in via segments (which includes the
-             * last node of from and the first node of to) into a set */
+        dirtyNodes.addAll(change.getRemovedNodes());
+        dirtyNodes.addAll(change.getAddedNodes());
 
-            SegmentNode firstNode = restriction.getFrom().getNode2();
-            createSetIfHasNone(firstNode, nodeSetMap);
+        /* remove the groups containing dirty nodes.
+         * Copy the dirty nodes first, because removing junction groups adds more dirty nodes. */
 
-            for (Segment segment : restriction.getVias()) {
-                putInSameSet(segment.getNode1(), firstNode, nodeSetMap);
-                putInSameSet(segment.getNode2(), firstNode, nodeSetMap);
+        for (SegmentNode node : new ArrayList<>(dirtyNodes)) {
+            if (junctionGroupMap.containsKey(node)) {
+                removeJunctionGroup(junctionGroupMap.get(node));
             }
+            if (!removedNodes.contains(node)) {
+                for (Segment segment : node.getInboundSegments()) {
+                    if (connectorGroupMap.containsKey(segment)) {
+                        removeConnectorGroup(connectorGroupMap.get(segment));
+                    }
+                }
+                for (Segment segment : node.getOutboundSegments()) {
+                    if (connectorGroupMap.containsKey(segment)) {
+                        removeConnectorGroup(connectorGroupMap.get(segment));
+                    }
+                }
+            }
+        }
+
+        createDirtyEvaluationGroups(removedNodes, removedSegments);
+    }
+
+    /**
+     * creates evaluation groups for {@link #dirtyNodes} and {@link #dirtySegments},
+     * evaluates them and creates their nodes and edges.
+     * Groups that are found to share elements with the new groups are removed.
+     *
+     * @param removedNodes     nodes that are no longer part of the transition structure; != null
+     * @param removedSegments  segments that are no longer part of the transition structure; != null
+     */
+    private void createDirtyEvaluationGroups(Set<SegmentNode> removedNodes, Set<Segment> removedSegments) {
+
+        /* first step: create a junction evaluation group for each set of nodes
+         * that are part of the same restrictions, and for each other junction and end point
+         * (node connected with more than / less than two nodes) */
+
+        Collection<JunctionEvaluationGroup> junctionGroups = new ArrayList<>();
+
+        while (!dirtyNodes.isEmpty()) {
 
-            for (Segment segment : restriction.getTos()) {
-                putInSameSet(segment.getNode1(), firstNode, nodeSetMap);
+            SegmentNode node = pollFirst(dirtyNodes);
+
+            if (removedNodes.contains(node) || junctionGroupMap.containsKey(node)) {
+                continue;
             }
 
-        }
+            dirtySegments.addAll(node.getInboundSegments());
+            dirtySegments.addAll(node.getOutboundSegments());
 
-        /* second step: create own sets for each junction and end point
-         * (node connected with more than / less than two nodes). */
+            if (restrictionNodeMap.containsKey(node) || !isConnectedWithExactly2Nodes(node)) {
 
-        for (SegmentNode node : transitionStructure.getNodes()) {
+                Set<SegmentNode> nodeSet = new HashSet<>();
+                Queue<SegmentNode> queue = new LinkedList<>();
+                nodeSet.add(node);
+                queue.add(node);
 
-            if (!nodeSetMap.containsKey(node)
-                    && !isConnectedWithExactly2Nodes(node)) {
+                while (!queue.isEmpty()) {
+                    SegmentNode current = queue.poll();
+                    if (junctionGroupMap.containsKey(current)) {
+                        //the group has been created before and is joined by a new restriction
+                        removeJunctionGroup(junctionGroupMap.get(current));
+                    }
+                    if (restrictionNodeMap.containsKey(current)) {
+                        for (Restriction restriction : restrictionNodeMap.get(current)) {
+                            for (SegmentNode restrictionNode : getRestrictionNodes(restriction)) {
+                                if (nodeSet.add(restrictionNode)) {
+                                    queue.add(restrictionNode);
+                                }
+                            }
+                        }
+                    }
+                }
 
-                createSetIfHasNone(node, nodeSetMap);
+                JunctionEvaluationGroup junctionGroup = new JunctionEvaluationGroup(nodeSet);
+                for (SegmentNode groupNode : nodeSet) {
+                    junctionGroupMap.put(groupNode, junctionGroup);
+                    dirtyNodes.remove(groupNode);
+                    dirtySegments.addAll(groupNode.getInboundSegments());
+                    dirtySegments.addAll(groupNode.getOutboundSegments());
+                }
+                junctionGroups.add(junctionGroup);
 
             }
 
         }
 
-        /* third step: create segment sets for all segments that are not in one of the node sets
-         * (that is, at least one node is not part of a junction evaluation group
-         *  or the nodes are part of different junction evaluation groups)  */
+        /* second step: create connector evaluation groups for all segments that are not in one of the
+         * junction groups (that is, at least one node is not part of a junction evaluation group
+         * or the nodes are part of different junction evaluation groups) */
 
-        Map<Segment, Set<Segment>> segmentSetMap =
-            new HashMap<>();
+        Collection<ConnectorEvaluationGroup> connectorGroups = new ArrayList<>();
 
-        for (Segment segment : transitionStructure.getSegments()) {
+        while (!dirtySegments.isEmpty()) {
 
-            SegmentNode node1 = segment.getNode1();
-            SegmentNode node2 = segment.getNode2();
+            Segment segment = pollFirst(dirtySegments);
 
-            if (!nodeSetMap.containsKey(node1) || !nodeSetMap.containsKey(node2)
-                    || nodeSetMap.get(node1) != nodeSetMap.get(node2)) {
+            if (removedSegments.contains(segment) || connectorGroupMap.containsKey(segment)
+                    || !isConnectorSegment(segment)) {
+                continue;
+            }
 
-                createSetIfHasNone(segment, segmentSetMap);
+            Set<Segment> segmentSet = new HashSet<>();
+            Queue<Segment> queue = new LinkedList<>();
+            segmentSet.add(segment);
+            queue.add(segment);
 
-                for (Segment subsequentSegment : segment.getNode2().getOutboundSegments()) {
-                    if (!nodeSetMap.containsKey(node2)
+            while (!queue.isEmpty()) {
+                Segment current = queue.poll();
+                if (connectorGroupMap.containsKey(current)) {
+                    removeConnectorGroup(connectorGroupMap.get(current));
+                }
+                SegmentNode node1 = current.getNode1();
+                SegmentNode node2 = current.getNode2();
+                for (Segment subsequentSegment : node2.getOutboundSegments()) {
+                    if (!junctionGroupMap.containsKey(node2)
                             || subsequentSegment.getNode2() == node1) {
-                        putInSameSet(subsequentSegment, segment, segmentSetMap);
+                        if (segmentSet.add(subsequentSegment)) {
+                            queue.add(subsequentSegment);
+                        }
+                    }
+                }
+                for (Segment precedingSegment : node1.getInboundSegments()) {
+                    if (!junctionGroupMap.containsKey(node1)
+                            || precedingSegment.getNode1() == node2) {
+                        if (segmentSet.add(precedingSegment)) {
+                            queue.add(precedingSegment);
+                        }
                     }
                 }
-                //note that segments leading to this segment will share sets anyway,
-                //because this segment is a subsequent segment of them
+            }
 
+            Set<SegmentNode> borderNodes = new HashSet<>();
+            for (Segment groupSegment : segmentSet) {
+                if (junctionGroupMap.containsKey(groupSegment.getNode1())) {
+                    borderNodes.add(groupSegment.getNode1());
+                }
+                if (junctionGroupMap.containsKey(groupSegment.getNode2())) {
+                    borderNodes.add(groupSegment.getNode2());
+                }
+            }
 
+            ConnectorEvaluationGroup connectorGroup = new ConnectorEvaluationGroup(segmentSet, borderNodes);
+            for (Segment groupSegment : segmentSet) {
+                connectorGroupMap.put(groupSegment, connectorGroup);
             }
+            connectorGroups.add(connectorGroup);
 
         }
 
-        /* create EvaluationGroup objects */
+        /* evaluate the new groups, only the restrictions involving their nodes are relevant */
 
-        Collection<EvaluationGroup> evaluationGroups =
-            new ArrayList<>(nodeSetMap.size() + segmentSetMap.size());
+        for (JunctionEvaluationGroup junctionGroup : junctionGroups) {
+            junctionGroup.evaluate(getRelevantRestrictions(junctionGroup.getSegmentNodes()));
+        }
 
-        Set<Set<SegmentNode>> nodeSets = new HashSet<>(nodeSetMap.values());
-        for (Set<SegmentNode> nodeSet : nodeSets) {
-            evaluationGroups.add(new JunctionEvaluationGroup(nodeSet));
+        for (ConnectorEvaluationGroup connectorGroup : connectorGroups) {
+            Set<SegmentNode> segmentNodes = new HashSet<>();
+            for (Segment segment : connectorGroup.getSegments()) {
+                segmentNodes.add(segment.getNode1());
+                segmentNodes.add(segment.getNode2());
+            }
+            connectorGroup.evaluate(getRelevantRestrictions(segmentNodes));
         }
 
-        HashSet<Set<Segment>> hashSets = new HashSet<>(segmentSetMap.values());
-        for (Set<Segment> segmentSet : hashSets) {
-            Set<SegmentNode> borderNodes = new HashSet<>();
-            for (Segment segment : segmentSet) {
-                if (nodeSetMap.containsKey(segment.getNode1())) {
-                    borderNodes.add(segment.getNode1());
-                }
-                if (nodeSetMap.containsKey(segment.getNode2())) {
-                    borderNodes.add(segment.getNode2());
+        createNodesAndEdgesFromEvaluationGroups(junctionGroups, connectorGroups);
+    }
+
+    private boolean isConnectorSegment(Segment segment) {
+        JunctionEvaluationGroup group1 = junctionGroupMap.get(segment.getNode1());
+        JunctionEvaluationGroup group2 = junctionGroupMap.get(segment.getNode2());
+        return group1 == null || group2 == null || group1 != group2;
+    }
+
+    private Collection<Restriction> getRelevantRestrictions(Collection<SegmentNode> segmentNodes) {
+        Set<Restriction> relevantRestrictions = new HashSet<>();
+        for (SegmentNode node : segmentNodes) {
+            if (restrictionNodeMap.containsKey(node)) {
+                relevantRestrictions.addAll(restrictionNodeMap.get(node));
+            }
+        }
+        return relevantRestrictions;
+    }
+
+    /**
+     * returns the nodes that are part of the same junction evaluation group because of a restriction:
+     * every node in via segments, which includes the last node of from and the first node of to
+     */
+    private static Collection<SegmentNode> getRestrictionNodes(Restriction restriction) {
+        Collection<SegmentNode> restrictionNodes = new ArrayList<>();
+        restrictionNodes.add(restriction.getFrom().getNode2());
+        for (Segment segment : restriction.getVias()) {
+            restrictionNodes.add(segment.getNode1());
+            restrictionNodes.add(segment.getNode2());
+        }
+        for (Segment segment : restriction.getTos()) {
+            restrictionNodes.add(segment.getNode1());
+        }
+        return restrictionNodes;
+    }
+
+    private void addToRestrictionNodeMap(Restriction restriction) {
+        for (SegmentNode node : getRestrictionNodes(restriction)) {
+            if (!restrictionNodeMap.containsKey(node)) {
+                restrictionNodeMap.put(node, new HashSet<Restriction>());
+            }
+            restrictionNodeMap.get(node).add(restriction);
+        }
+    }
+
+    private void removeFromRestrictionNodeMap(Restriction restriction) {
+        for (SegmentNode node : getRestrictionNodes(restriction)) {
+            Collection<Restriction> nodeRestrictions = restrictionNodeMap.get(node);
+            if (nodeRestrictions != null) {
+                nodeRestrictions.remove(restriction);
+                if (nodeRestrictions.isEmpty()) {
+                    restrictionNodeMap.remove(node);
                 }
             }
-            evaluationGroups.add(new ConnectorEvaluationGroup(segmentSet, borderNodes));
         }
+    }
+
+    /**
+     * removes a junction evaluation group with its nodes and edges,
+     * as well as the connector evaluation groups leading to it.
+     * The group's nodes are marked as dirty.
+     */
+    private void removeJunctionGroup(JunctionEvaluationGroup junctionGroup) {
+
+        for (SegmentNode node : junctionGroup.getSegmentNodes()) {
+            junctionGroupMap.remove(node);
+            dirtyNodes.add(node);
+        }
+
+        Collection<GraphNodeImpl> graphNodes = groupNodeMap.remove(junctionGroup);
+        if (graphNodes != null) {
+            for (GraphNodeImpl graphNode : graphNodes) {
+                removeGraphNode(graphNode);
+            }
+        }
+        groupEdgeMap.remove(junctionGroup);
 
-        return evaluationGroups;
+        for (Segment segment : junctionGroup.getInboundSegments()) {
+            if (connectorGroupMap.containsKey(segment)) {
+                removeConnectorGroup(connectorGroupMap.get(segment));
+            }
+        }
+        for (Segment segment : junctionGroup.getOutboundSegments()) {
+            if (connectorGroupMap.containsKey(segment)) {
+                removeConnectorGroup(connectorGroupMap.get(segment));
+            }
+        }
     }
 
-    private void createNodesAndEdgesFromEvaluationGroups(
-            Collection<EvaluationGroup> evaluationGroups) {
+    /**
+     * removes a connector evaluation group with its edges.
+     * The group's segments are marked as dirty.
+     */
+    private void removeConnectorGroup(ConnectorEvaluationGroup connectorGroup) {
 
-        nodes = new LinkedList<>();
-        edges = new LinkedList<>();
+        for (Segment segment : connectorGroup.getSegments()) {
+            connectorGroupMap.remove(segment);
+            dirtySegments.add(segment);
+        }
 
-        //map from Segments to GraphNodes;
-        //for those GraphNodes representing an "approaching node on segment" state
-        final Map<Segment, GraphNodeImpl> segment2GNMap_approaching =
-            new HashMap<>();
+        Collection<GraphEdge> groupEdges = groupEdgeMap.remove(connectorGroup);
+        if (groupEdges != null) {
+            for (GraphEdge edge : groupEdges) {
+                removeGraphEdge(edge);
+            }
+        }
+    }
 
-        //map from Segments to GraphNodes;
-        //for those GraphNodes representing a "leaving node on segment" state
-        final Map<Segment, GraphNodeImpl> segment2GNMap_leaving =
-            new HashMap<>();
+    private void removeGraphNode(GraphNodeImpl graphNode) {
 
-        //map from SegmentNodes to GraphNode collections;
-        //for those GraphNodes representing an "approaching node on segment" state
-        final Map<SegmentNode, Collection<GraphNodeImpl>> segNode2GNMap_approaching =
-            new HashMap<>();
+        nodes.remove(graphNode);
 
-        //map from SegmentNodes to GraphNodes collections;
-        //for those GraphNodes representing a "leaving node on segment" state
-        final Map<SegmentNode, Collection<GraphNodeImpl>> segNode2GNMap_leaving =
-            new HashMap<>();
+        Segment segment = graphNode.getSegment();
+        SegmentNode node = graphNode.getSegmentNode();
+        if (segment2GNMap_approaching.get(segment) == graphNode) {
+            segment2GNMap_approaching.remove(segment);
+            removeFromCollectionMap(segNode2GNMap_approaching, node, graphNode);
+        }
+        if (segment2GNMap_leaving.get(segment) == graphNode) {
+            segment2GNMap_leaving.remove(segment);
+            removeFromCollectionMap(segNode2GNMap_leaving, node, graphNode);
+        }
 
+        for (GraphEdge edge : new ArrayList<>(graphNode.getInboundEdges())) {
+            removeGraphEdge(edge);
+        }
+        for (GraphEdge edge : new ArrayList<>(graphNode.getOutboundEdges())) {
+            removeGraphEdge(edge);
+        }
+    }
 
+    private void removeGraphEdge(GraphEdge edge) {
+        if (edges.remove(edge)) {
+            ((GraphNodeImpl) edge.getStartNode()).removeOutgoingEdge(edge);
+            ((GraphNodeImpl) edge.getTargetNode()).removeIncomingEdge(edge);
+        }
+    }
+
+    private void createNodesAndEdgesFromEvaluationGroups(
+            Collection<JunctionEvaluationGroup> junctionGroups,
+            Collection<ConnectorEvaluationGroup> connectorGroups) {
 
         /* create graph nodes and edges for junction evaluation groups */
 
-        for (EvaluationGroup evaluationGroup : evaluationGroups) {
-            if (evaluationGroup instanceof JunctionEvaluationGroup) {
+        for (JunctionEvaluationGroup junctionEG : junctionGroups) {
 
-                JunctionEvaluationGroup junctionEG = (JunctionEvaluationGroup) evaluationGroup;
+            Collection<GraphNodeImpl> groupNodes = new ArrayList<>();
+            groupNodeMap.put(junctionEG, groupNodes);
 
-                //create graph nodes
-                for (Segment segment : junctionEG.getInboundSegments()) {
-                    GraphNodeImpl graphNode = new GraphNodeImpl(segment.getNode2(), segment);
-                    nodes.add(graphNode);
-                    segment2GNMap_approaching.put(segment, graphNode);
-                    addToCollectionMap(segNode2GNMap_approaching, segment.getNode2(), graphNode);
-                }
-                for (Segment segment : junctionEG.getOutboundSegments()) {
-                    GraphNodeImpl graphNode = new GraphNodeImpl(segment.getNode1(), segment);
-                    nodes.add(graphNode);
-                    segment2GNMap_leaving.put(segment, graphNode);
-                    addToCollectionMap(segNode2GNMap_leaving, segment.getNode1(), graphNode);
-                }
+            //create graph nodes
+            for (Segment segment : junctionEG.getInboundSegments()) {
+                GraphNodeImpl graphNode = new GraphNodeImpl(segment.getNode2(), segment);
+                nodes.add(graphNode);
+                groupNodes.add(graphNode);
+                segment2GNMap_approaching.put(segment, graphNode);
+                addToCollectionMap(segNode2GNMap_approaching, segment.getNode2(), graphNode);
+            }
+            for (Segment segment : junctionEG.getOutboundSegments()) {
+                GraphNodeImpl graphNode = new GraphNodeImpl(segment.getNode1(), segment);
+                nodes.add(graphNode);
+                groupNodes.add(graphNode);
+                segment2GNMap_leaving.put(segment, graphNode);
+                addToCollectionMap(segNode2GNMap_leaving, segment.getNode1(), graphNode);
+            }
 
-                //create graph edges for all segment sequences between in- and outbound edges
-                for (Segment inboundSegment : junctionEG.getInboundSegments()) {
-                    for (Segment outboundSegment : junctionEG.getOutboundSegments()) {
+            //create graph edges for all segment sequences between in- and outbound edges
+            for (Segment inboundSegment : junctionEG.getInboundSegments()) {
+                for (Segment outboundSegment : junctionEG.getOutboundSegments()) {
 
-                        List<Segment> segmentSequence =
-                            junctionEG.getSegmentSequence(inboundSegment, outboundSegment);
+                    List<Segment> segmentSequence =
+                        junctionEG.getSegmentSequence(inboundSegment, outboundSegment);
 
-                        if (segmentSequence != null) {
+                    if (segmentSequence != null) {
 
-                            createGraphEdge(
-                                    segment2GNMap_approaching.get(inboundSegment),
-                                    segment2GNMap_leaving.get(outboundSegment),
-                                    segmentSequence,
-                                    junctionEG);
+                        createGraphEdge(
+                                segment2GNMap_approaching.get(inboundSegment),
+                                segment2GNMap_leaving.get(outboundSegment),
+                                segmentSequence,
+                                junctionEG);
 
-                        }
                     }
                 }
-
             }
+
         }
 
         /* create graph edges for connector evaluation groups.
@@ -338,45 +621,41 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
          * and Segments (from junction groups), the GraphNodes already exist.
          */
 
-        for (EvaluationGroup evaluationGroup : evaluationGroups) {
-            if (evaluationGroup instanceof ConnectorEvaluationGroup) {
+        for (ConnectorEvaluationGroup connectorEG : connectorGroups) {
 
-                ConnectorEvaluationGroup connectorEG = (ConnectorEvaluationGroup) evaluationGroup;
+            for (SegmentNode startNode : connectorEG.getBorderNodes()) {
+                for (SegmentNode targetNode : connectorEG.getBorderNodes()) {
 
-                for (SegmentNode startNode : connectorEG.getBorderNodes()) {
-                    for (SegmentNode targetNode : connectorEG.getBorderNodes()) {
+                    if (segNode2GNMap_leaving.containsKey(startNode)
+                            && segNode2GNMap_approaching.containsKey(targetNode)) {
 
-                        if (segNode2GNMap_leaving.containsKey(startNode)
-                                && segNode2GNMap_approaching.containsKey(targetNode)) {
+                        for (GraphNodeImpl startGraphNode : segNode2GNMap_leaving.get(startNode)) {
+                            for (GraphNodeImpl targetGraphNode : segNode2GNMap_approaching.get(targetNode)) {
 
-                            for (GraphNodeImpl startGraphNode : segNode2GNMap_leaving.get(startNode)) {
-                                for (GraphNodeImpl targetGraphNode : segNode2GNMap_approaching.get(targetNode)) {
+                                if (connectorEG.getSegments().contains(startGraphNode.getSegment())
+                                        && connectorEG.getSegments().contains(targetGraphNode.getSegment())) {
 
-                                    if (connectorEG.getSegments().contains(startGraphNode.getSegment())
-                                            && connectorEG.getSegments().contains(targetGraphNode.getSegment())) {
-
-                                        List<Segment> segmentSequence =
-                                            connectorEG.getSegmentSequence(startNode, targetNode);
-
-                                        if (segmentSequence != null) {
-                                            createGraphEdge(
-                                                    startGraphNode,
-                                                    targetGraphNode,
-                                                    segmentSequence,
-                                                    connectorEG);
-                                        }
+                                    List<Segment> segmentSequence =
+                                        connectorEG.getSegmentSequence(startNode, targetNode);
 
+                                    if (segmentSequence != null) {
+                                        createGraphEdge(
+                                                startGraphNode,
+                                                targetGraphNode,
+                                                segmentSequence,
+                                                connectorEG);
                                     }
 
                                 }
-                            }
 
+                            }
                         }
 
                     }
-                }
 
+                }
             }
+
         }
 
     }
@@ -393,7 +672,7 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
             properties.put(propertyType, value);
         }
 
-        createGraphEdge(startNode, targetNode, properties);
+        createGraphEdge(startNode, targetNode, properties, evaluationGroup);
 
     }
 
@@ -409,16 +688,16 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
             properties.put(propertyType, value);
         }
 
-        createGraphEdge(startNode, targetNode, properties);
+        createGraphEdge(startNode, targetNode, properties, evaluationGroup);
 
     }
 
     /**
      * creates a GraphEdge;
-     * adds it to its nodes' collections and {@link #edges} collection.
+     * adds it to its nodes' collections, {@link #edges} collection and {@link #groupEdgeMap}.
      */
     private void createGraphEdge(GraphNodeImpl startNode, GraphNodeImpl targetNode,
-            Map<GraphEdgePropertyType<?>, Object> properties) {
+            Map<GraphEdgePropertyType<?>, Object> properties, EvaluationGroup evaluationGroup) {
 
         GraphEdge newEdge = new GraphEdgeImpl(startNode, targetNode, properties);
 
@@ -427,6 +706,8 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
 
         edges.add(newEdge);
 
+        addToCollectionMap(groupEdgeMap, evaluationGroup, newEdge);
+
     }
 
     private static boolean isConnectedWithExactly2Nodes(SegmentNode node) {
@@ -443,51 +724,12 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
         return connectedNodes.size() == 2;
     }
 
-    /**
-     * creates a set for an object if none exists in a map.
-     * The set will contain the object and be added to the map with the object being its key.
-     */
-    private static <T> void createSetIfHasNone(T object, Map<T, Set<T>> objectSetMap) {
-
-        if (!objectSetMap.containsKey(object)) {
-            Set<T> set = new HashSet<>();
-            set.add(object);
-            objectSetMap.put(object, set);
-        }
-    }
-
-    /**
-     * puts an object in another object's set.
-     * If both nodes have sets already, these sets are merged.
-     * The objectSetMap is modified accordingly.
-     *
-     * @param object        object that might or might not be in a set; != null
-     * @param objectInSet   object that is guaranteed to be in a set; != null
-     * @param objectSetMap  map from objects to the one set they are part of; != null
-     */
-    private static <T> void putInSameSet(T object, T objectInSet, Map<T, Set<T>> objectSetMap) {
-        assert object != null && objectInSet != null && objectSetMap != null;
-        assert objectSetMap.containsKey(objectInSet);
-
-        Set<T> set = objectSetMap.get(objectInSet);
-
-        if (objectSetMap.containsKey(object)) {
-
-            /* merge the two sets */
-            Set<T> oldSet = objectSetMap.get(object);
-            for (T objectFromOldSet : oldSet) {
-                set.add(objectFromOldSet);
-                objectSetMap.put(objectFromOldSet, set);
-            }
-
-        } else {
-
-            /* add object to objectInSet's set */
-            set.add(object);
-            objectSetMap.put(object, set);
-
-        }
-
+    /** removes and returns the first element of a non-empty set */
+    private static <T> T pollFirst(Set<T> set) {
+        Iterator<T> iterator = set.iterator();
+        T first = iterator.next();
+        iterator.remove();
+        return first;
     }
 
     private static <K, E> void addToCollectionMap(final Map<K, Collection<E>> map, K key, E entry) {
@@ -498,12 +740,28 @@ public class TSBasedWayGraph implements WayGraph, TransitionStructureObserver {
         map.get(key).add(entry);
     }
 
+    private static <K, E> void removeFromCollectionMap(final Map<K, Collection<E>> map, K key, E entry) {
+        Collection<E> collection = map.get(key);
+        if (collection != null) {
+            collection.remove(entry);
+            if (collection.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
     @Override
     public void update(TransitionStructure transitionStructure) {
         createNodesAndEdges();
         notifyObservers();
     }
 
+    @Override
+    public void update(TransitionStructure transitionStructure, TransitionStructureChange change) {
+        updateNodesAndEdges(change);
+        notifyObservers();
+    }
+
     @Override
     public void addObserver(WayGraphObserver observer) {
         observers.add(observer);
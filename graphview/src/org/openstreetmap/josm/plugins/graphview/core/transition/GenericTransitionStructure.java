@@ -7,6 +7,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -67,6 +68,14 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
             outboundSegments.add(segment);
         }
 
+        public void removeInboundSegment(Segment segment) {
+            inboundSegments.remove(segment);
+        }
+
+        public void removeOutboundSegment(Segment segment) {
+            outboundSegments.remove(segment);
+        }
+
         @Override
         public Collection<Segment> getOutboundSegments() {
             return outboundSegments;
@@ -189,9 +198,29 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
 
     private AccessEvaluator<N, W> accessEvaluator;
 
-    private Collection<SegmentNode> nodes = null;
-    private Collection<Segment> segments = new LinkedList<>();
-    private Collection<Restriction> restrictions = new LinkedList<>();
+    private final Set<SegmentNode> nodes = new LinkedHashSet<>();
+    private final Set<Segment> segments = new LinkedHashSet<>();
+    private final Set<Restriction> restrictions = new LinkedHashSet<>();
+
+    /* the following maps are kept between updates
+     * to find the elements that have to be created again when the data source changes */
+
+    /** map providing the SegmentNode that has been created from a node */
+    private final Map<N, SegmentNodeImpl> nodeCreationMap = new HashMap<>();
+    /** map providing the Segments that have been created from a way */
+    private final Map<W, List<Segment>> waySegmentMap = new HashMap<>();
+    /** map providing the nodes of a way at the time Segments have been created from it */
+    private final Map<W, List<N>> wayNodeMap = new HashMap<>();
+    /** map providing the ways that Segments containing a node's SegmentNode have been created from */
+    private final Map<N, Set<W>> nodeWayMap = new HashMap<>();
+    /** map providing the Restrictions that have been created from a relation */
+    private final Map<R, Collection<Restriction>> relationRestrictionMap = new HashMap<>();
+    /** map providing the Restrictions that have been created from a barrier node */
+    private final Map<N, Collection<Restriction>> barrierRestrictionMap = new HashMap<>();
+    /** map providing the nodes and ways that the Restrictions from a restriction relation depend on */
+    private final Map<R, Collection<Object>> relationDependencyMap = new HashMap<>();
+    /** inverse of {@link #relationDependencyMap} */
+    private final Map<Object, Set<R>> dependentRelationMap = new HashMap<>();
 
     public GenericTransitionStructure(
             AccessParameters accessParameters, AccessRuleset ruleset,
@@ -263,56 +292,155 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
      */
     protected void updateData() {
 
-        ArrayList<SegmentNode> nodes = new ArrayList<>();
-        ArrayList<Segment> segments = new ArrayList<>();
+        nodes.clear();
+        segments.clear();
+        restrictions.clear();
 
-        Map<N, SegmentNodeImpl> nodeCreationMap = new HashMap<>();
-        Map<W, List<Segment>> waySegmentMap = new HashMap<>();
+        nodeCreationMap.clear();
+        waySegmentMap.clear();
+        wayNodeMap.clear();
+        nodeWayMap.clear();
+        relationRestrictionMap.clear();
+        barrierRestrictionMap.clear();
+        relationDependencyMap.clear();
+        dependentRelationMap.clear();
 
         /* create segments (nodes are created only when included in a segment) */
 
         for (W way : dataSource.getWays()) {
-            createSegmentsAndSegmentNodes(way, accessEvaluator, nodes, segments, nodeCreationMap, waySegmentMap);
+            createSegmentsAndSegmentNodes(way, accessEvaluator, null);
         }
 
-        nodes.trimToSize();
-        segments.trimToSize();
-
         /* create restrictions */
 
-        Collection<Restriction> restrictions =
-            createRestrictionsFromTurnRestrictions(dataSource.getRelations(), nodeCreationMap, waySegmentMap);
-
-        restrictions.addAll(createRestrictionsFromBarrierNodes(nodeCreationMap, waySegmentMap));
+        for (R relation : dataSource.getRelations()) {
+            createRestrictionsFromTurnRestriction(relation, null);
+        }
 
-        /* keep data and inform observers */
+        for (N node : nodeCreationMap.keySet()) {
+            createRestrictionsFromBarrierNode(node, null);
+        }
 
-        this.nodes = nodes;
-        this.segments = segments;
-        this.restrictions = restrictions;
+        /* inform observers */
 
         notifyObservers();
 
     }
 
+    /**
+     * updates only the nodes, segments and restrictions that are based on changed data source elements
+     * and informs observers about the elements that have been removed and added.
+     *
+     * @param changedNodes      nodes that have been added, modified or removed; != null
+     * @param changedWays       ways that have been added, modified or removed; != null
+     * @param changedRelations  relations that have been added, modified or removed; != null
+     */
+    protected void updateData(Collection<N> changedNodes, Collection<W> changedWays, Collection<R> changedRelations) {
+
+        assert changedNodes != null && changedWays != null && changedRelations != null;
+
+        TransitionStructureChange change = new TransitionStructureChange();
+
+        /* segments have to be created again for changed ways and for ways containing changed nodes */
+
+        Set<W> affectedWays = new LinkedHashSet<>(changedWays);
+        for (N node : changedNodes) {
+            Set<W> ways = nodeWayMap.get(node);
+            if (ways != null) {
+                affectedWays.addAll(ways);
+            }
+        }
+
+        //nodes whose segments may have changed
+        Set<N> touchedNodes = new LinkedHashSet<>(changedNodes);
+
+        for (W way : affectedWays) {
+            removeSegments(way, touchedNodes, change);
+        }
+
+        for (N node : changedNodes) {
+            SegmentNodeImpl segmentNode = nodeCreationMap.remove(node);
+            if (segmentNode != null) {
+                nodes.remove(segmentNode);
+                change.removedNodes.add(segmentNode);
+            }
+        }
+
+        for (W way : affectedWays) {
+            if (dataSource.containsW(way)) {
+                createSegmentsAndSegmentNodes(way, accessEvaluator, change);
+                if (wayNodeMap.containsKey(way)) {
+                    touchedNodes.addAll(wayNodeMap.get(way));
+                }
+            }
+        }
+
+        /* remove nodes that are no longer part of any segment */
+
+        for (N node : touchedNodes) {
+            SegmentNodeImpl segmentNode = nodeCreationMap.get(node);
+            if (segmentNode != null
+                    && segmentNode.getInboundSegments().isEmpty()
+                    && segmentNode.getOutboundSegments().isEmpty()) {
+                nodeCreationMap.remove(node);
+                nodes.remove(segmentNode);
+                change.removedNodes.add(segmentNode);
+            }
+        }
+
+        /* create restrictions again for changed relations
+         * and for relations that depend on one of the updated ways or nodes */
+
+        Set<R> affectedRelations = new LinkedHashSet<>(changedRelations);
+        for (W way : affectedWays) {
+            if (dependentRelationMap.containsKey(way)) {
+                affectedRelations.addAll(dependentRelationMap.get(way));
+            }
+        }
+        for (N node : touchedNodes) {
+            if (dependentRelationMap.containsKey(node)) {
+                affectedRelations.addAll(dependentRelationMap.get(node));
+            }
+        }
+
+        for (R relation : affectedRelations) {
+            removeRestrictionsFromTurnRestriction(relation, change);
+            if (dataSource.containsR(relation)) {
+                createRestrictionsFromTurnRestriction(relation, change);
+            }
+        }
+
+        for (N node : touchedNodes) {
+            Collection<Restriction> barrierRestrictions = barrierRestrictionMap.remove(node);
+            if (barrierRestrictions != null) {
+                removeRestrictions(barrierRestrictions, change);
+            }
+            if (nodeCreationMap.containsKey(node)) {
+                createRestrictionsFromBarrierNode(node, change);
+            }
+        }
+
+        /* inform observers */
+
+        if (!change.isEmpty()) {
+            notifyObservers(change);
+        }
+
+    }
+
     /**
      * creates all Segments and SegmentNodes for a way
+     * and adds them to the collections and maps of this transition structure
      *
      * @param way                 way to create Segments and SegmentNodes from; != null
      * @param wayAccessEvaluator  evaluator object that decides whether way is usable; != null
-     * @param nodes               collection of SegmentNodes, new SegmentNodes will be added here; != null
-     * @param segments            collection of Segments, new Segments will be added here; != null
-     * @param nodeCreationMap     map providing the SegmentNode that has been created from a Node,
-     *                            if new SegmentNodes are created, they will be added appropriately; != null
-     * @param waySegmentMap       map providing the Segments that have been created from a Way,
-     *                            if new Segments are created, they will be added appropriately; != null
+     * @param change              change that new Segments and SegmentNodes will be added to;
+     *                            null if no change is recorded
      */
     private void createSegmentsAndSegmentNodes(W way, AccessEvaluator<N, W> wayAccessEvaluator,
-            Collection<SegmentNode> nodes, Collection<Segment> segments,
-            Map<N, SegmentNodeImpl> nodeCreationMap, Map<W, List<Segment>> waySegmentMap) {
+            TransitionStructureChange change) {
 
-        assert way != null && wayAccessEvaluator != null && nodes != null
-                && segments != null && nodeCreationMap != null && waySegmentMap != null;
+        assert way != null && wayAccessEvaluator != null;
 
         /* calculate property values */
 
@@ -326,34 +454,36 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
 
         if (forwardAccess || backwardAccess) {
 
-            if (!waySegmentMap.containsKey(way)) {
-                waySegmentMap.put(way, new LinkedList<Segment>());
-            }
+            List<Segment> waySegments = new ArrayList<>();
+            List<N> wayNodes = new ArrayList<>();
+            waySegmentMap.put(way, waySegments);
+            wayNodeMap.put(way, wayNodes);
 
             /* create segments from all pairs of subsequent nodes */
 
             N previousNode = null;
             for (N node : dataSource.getNodes(way)) {
+
+                wayNodes.add(node);
+                if (!nodeWayMap.containsKey(node)) {
+                    nodeWayMap.put(node, new HashSet<W>());
+                }
+                nodeWayMap.get(node).add(way);
+
                 if (previousNode != null) {
 
                     SegmentNodeImpl node1 =
-                        getOrCreateSegmentNodeForNode(previousNode, nodes, nodeCreationMap);
+                        getOrCreateSegmentNodeForNode(previousNode, change);
                     SegmentNodeImpl node2 =
-                        getOrCreateSegmentNodeForNode(node, nodes, nodeCreationMap);
+                        getOrCreateSegmentNodeForNode(node, change);
 
                     if (forwardAccess) {
                         SegmentImpl segment = new SegmentImpl(node1, node2, forwardPropertyValues);
-                        segments.add(segment);
-                        waySegmentMap.get(way).add(segment);
-                        node1.addOutboundSegment(segment);
-                        node2.addInboundSegment(segment);
+                        addSegment(segment, waySegments, change);
                     }
                     if (backwardAccess) { //no "else if" because both can be valid
                         SegmentImpl segment = new SegmentImpl(node2, node1, backwardPropertyValues);
-                        segments.add(segment);
-                        waySegmentMap.get(way).add(segment);
-                        node1.addInboundSegment(segment);
-                        node2.addOutboundSegment(segment);
+                        addSegment(segment, waySegments, change);
                     }
 
                 }
@@ -363,13 +493,57 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
         }
     }
 
+    private void addSegment(Segment segment, List<Segment> waySegments, TransitionStructureChange change) {
+        segments.add(segment);
+        waySegments.add(segment);
+        ((SegmentNodeImpl) segment.getNode1()).addOutboundSegment(segment);
+        ((SegmentNodeImpl) segment.getNode2()).addInboundSegment(segment);
+        if (change != null) {
+            change.addedSegments.add(segment);
+        }
+    }
+
     /**
-     * if no segment node for a node exists in the nodeCreationMap,
-     * creates a segment node for it and adds it to the nodeCreationMap and the nodes collection
-     * and returns it; otherwise returns the existing segment node.
+     * removes all Segments that have been created from a way.
+     * SegmentNodes are not removed, even if they are no longer part of any segment.
+     *
+     * @param way           way whose Segments are to be removed; != null
+     * @param touchedNodes  collection that the way's nodes will be added to; != null
+     * @param change        change that removed Segments will be added to; != null
      */
-    private SegmentNodeImpl getOrCreateSegmentNodeForNode(N node,
-            Collection<SegmentNode> nodes, Map<N, SegmentNodeImpl> nodeCreationMap) {
+    private void removeSegments(W way, Collection<N> touchedNodes, TransitionStructureChange change) {
+
+        List<Segment> waySegments = waySegmentMap.remove(way);
+        if (waySegments != null) {
+            for (Segment segment : waySegments) {
+                segments.remove(segment);
+                ((SegmentNodeImpl) segment.getNode1()).removeOutboundSegment(segment);
+                ((SegmentNodeImpl) segment.getNode2()).removeInboundSegment(segment);
+                change.removedSegments.add(segment);
+            }
+        }
+
+        List<N> wayNodes = wayNodeMap.remove(way);
+        if (wayNodes != null) {
+            for (N node : wayNodes) {
+                touchedNodes.add(node);
+                Set<W> ways = nodeWayMap.get(node);
+                if (ways != null) {
+                    ways.remove(way);
+                    if (ways.isEmpty()) {
+                        nodeWayMap.remove(node);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * if no segment node for a node exists in the {@link #nodeCreationMap},
+     * creates a segment node for it and adds it to the nodeCreationMap, the nodes collection
+     * and the change (if not null) and returns it; otherwise returns the existing segment node.
+     */
+    private SegmentNodeImpl getOrCreateSegmentNodeForNode(N node, TransitionStructureChange change) {
 
         SegmentNodeImpl segmentNode = nodeCreationMap.get(node);
 
@@ -381,6 +555,9 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
 
             nodeCreationMap.put(node, segmentNode);
             nodes.add(segmentNode);
+            if (change != null) {
+                change.addedNodes.add(segmentNode);
+            }
 
         }
 
@@ -388,44 +565,111 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
     }
 
     /**
-     * creates all Restrictions from a collection of Relations.
+     * creates the Restrictions from a Relation and remembers the nodes and ways they depend on.
      * Only "type=restriction" relations are relevant for restrictions.
      *
-     * @param relations        Relations to create Restrictions from.
-     *                         They can have any type key, as filtering is done inside this method.
-     * @param nodeCreationMap  map providing the SegmentNode that has been created from a Node,
-     *                         will not be modified; != null
-     * @param waySegmentMap    map providing the Segments that have been created from a Way,
-     *                         will not be modified; != null
-     * @return                 Restrictions created from the Relations; != null, but may be empty
+     * @param relation  Relation to create Restrictions from.
+     *                  It can have any type key, as filtering is done inside this method.
+     * @param change    change that new Restrictions will be added to; null if no change is recorded
      */
-    private Collection<Restriction> createRestrictionsFromTurnRestrictions(
-            Iterable<R> relations,
-            Map<N, SegmentNodeImpl> nodeCreationMap,
-            Map<W, List<Segment>> waySegmentMap) {
+    private void createRestrictionsFromTurnRestriction(R relation, TransitionStructureChange change) {
+
+        assert relation != null;
+
+        TagGroup tags = dataSource.getTagsR(relation);
+
+        if ("restriction".equals(tags.getValue("type"))
+                && tags.getValue("restriction") != null) {
 
-        assert relations != null && nodeCreationMap != null && waySegmentMap != null;
+            addRelationDependencies(relation);
 
-        Collection<Restriction> results = new LinkedList<>();
+            //evaluate relation
+            Collection<Restriction> results = EMPTY_RESTRICTION_COLLECTION;
+            if (tags.getValue("restriction").startsWith("no_")) {
+                results = createRestrictionsFromRestrictionRelation(relation, true, nodeCreationMap, waySegmentMap);
+            } else if (tags.getValue("restriction").startsWith("only_")) {
+                results = createRestrictionsFromRestrictionRelation(relation, false, nodeCreationMap, waySegmentMap);
+            }
+
+            if (!results.isEmpty()) {
+                relationRestrictionMap.put(relation, results);
+                addRestrictions(results, change);
+            }
+
+        }
+    }
 
-        for (R relation : relations) {
+    /**
+     * removes the Restrictions that have been created from a Relation
+     * and forgets the nodes and ways they depend on
+     */
+    private void removeRestrictionsFromTurnRestriction(R relation, TransitionStructureChange change) {
+
+        Collection<Restriction> relationRestrictions = relationRestrictionMap.remove(relation);
+        if (relationRestrictions != null) {
+            removeRestrictions(relationRestrictions, change);
+        }
+
+        Collection<Object> dependencies = relationDependencyMap.remove(relation);
+        if (dependencies != null) {
+            for (Object dependency : dependencies) {
+                Set<R> dependentRelations = dependentRelationMap.get(dependency);
+                if (dependentRelations != null) {
+                    dependentRelations.remove(relation);
+                    if (dependentRelations.isEmpty()) {
+                        dependentRelationMap.remove(dependency);
+                    }
+                }
+            }
+        }
+    }
 
-            TagGroup tags = dataSource.getTagsR(relation);
+    /**
+     * remembers the members of a restriction relation and the nodes of its via ways.
+     * The restrictions have to be created again when one of these changes,
+     * because they also depend on all segments starting at via members.
+     */
+    @SuppressWarnings("unchecked") //cast is checked with isWMember
+    private void addRelationDependencies(R relation) {
 
-            if ("restriction".equals(tags.getValue("type"))
-                    && tags.getValue("restriction") != null) {
+        Collection<Object> dependencies = new ArrayList<>();
 
-                //evaluate relation
-                if (tags.getValue("restriction").startsWith("no_")) {
-                    results.addAll(createRestrictionsFromRestrictionRelation(relation, true, nodeCreationMap, waySegmentMap));
-                } else if (tags.getValue("restriction").startsWith("only_")) {
-                    results.addAll(createRestrictionsFromRestrictionRelation(relation, false, nodeCreationMap, waySegmentMap));
+        for (M member : dataSource.getMembers(relation)) {
+            if (dataSource.isWMember(member)) {
+                W way = (W) dataSource.getMember(member);
+                dependencies.add(way);
+                if ("via".equals(dataSource.getRole(member))) {
+                    for (N node : dataSource.getNodes(way)) {
+                        dependencies.add(node);
+                    }
                 }
+            } else if (dataSource.isNMember(member)) {
+                dependencies.add(dataSource.getMember(member));
+            }
+        }
+
+        relationDependencyMap.put(relation, dependencies);
 
+        for (Object dependency : dependencies) {
+            if (!dependentRelationMap.containsKey(dependency)) {
+                dependentRelationMap.put(dependency, new HashSet<R>());
             }
+            dependentRelationMap.get(dependency).add(relation);
         }
+    }
 
-        return results;
+    private void addRestrictions(Collection<Restriction> newRestrictions, TransitionStructureChange change) {
+        restrictions.addAll(newRestrictions);
+        if (change != null) {
+            change.addedRestrictions.addAll(newRestrictions);
+        }
+    }
+
+    private void removeRestrictions(Collection<Restriction> oldRestrictions, TransitionStructureChange change) {
+        for (Restriction restriction : oldRestrictions) {
+            restrictions.remove(restriction);
+        }
+        change.removedRestrictions.addAll(oldRestrictions);
     }
 
     @SuppressWarnings("unchecked") //several generic casts that are checked with isInstance
@@ -635,42 +879,36 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
     }
 
     /**
-     * creates Restrictions from barrier nodes (nodes that are considered impassable by the
+     * creates Restrictions from a barrier node (a node that is considered impassable by the
      * {@link #accessEvaluator}). These restrictions prevent moving from a segment before the
      * barrier node to a segment after the barrier node.
+     * Nothing is created if the node is not a barrier.
      *
-     * @param nodeCreationMap  map providing the SegmentNode that has been created from a node,
-     *                         will not be modified; != null
-     * @param waySegmentMap    map providing the Segments that have been created from a way,
-     *                         will not be modified; != null
-     * @return                 Restrictions created from barrier nodes; != null, but may be empty
+     * @param node    node that a SegmentNode has been created from; != null
+     * @param change  change that new Restrictions will be added to; null if no change is recorded
      */
-    private Collection<Restriction> createRestrictionsFromBarrierNodes(
-            Map<N, SegmentNodeImpl> nodeCreationMap,
-            Map<W, List<Segment>> waySegmentMap) {
-
-        assert nodeCreationMap != null;
-        assert waySegmentMap != null;
+    private void createRestrictionsFromBarrierNode(N node, TransitionStructureChange change) {
 
-        Collection<Restriction> results = new LinkedList<>();
+        assert node != null && nodeCreationMap.containsKey(node);
 
-        for (N node : nodeCreationMap.keySet()) {
+        SegmentNodeImpl barrierNode = nodeCreationMap.get(node);
 
-            if (!accessEvaluator.nodeUsable(node, nodeCreationMap.get(node).getProperties())) {
+        if (!accessEvaluator.nodeUsable(node, barrierNode.getProperties())) {
 
-                SegmentNode barrierNode = nodeCreationMap.get(node);
+            Collection<Restriction> results = new ArrayList<>();
 
-                for (Segment inboundSegment : barrierNode.getInboundSegments()) {
-                    for (Segment outboundSegment : barrierNode.getOutboundSegments()) {
-                        results.add(new RestrictionImpl(inboundSegment, EMPTY_SEGMENT_LIST, Arrays.asList(outboundSegment)));
-                    }
+            for (Segment inboundSegment : barrierNode.getInboundSegments()) {
+                for (Segment outboundSegment : barrierNode.getOutboundSegments()) {
+                    results.add(new RestrictionImpl(inboundSegment, EMPTY_SEGMENT_LIST, Arrays.asList(outboundSegment)));
                 }
+            }
 
+            if (!results.isEmpty()) {
+                barrierRestrictionMap.put(node, results);
+                addRestrictions(results, change);
             }
 
         }
-
-        return results;
     }
 
     /**
@@ -711,6 +949,14 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
         updateData();
     }
 
+    @Override
+    @SuppressWarnings("unchecked") //the data source only reports changes of its own elements
+    public void update(DataSource<?, ?, ?, ?> dataSource,
+            Collection<?> changedNodes, Collection<?> changedWays, Collection<?> changedRelations) {
+        assert this.dataSource == dataSource;
+        updateData((Collection<N>) changedNodes, (Collection<W>) changedWays, (Collection<R>) changedRelations);
+    }
+
     @Override
     public void addObserver(TransitionStructureObserver observer) {
         observers.add(observer);
@@ -726,4 +972,10 @@ public class GenericTransitionStructure<N, W, R, M> implements TransitionStructu
             observer.update(this);
         }
     }
+
+    protected void notifyObservers(TransitionStructureChange change) {
+        for (TransitionStructureObserver observer : observers) {
+            observer.update(this, change);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.graphview.core.transition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * nodes, segments and restrictions that have been removed from or added to a TransitionStructure
+ * during an update. Elements are never modified, a changed element is removed and added again as a new object.
+ */
+public class TransitionStructureChange {
+
+    final Collection<SegmentNode> removedNodes = new ArrayList<>();
+    final Collection<SegmentNode> addedNodes = new ArrayList<>();
+    final Collection<Segment> removedSegments = new ArrayList<>();
+    final Collection<Segment> addedSegments = new ArrayList<>();
+    final Collection<Restriction> removedRestrictions = new ArrayList<>();
+    final Collection<Restriction> addedRestrictions = new ArrayList<>();
+
+    public Collection<SegmentNode> getRemovedNodes() {
+        return Collections.unmodifiableCollection(removedNodes);
+    }
+
+    public Collection<SegmentNode> getAddedNodes() {
+        return Collections.unmodifiableCollection(addedNodes);
+    }
+
+    public Collection<Segment> getRemovedSegments() {
+        return Collections.unmodifiableCollection(removedSegments);
+    }
+
+    public Collection<Segment> getAddedSegments() {
+        return Collections.unmodifiableCollection(addedSegments);
+    }
+
+    public Collection<Restriction> getRemovedRestrictions() {
+        return Collections.unmodifiableCollection(removedRestrictions);
+    }
+
+    public Collection<Restriction> getAddedRestrictions() {
+        return Collections.unmodifiableCollection(addedRestrictions);
+    }
+
+    /** returns true iff nothing has been removed or added */
+    public boolean isEmpty() {
+        return removedNodes.isEmpty() && addedNodes.isEmpty()
+                && removedSegments.isEmpty() && addedSegments.isEmpty()
+                && removedRestrictions.isEmpty() && addedRestrictions.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "-" + removedNodes.size() + "/+" + addedNodes.size() + " nodes, "
+                + "-" + removedSegments.size() + "/+" + addedSegments.size() + " segments, "
+                + "-" + removedRestrictions.size() + "/+" + addedRestrictions.size() + " restrictions";
+    }
+}
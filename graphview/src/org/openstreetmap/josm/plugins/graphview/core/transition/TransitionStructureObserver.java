@@ -12,4 +12,15 @@ public interface TransitionStructureObserver {
      * @param transitionStructure  observed transition structure that has changed; != null
      */
     void update(TransitionStructure transitionStructure);
+
+    /**
+     * informs this observer about changes of some elements of an observed transition structure.
+     * Observers that cannot use this information are informed using {@link #update(TransitionStructure)}.
+     *
+     * @param transitionStructure  observed transition structure that has changed; != null
+     * @param change               elements that have been removed and added; != null
+     */
+    default void update(TransitionStructure transitionStructure, TransitionStructureChange change) {
+        update(transitionStructure);
+    }
 }
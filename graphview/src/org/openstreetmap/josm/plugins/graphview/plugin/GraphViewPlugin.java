@@ -78,6 +78,10 @@ public class GraphViewPlugin extends Plugin implements LayerChangeListener, Obse
     private JOSMTransitionStructure transitionStructure;
     private GraphViewLayer graphViewLayer;
 
+    /** last ruleset that has been read, and the source it has been read from */
+    private AccessRuleset accessRuleset;
+    private Object accessRulesetSource;
+
     /** creates the plugin */
     public GraphViewPlugin(PluginInformation info) {
         super(info);
@@ -175,11 +179,13 @@ public class GraphViewPlugin extends Plugin implements LayerChangeListener, Obse
 
     /**
      * @return ruleset read from a source as specified by preferences, null if the preferences
-     *         don't specify a ruleset source
+     *         don't specify a ruleset source. The ruleset is only read again if the source has changed,
+     *         so cached access evaluation results for the ruleset can be reused.
      */
     private AccessRuleset getAccessRuleset()
     throws AccessRulesetSyntaxException, IOException, FileNotFoundException {
 
+        Object rulesetSource;
         InputStream rulesetInputStream;
 
         if (preferences.getUseInternalRulesets()) {
@@ -190,6 +196,11 @@ public class GraphViewPlugin extends Plugin implements LayerChangeListener, Obse
                 return null;
             }
 
+            rulesetSource = ruleset;
+            if (rulesetSource.equals(accessRulesetSource)) {
+                return accessRuleset;
+            }
+
             ClassLoader classLoader = this.getClass().getClassLoader();
             URL rulesetURL = classLoader.getResource(ruleset.getResourceName());
 
@@ -206,10 +217,22 @@ public class GraphViewPlugin extends Plugin implements LayerChangeListener, Obse
                 return null;
             }
 
+            rulesetSource = rulesetFile.getAbsolutePath() + "@" + rulesetFile.lastModified();
+            if (rulesetSource.equals(accessRulesetSource)) {
+                return accessRuleset;
+            }
+
             rulesetInputStream = new FileInputStream(rulesetFile);
         }
 
-        return AccessRulesetReader.readAccessRuleset(rulesetInputStream);
+        try {
+            accessRuleset = AccessRulesetReader.readAccessRuleset(rulesetInputStream);
+            accessRulesetSource = rulesetSource;
+        } finally {
+            rulesetInputStream.close();
+        }
+
+        return accessRuleset;
     }
 
     @Override
@@ -235,14 +258,23 @@ public class GraphViewPlugin extends Plugin implements LayerChangeListener, Obse
     public void layerRemoving(LayerRemoveEvent e) {
         if (e.getRemovedLayer() == graphViewLayer) {
             graphViewLayer = null;
+            disposeTransitionStructure();
         } else if (e.getRemovedLayer() == MainApplication.getLayerManager().getEditLayer()) { //data layer removed
             if (graphViewLayer != null) {
                 MainApplication.getLayerManager().removeLayer(graphViewLayer);
                 graphViewLayer = null;
+                disposeTransitionStructure();
             }
         }
     }
 
+    private void disposeTransitionStructure() {
+        if (transitionStructure != null) {
+            transitionStructure.dispose();
+            transitionStructure = null;
+        }
+    }
+
     @Override
     public void layerOrderChanged(LayerOrderChangeEvent e) {
         //do nothing
@@ -1,18 +1,29 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.graphview.plugin.data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.data.osm.event.DatasetEventManager;
+import org.openstreetmap.josm.data.osm.event.DatasetEventManager.FireMode;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.plugins.graphview.core.data.DataSource;
 import org.openstreetmap.josm.plugins.graphview.core.data.DataSourceObserver;
@@ -20,11 +31,14 @@ import org.openstreetmap.josm.plugins.graphview.core.data.MapBasedTagGroup;
 import org.openstreetmap.josm.plugins.graphview.core.data.TagGroup;
 
 /**
- * DataSource that gets data from JOSM;
- * this DataSource type does not send updates!
+ * DataSource that gets data from JOSM.
+ * While it has observers, it informs them about the nodes, ways and relations
+ * that have changed in the edit data set.
  */
 
-public class JOSMDataSource implements DataSource<Node, Way, Relation, RelationMember> {
+public class JOSMDataSource implements DataSource<Node, Way, Relation, RelationMember>, DataSetListenerAdapter.Listener {
+
+    private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
 
     @Override
     public double getLat(Node node) {
@@ -61,6 +75,26 @@ public class JOSMDataSource implements DataSource<Node, Way, Relation, RelationM
         return new FilteredOsmPrimitiveIterable<>(MainApplication.getLayerManager().getEditDataSet().getWays());
     }
 
+    @Override
+    public boolean containsW(Way way) {
+        return !way.isDeleted() && !way.isIncomplete()
+                && way.getDataSet() == MainApplication.getLayerManager().getEditDataSet();
+    }
+
+    @Override
+    public boolean containsR(Relation relation) {
+        if (relation.isDeleted() || relation.isIncomplete()
+                || relation.getDataSet() != MainApplication.getLayerManager().getEditDataSet()) {
+            return false;
+        }
+        for (RelationMember member : relation.getMembers()) {
+            if (member.getMember() == null || member.getMember().isDeleted() || member.getMember().isIncomplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public TagGroup getTagsN(Node node) {
         return getTags(node);
@@ -230,12 +264,65 @@ public class JOSMDataSource implements DataSource<Node, Way, Relation, RelationM
 
     @Override
     public void addObserver(DataSourceObserver observer) {
+        if (observers.isEmpty()) {
+            DatasetEventManager.getInstance().addDatasetListener(datasetAdapter, FireMode.IN_EDT_CONSOLIDATED);
+        }
         observers.add(observer);
     }
 
     @Override
     public void deleteObserver(DataSourceObserver observer) {
-        observers.remove(observer);
+        if (observers.remove(observer) && observers.isEmpty()) {
+            DatasetEventManager.getInstance().removeDatasetListener(datasetAdapter);
+        }
+    }
+
+    @Override
+    public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+
+        DataSet editDataSet = MainApplication.getLayerManager().getEditDataSet();
+        if (editDataSet == null || event.getDataset() != editDataSet) {
+            return;
+        }
+
+        Collection<AbstractDatasetChangedEvent> events;
+        if (event instanceof DataChangedEvent) {
+            events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                //the changes are unknown (too many changes or a new edit data set), everything has to be updated
+                for (DataSourceObserver observer : new ArrayList<>(observers)) {
+                    observer.update(this);
+                }
+                return;
+            }
+        } else {
+            events = Collections.singletonList(event);
+        }
+
+        Set<Node> changedNodes = new LinkedHashSet<>();
+        Set<Way> changedWays = new LinkedHashSet<>();
+        Set<Relation> changedRelations = new LinkedHashSet<>();
+
+        for (AbstractDatasetChangedEvent e : events) {
+            if (e.getType() == DatasetEventType.CHANGESET_ID_CHANGED) {
+                continue;
+            }
+            for (OsmPrimitive primitive : e.getPrimitives()) {
+                if (primitive instanceof Node) {
+                    changedNodes.add((Node) primitive);
+                } else if (primitive instanceof Way) {
+                    changedWays.add((Way) primitive);
+                } else if (primitive instanceof Relation) {
+                    changedRelations.add((Relation) primitive);
+                }
+            }
+        }
+
+        if (!changedNodes.isEmpty() || !changedWays.isEmpty() || !changedRelations.isEmpty()) {
+            for (DataSourceObserver observer : new ArrayList<>(observers)) {
+                observer.update(this, changedNodes, changedWays, changedRelations);
+            }
+        }
     }
 
 }
@@ -33,4 +33,9 @@ public class JOSMTransitionStructure extends GenericTransitionStructure<Node, Wa
         super.update(DATA_SOURCE);
     }
 
+    /** stops updating this transition structure when the JOSM data changes */
+    public void dispose() {
+        DATA_SOURCE.deleteObserver(this);
+    }
+
 }
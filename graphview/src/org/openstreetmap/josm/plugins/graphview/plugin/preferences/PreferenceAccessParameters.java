@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.openstreetmap.josm.plugins.graphview.core.access.AccessParameters;
 import org.openstreetmap.josm.plugins.graphview.core.access.AccessType;
@@ -103,4 +104,24 @@ public class PreferenceAccessParameters implements AccessParameters {
 
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof PreferenceAccessParameters)) {
+            return false;
+        } else {
+            PreferenceAccessParameters otherParameters = (PreferenceAccessParameters) obj;
+            return Objects.equals(accessClass, otherParameters.accessClass)
+                    && accessTypeUsableMap.equals(otherParameters.accessTypeUsableMap)
+                    && vehiclePropertyStrings.equals(otherParameters.vehiclePropertyStrings)
+                    && vehiclePropertyValues.equals(otherParameters.vehiclePropertyValues);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accessClass, accessTypeUsableMap, vehiclePropertyValues);
+    }
+
 }
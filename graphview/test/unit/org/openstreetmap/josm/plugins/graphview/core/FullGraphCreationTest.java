@@ -22,6 +22,7 @@ import org.openstreetmap.josm.plugins.graphview.core.access.AccessParameters;
 import org.openstreetmap.josm.plugins.graphview.core.access.AccessRuleset;
 import org.openstreetmap.josm.plugins.graphview.core.access.AccessType;
 import org.openstreetmap.josm.plugins.graphview.core.access.Implication;
+import org.openstreetmap.josm.plugins.graphview.core.data.DataSourceObserver;
 import org.openstreetmap.josm.plugins.graphview.core.data.Tag;
 import org.openstreetmap.josm.plugins.graphview.core.graph.TSBasedWayGraph;
 import org.openstreetmap.josm.plugins.graphview.core.graph.WayGraph;
@@ -158,6 +159,75 @@ class FullGraphCreationTest {
 
     }
 
+    @Test
+    void testIncrementalUpdate() {
+
+        TestDataSource ds = new TestDataSource();
+
+        TestNode nodeN = new TestNode(2, 1);
+        TestNode nodeW = new TestNode(1, 0);
+        TestNode nodeS = new TestNode(0, 1);
+        TestNode nodeC = new TestNode(1, 1);
+
+        ds.nodes.addAll(Arrays.asList(nodeN, nodeW, nodeS, nodeC));
+
+        TestWay wayNC = new TestWay();
+        wayNC.tags.put("highway", "test");
+        wayNC.nodes.addAll(Arrays.asList(nodeN, nodeC));
+        TestWay wayCS = new TestWay();
+        wayCS.tags.put("highway", "test");
+        wayCS.nodes.addAll(Arrays.asList(nodeC, nodeS));
+        TestWay wayCW = new TestWay();
+        wayCW.tags.put("highway", "test");
+        wayCW.nodes.addAll(Arrays.asList(nodeC, nodeW));
+
+        ds.ways.add(wayNC);
+        ds.ways.add(wayCS);
+        ds.ways.add(wayCW);
+
+        TransitionStructure ts = createTestTransitionStructure(ds);
+        DataSourceObserver observer = (DataSourceObserver) ts;
+        WayGraph graph = new TSBasedWayGraph(ts);
+
+        assertSame(12, graph.getNodes().size());
+        assertSame(24, graph.getEdges().size());
+
+        /* add a restriction: no left turn from S to W */
+
+        TestRelation relation = createTurnRestrictionRelation(wayCS, nodeC, wayCW, "no_left_turn");
+        ds.relations.add(relation);
+        observer.update(ds, Collections.emptySet(), Collections.emptySet(), Collections.singleton(relation));
+
+        assertSame(4, size(ts.getNodes()));
+        assertSame(6, size(ts.getSegments()));
+        assertSame(1, size(ts.getRestrictions()));
+        assertSame(12, graph.getNodes().size());
+        assertSame(23, graph.getEdges().size());
+
+        /* make the restricted way a oneway from W to C, the restriction is removed as well */
+
+        wayCW.tags.put("oneway", "-1");
+        observer.update(ds, Collections.emptySet(), Collections.singleton(wayCW), Collections.emptySet());
+
+        assertSame(4, size(ts.getNodes()));
+        assertSame(5, size(ts.getSegments()));
+        assertSame(0, size(ts.getRestrictions()));
+        assertSame(10, graph.getNodes().size());
+        assertSame(17, graph.getEdges().size());
+
+        /* remove the way, the junction node becomes part of a connector */
+
+        ds.ways.remove(wayCW);
+        observer.update(ds, Collections.emptySet(), Collections.singleton(wayCW), Collections.emptySet());
+
+        assertSame(3, size(ts.getNodes()));
+        assertSame(4, size(ts.getSegments()));
+        assertSame(0, size(ts.getRestrictions()));
+        assertSame(4, graph.getNodes().size());
+        assertSame(6, graph.getEdges().size());
+
+    }
+
     private TestRelation createTurnRestrictionRelation(
             TestWay from, TestNode via, TestWay to, String restriction) {
         TestRelation resultRelation = new TestRelation();
@@ -115,6 +115,16 @@ implements DataSource<TestDataSource.TestNode, TestDataSource.TestWay, TestDataS
         return relations;
     }
 
+    @Override
+    public boolean containsW(TestWay way) {
+        return ways.contains(way);
+    }
+
+    @Override
+    public boolean containsR(TestRelation relation) {
+        return relations.contains(relation);
+    }
+
     @Override
     public TagGroup getTagsN(TestNode node) {
         return new MapBasedTagGroup(node.tags);
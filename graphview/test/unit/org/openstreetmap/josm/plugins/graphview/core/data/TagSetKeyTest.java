@@ -0,0 +1,42 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.graphview.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TagSetKeyTest {
+
+    @Test
+    void testEqualsIgnoresOrder() {
+        Map<String, String> mapA = new LinkedHashMap<>();
+        mapA.put("highway", "residential");
+        mapA.put("oneway", "yes");
+
+        Map<String, String> mapB = new LinkedHashMap<>();
+        mapB.put("oneway", "yes");
+        mapB.put("highway", "residential");
+
+        TagSetKey keyA = new TagSetKey(new MapBasedTagGroup(mapA));
+        TagSetKey keyB = new TagSetKey(new MapBasedTagGroup(mapB));
+
+        assertEquals(keyA, keyB);
+        assertEquals(keyA.hashCode(), keyB.hashCode());
+    }
+
+    @Test
+    void testDifferentTags() {
+        TagSetKey keyA = new TagSetKey(new MapBasedTagGroup(new Tag("highway", "residential")));
+        TagSetKey keyB = new TagSetKey(new MapBasedTagGroup(new Tag("highway", "service")));
+        TagSetKey keyC = new TagSetKey(new MapBasedTagGroup(new Tag("highway", "residential"), new Tag("access", "no")));
+
+        assertNotEquals(keyA, keyB);
+        assertNotEquals(keyA, keyC);
+        assertEquals(keyA, new TagSetKey(new MapBasedTagGroup(new Tag("highway", "residential"))));
+    }
+
+}
@@ -0,0 +1,166 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.JunctionChecker.junctionchecking;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import org.openstreetmap.josm.plugins.JunctionChecker.datastructure.Channel;
+
+/**
+ * Nummeriert eine Menge von Channels fortlaufend ab 0, damit Teilgraphen als BitSet dargestellt werden können.
+ * Vorgänger und Nachfolger werden als Indizes gespeichert, Nachbarn außerhalb der Menge werden nur vermerkt.
+ * Der Index verändert die Channels nicht und kann deshalb von mehreren Threads gleichzeitig gelesen werden.
+ */
+final class ChannelIndex {
+
+    private final Channel[] channels;
+    private final HashMap<Channel, Integer> indices;
+    private final int[][] preds;
+    private final int[][] succs;
+    private final boolean[] outerPred;
+    private final boolean[] outerSucc;
+
+    ChannelIndex(Collection<Channel> channels) {
+        this.channels = new LinkedHashSet<>(channels).toArray(new Channel[0]);
+        this.indices = new HashMap<>(this.channels.length * 2);
+        for (int i = 0; i < this.channels.length; i++) {
+            indices.put(this.channels[i], i);
+        }
+        preds = new int[this.channels.length][];
+        succs = new int[this.channels.length][];
+        outerPred = new boolean[this.channels.length];
+        outerSucc = new boolean[this.channels.length];
+        for (int i = 0; i < this.channels.length; i++) {
+            Channel channel = this.channels[i];
+            int[] p = new int[channel.getPredChannels().size()];
+            int k = 0;
+            for (int j = 0; j < channel.getPredChannels().size(); j++) {
+                int index = indexOf(channel.getPredChannels().get(j));
+                if (index < 0) {
+                    outerPred[i] = true;
+                } else {
+                    p[k++] = index;
+                }
+            }
+            preds[i] = k == p.length ? p : Arrays.copyOf(p, k);
+            int[] s = new int[channel.getLeadsTo().size()];
+            k = 0;
+            for (int j = 0; j < channel.getLeadsTo().size(); j++) {
+                int index = indexOf(channel.getLeadsTo().get(j).getToChannel());
+                if (index < 0) {
+                    outerSucc[i] = true;
+                } else {
+                    s[k++] = index;
+                }
+            }
+            succs[i] = k == s.length ? s : Arrays.copyOf(s, k);
+        }
+    }
+
+    /**
+     * gibt die Anzahl der Channels zurück
+     */
+    int size() {
+        return channels.length;
+    }
+
+    /**
+     * gibt den Index des Channels zurück, -1 wenn er nicht enthalten ist
+     */
+    int indexOf(Channel channel) {
+        Integer index = indices.get(channel);
+        return index == null ? -1 : index;
+    }
+
+    Channel get(int index) {
+        return channels[index];
+    }
+
+    /**
+     * Indizes der Vorgänger innerhalb der Menge, mehrfach vorhandene LeadsTo werden mehrfach gezählt
+     */
+    int[] getPreds(int index) {
+        return preds[index];
+    }
+
+    /**
+     * Indizes der Nachfolger innerhalb der Menge
+     */
+    int[] getSuccs(int index) {
+        return succs[index];
+    }
+
+    /**
+     * hat der Channel einen Vorgänger außerhalb der Menge?
+     */
+    boolean hasOuterPred(int index) {
+        return outerPred[index];
+    }
+
+    /**
+     * hat der Channel einen Nachfolger außerhalb der Menge?
+     */
+    boolean hasOuterSucc(int index) {
+        return outerSucc[index];
+    }
+
+    /**
+     * setzt die Bits der enthaltenen Channels, andere Channels werden ignoriert
+     */
+    void addAll(Collection<Channel> channels, BitSet bits) {
+        for (Channel channel : channels) {
+            int index = indexOf(channel);
+            if (index >= 0) {
+                bits.set(index);
+            }
+        }
+    }
+
+    HashSet<Channel> toChannels(BitSet bits) {
+        HashSet<Channel> result = new HashSet<>(bits.cardinality() * 2);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.add(channels[i]);
+        }
+        return result;
+    }
+
+    /**
+     * berechnet die schwach zusammenhängenden Komponenten der Menge
+     * @return für jeden Channel die Nummer seiner Komponente, die Komponenten sind nach ihrem ersten Channel nummeriert
+     */
+    int[] components() {
+        int[] component = new int[channels.length];
+        Arrays.fill(component, -1);
+        int[] stack = new int[channels.length];
+        int count = 0;
+        for (int start = 0; start < channels.length; start++) {
+            if (component[start] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = start;
+            component[start] = count;
+            while (top > 0) {
+                int c = stack[--top];
+                for (int d : preds[c]) {
+                    if (component[d] < 0) {
+                        component[d] = count;
+                        stack[top++] = d;
+                    }
+                }
+                for (int d : succs[c]) {
+                    if (component[d] < 0) {
+                        component[d] = count;
+                        stack[top++] = d;
+                    }
+                }
+            }
+            count++;
+        }
+        return component;
+    }
+}
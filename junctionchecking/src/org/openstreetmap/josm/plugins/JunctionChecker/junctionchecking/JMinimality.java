@@ -4,10 +4,13 @@ package org.openstreetmap.josm.plugins.JunctionChecker.junctionchecking;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -23,19 +26,22 @@ public class JMinimality {
     private boolean CheckMinimal = true;
     private final ArrayList<Channel> E;
     private final int[][] Grid;
-    private final ArrayList<Channel> OrEn;
-    private final ArrayList<Channel> OrEx;
+    private final boolean[] OrEn; //ist E[i] ein Eingang des ursprünglichen Subgraphen?
+    private final boolean[] OrEx; //ist E[i] ein Ausgang des ursprünglichen Subgraphen?
     private final int n;
     private final List<List<Object>> L = new ArrayList<>(); //The list of columns to be sorted
-    private final HashSet<Channel> subgraph = new HashSet<>(); //The candidate subgraph to be tested
-    private ProgressMonitor pm;
+    private final ChannelIndex index; //Channels, die in einem Kandidaten vorkommen können
+    private final BitSet subgraph = new BitSet(); //The candidate subgraph to be tested, reused for all candidates
+    private final BitSet[] reachable; //erreichbare Channels je Index, werden bei Bedarf erzeugt
+    private final BitSet[][] paths; //Pfade zwischen E[y] und E[x] (inkl. E[y]), werden bei Bedarf erzeugt
+    private final int[] entries; //Eingänge des Kandidaten
+    private final int[] exits; //Ausgänge des Kandidaten
+    private final int[] ennr; //Anzahl der Eingänge, von denen ein Ausgang erreichbar ist
+    private final ProgressMonitor pm;
     private final boolean pmenabled;
-    private final ArrayList<HashSet<Channel>> junctions = new ArrayList<>();
+    private final ArrayList<BitSet> junctions = new ArrayList<>();
+    private final HashSet<BitSet> junctionSet = new HashSet<>();
     private final boolean searchFirstJunction;
-    private final ArrayList<Channel> subJunction = new ArrayList<>();
-    private final JPrepare jprepare;
-    private boolean Check = false;
-    private Iterator<int[]> it;
 
     public JMinimality(int[][] Grid, int n,
             ArrayList<Channel> E,
@@ -43,15 +49,7 @@ public class JMinimality {
             ArrayList<Channel> exits,
             ChannelDiGraph channeldigraph,
             boolean junctionsearch) {
-
-        this.E = E;
-        this.n = n;
-        this.Grid = Grid;
-        this.OrEn = entries;
-        this.OrEx = exits;
-        this.pmenabled = false;
-        this.searchFirstJunction = junctionsearch;
-        this.jprepare = new JPrepare(channeldigraph);
+        this(Grid, n, E, entries, exits, channeldigraph, null, junctionsearch);
     }
 
     public JMinimality(int[][] Grid, int n,
@@ -65,13 +63,45 @@ public class JMinimality {
         this.E = E;
         this.n = n;
         this.Grid = Grid;
-        this.OrEn = entries;
-        this.OrEx = exits;
+        this.OrEn = contained(E, entries);
+        this.OrEx = contained(E, exits);
         this.pm = pm;
-        this.pmenabled = true;
+        this.pmenabled = pm != null;
         this.searchFirstJunction = junctionsearch;
-        this.jprepare = new JPrepare(channeldigraph);
-        //this.jCheck= new JCheck();
+        this.index = new ChannelIndex(collectChannels(E));
+        this.reachable = new BitSet[index.size()];
+        this.paths = new BitSet[E.size()][];
+        this.entries = new int[n];
+        this.exits = new int[n];
+        this.ennr = new int[n];
+    }
+
+    private static boolean[] contained(ArrayList<Channel> E, ArrayList<Channel> channels) {
+        boolean[] result = new boolean[E.size()];
+        HashSet<Channel> set = new HashSet<>(channels);
+        for (int i = 0; i < E.size(); i++) {
+            result[i] = set.contains(E.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * sammelt alle Channels, die auf einem Pfad zwischen zwei Channels aus E liegen.
+     * Nur diese können Teil eines Kandidaten sein.
+     */
+    private static LinkedHashSet<Channel> collectChannels(ArrayList<Channel> E) {
+        LinkedHashSet<Channel> channels = new LinkedHashSet<>(E);
+        for (Channel channel : E) {
+            for (int j = 0; j < channel.getReachableNodes().size(); j++) {
+                Channel reachableNode = channel.getReachableNodeAt(j);
+                channels.add(reachableNode);
+                ArrayList<Channel> path = channel.getPathsAt(reachableNode);
+                if (path != null) {
+                    channels.addAll(path);
+                }
+            }
+        }
+        return channels;
     }
 
     public void GenerateSubcolumns() { //Generates all combinations of subcolumns in the grid
@@ -175,8 +205,7 @@ public class JMinimality {
                             } else {
                                 CandidateK.add(new int[]{y_j, x_i});
                             } //save entry/exit tuple
-                            if (!smallerjunction && (!OrEn.contains(E.get(v[y][0]))
-                                    && !OrEx.contains(E.get(x_i)))) { // Tests, whether y or x is not an original entry/exit
+                            if (!smallerjunction && !OrEn[v[y][0]] && !OrEx[x_i]) { // Tests, whether y or x is not an original entry/exit
                                 smallerjunction = true; //Then k identifies a different junction than the original one
                             }
                             //test = test+" ("+y_j+", "+x_i+", "+v[y][1]+")";
@@ -207,7 +236,7 @@ public class JMinimality {
                 pm.setTicks(progressmonitorcounter);
             }
         }
-        while (l.hasNext() && CheckMinimal);
+        while (l.hasNext() && CheckMinimal && !Thread.currentThread().isInterrupted());
         return CheckMinimal;
     }
 
@@ -215,63 +244,168 @@ public class JMinimality {
      * gibt true zurück, wenn Kandidat eine Kreuzung ist, aber nicht, wenn junctionsearch auf true gesetzt ist
      */
     public boolean CheckSmallJunction(ArrayList<int[]> CandidateK) {
-        Check = false;
         subgraph.clear(); //Zu konstruierender Subgraph
-        it = CandidateK.iterator();
         //Reconstruct small Junction from paths
-        while (it.hasNext()) {
-            int[]point = it.next();
-            for (int j = 0; j < E.get(point[0]).getReachableNodes().size(); j++) {
-                if (E.get(point[0]).getReachableNodeAt(j).equals(E.get(point[1]))) {
-                    subgraph.addAll(E.get(point[0]).getPathsAt(E.get(point[0]).getReachableNodeAt(j)));
-                    subgraph.add(E.get(point[0]));
-                }
+        for (int[] point : CandidateK) {
+            subgraph.or(getPath(point[0], point[1]));
+        }
+        //bereits gefundene Kreuzungen müssen nicht noch einmal geprüft werden
+        if (!searchFirstJunction && junctionSet.contains(subgraph)) {
+            return false;
+        }
+        boolean Check = isJunction();
+        if (Check && !searchFirstJunction) {
+            //soll mehr als ein Kandidat gesucht werden? Dann Kandidaten speichern und Check wieder auf false stellen,
+            //damit die Hauptschleife weitergeht
+            BitSet junction = (BitSet) subgraph.clone();
+            junctionSet.add(junction);
+            junctions.add(junction);
+            Check = false;
+        }
+        return Check;
+    }
+
+    /**
+     * Pfade von E[y] nach E[x] einschließlich E[y], leer wenn E[x] nicht erreichbar ist
+     */
+    private BitSet getPath(int y, int x) {
+        if (paths[y] == null) {
+            paths[y] = new BitSet[E.size()];
+        }
+        BitSet path = paths[y][x];
+        if (path == null) {
+            path = new BitSet(index.size());
+            if (E.get(y).getReachableNodes().contains(E.get(x))) {
+                index.addAll(E.get(y).getPathsAt(E.get(x)), path);
+                path.set(index.indexOf(E.get(y)));
             }
+            paths[y][x] = path;
         }
-        jprepare.jPrepare(new ArrayList<>(subgraph));
-        JCheck jCheck = new JCheck();
-        Check = jCheck.jCheck(jprepare.getEntries(), jprepare.getExits(), n);
-        jprepare.resetSubgraph();
-        if (Check) {
-            subJunction.clear();
-            subJunction.addAll(subgraph);
-            //soll mehr als ein Kandidat gesucht werden? Dann Kandidaten speichern und Check wieder auf false stellen, damit die Hauptschleife weitergeht
-            if (!searchFirstJunction) {
-                boolean isin = false;
-                for (int i = 0; i < junctions.size(); i++) {
-                    //log.debug("Kreuzung " + i +" hat Channels: " + junctions.get(i).size() + " subgraph: " + subgraph.size());
-                    if (junctions.get(i).size() == subgraph.size()) {
-                        Iterator<Channel> it = subgraph.iterator();
-                        isin = true;
-                        while (it.hasNext()) {
-                            if (!junctions.get(i).contains(it.next())) {
-                                isin = false;
-                                //log.info("nicht drin");
-                            }
-                        }
+        return path;
+    }
+
+    private BitSet getReachable(int c) {
+        BitSet result = reachable[c];
+        if (result == null) {
+            result = new BitSet(index.size());
+            index.addAll(index.get(c).getReachableNodes(), result);
+            reachable[c] = result;
+        }
+        return result;
+    }
+
+    /**
+     * entspricht JPrepare und JCheck für den aktuellen Kandidaten, arbeitet aber nur auf dem BitSet und verändert die
+     * Channels nicht. Die Prüfung bricht ab, sobald mehr als n Eingänge oder Ausgänge gefunden werden.
+     */
+    private boolean isJunction() {
+        int entrycount = 0;
+        int exitcount = 0;
+        for (int c = subgraph.nextSetBit(0); c >= 0; c = subgraph.nextSetBit(c + 1)) {
+            boolean entry = index.hasOuterPred(c);
+            boolean exit = index.hasOuterSucc(c);
+            int degree = 0;
+            for (int p : index.getPreds(c)) {
+                if (subgraph.get(p)) {
+                    degree++;
+                } else {
+                    entry = true;
+                }
+            }
+            for (int s : index.getSuccs(c)) {
+                if (subgraph.get(s)) {
+                    degree++;
+                } else {
+                    exit = true;
+                }
+            }
+            if (entry || exit) {
+                //Rule 2: kein Channel darf Ein- und Ausgang sein, Rule 4: Ein- und Ausgänge haben mindestens Grad 2
+                if (entry && exit || degree < 2) {
+                    return false;
+                }
+                if (entry) {
+                    if (entrycount == n) {
+                        return false;
+                    }
+                    entries[entrycount++] = c;
+                } else {
+                    if (exitcount == n) {
+                        return false;
                     }
+                    exits[exitcount++] = c;
                 }
-                if (isin == false) {
-                    junctions.add(new HashSet<>(subgraph));
-                    //log.info("Kreuzungskandidat der Liste zugefügt" + junctions.size());
+            }
+        }
+        //Rule 1
+        if (entrycount != n || exitcount != n) {
+            return false;
+        }
+        //Rule 1: jeder Eingang erreicht mindestens n-1 Ausgänge und jeder Ausgang ist von mindestens n-1 Eingängen erreichbar
+        Arrays.fill(ennr, 0);
+        for (int i = 0; i < n; i++) {
+            BitSet reach = getReachable(entries[i]);
+            int exnr = 0;
+            for (int j = 0; j < n; j++) {
+                if (reach.get(exits[j])) {
+                    exnr++;
+                    ennr[j]++;
                 }
-                Check = false;
+            }
+            if (exnr < n - 1) {
+                return false;
             }
         }
-        return Check;
+        for (int j = 0; j < n; j++) {
+            if (ennr[j] < n - 1) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * enthält alle Channels des zuletzt durchlaufenden Kreuzungskandidaten (muß keine gültige Kreuzung sein)
      */
     public ArrayList<Channel> getSubJunctionCandidate() {
-        return new ArrayList<>(subgraph);
+        return new ArrayList<>(index.toChannels(subgraph));
     }
 
     /**
      * gibt alle gefundenen Kreuzungskandidaten zurück (ist leer, wenn junctionsearch auf true gesetzt wurde)
      */
     public ArrayList<HashSet<Channel>> getJunctionCandidates() {
-        return junctions;
+        ArrayList<HashSet<Channel>> result = new ArrayList<>(junctions.size());
+        for (BitSet junction : junctions) {
+            result.add(index.toChannels(junction));
+        }
+        return result;
+    }
+
+    /**
+     * gibt die gefundenen Kreuzungskandidaten zurück, die keinen anderen Kandidaten enthalten
+     * (eine Kreuzung darf keine weiteren Kreuzungen enthalten)
+     */
+    public ArrayList<HashSet<Channel>> getMinimalJunctionCandidates() {
+        ArrayList<HashSet<Channel>> result = new ArrayList<>();
+        BitSet difference = new BitSet(index.size());
+        for (BitSet junction : junctions) {
+            boolean minimal = true;
+            for (BitSet other : junctions) {
+                if (other != junction) {
+                    difference.clear();
+                    difference.or(other);
+                    difference.andNot(junction);
+                    if (difference.isEmpty()) {
+                        minimal = false;
+                        break;
+                    }
+                }
+            }
+            if (minimal) {
+                result.add(index.toChannels(junction));
+            }
+        }
+        return result;
     }
 }
@@ -1,12 +1,23 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.JunctionChecker.junctionchecking;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.plugins.JunctionChecker.datastructure.Channel;
 import org.openstreetmap.josm.plugins.JunctionChecker.datastructure.ChannelDiGraph;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * JunctionChecker startet das Überprüfen eines Subgraphen auf eine existierende
@@ -34,10 +45,9 @@ public class JunctionChecker {
     private JMinimality m;
     // Variable wird beim KreuzungsSuchen benutzt, sonst ist sie leer!
     private ArrayList<HashSet<Channel>> junctions = new ArrayList<>();
-    //dient zur Zeitmessung
-    private long startIterate = 0;
-    private long stopIterate = 0;
-    private long startGenerate = 0;
+    //dient zur Zeitmessung, bei paralleler Suche wird die Zeit aller Komponenten addiert
+    private final AtomicLong generateTime = new AtomicLong();
+    private final AtomicLong iterateTime = new AtomicLong();
 
     public JunctionChecker(ChannelDiGraph channeldigraph, int n) {
         this.jPrepare = new JPrepare(channeldigraph);
@@ -78,25 +88,20 @@ public class JunctionChecker {
     /**
      * Diese Methode wird aufgerufen, wenn nach Kreuzungen in einer Teilmenge
      * gesucht werden soll
-     *
-     * @param firstjunction soll nur die erste mögliche Kreuzung ausgegeben werden oder alle
      */
     public void junctionSearch(ArrayList<Channel> subgraph, ProgressMonitor pm) {
-        jPrepare.jPrepare(subgraph);
-        entries = jPrepare.getEntries();
-        exits = jPrepare.getExits();
-        jProcess = new JProcess(subgraph, channeldigraph);
-        jProcess.jProcess(jPrepare.getEntries());
-        this.collectECandidates(subgraph);
-        this.ConstructGrid();
-        jPrepare.resetSubgraph();
-        m = new JMinimality(Grid, n, E, new ArrayList<Channel>(), new ArrayList<Channel>(), channeldigraph, pm, false);
-        m.GenerateSubcolumns();
-        Check = m.IterateThroughKn();
-        junctions = checkJunctionCandidates(m.getJunctionCandidates());
+        search(subgraph, pm);
     }
 
     public void junctionSearch(ArrayList<Channel> subgraph) {
+        search(subgraph, null);
+    }
+
+    /**
+     * Sucht Kreuzungen in der Teilmenge. Eine Kreuzung ist immer zusammenhängend, deshalb werden die schwach
+     * zusammenhängenden Komponenten der Teilmenge einzeln und parallel durchsucht.
+     */
+    private void search(ArrayList<Channel> subgraph, ProgressMonitor pm) {
         jPrepare.jPrepare(subgraph);
         entries = jPrepare.getEntries();
         exits = jPrepare.getExits();
@@ -105,30 +110,107 @@ public class JunctionChecker {
         this.collectECandidates(subgraph);
         this.ConstructGrid();
         jPrepare.resetSubgraph();
-        m = new JMinimality(Grid, n, E, new ArrayList<Channel>(), new ArrayList<Channel>(), channeldigraph, false);
-        startGenerate = System.currentTimeMillis();
-        m.GenerateSubcolumns();
-        startIterate = System.currentTimeMillis();
-        Check = m.IterateThroughKn();
-        stopIterate = System.currentTimeMillis();
-        junctions = checkJunctionCandidates(m.getJunctionCandidates());
+        generateTime.set(0);
+        iterateTime.set(0);
+        // Bei der Suche bricht JMinimality nicht ab, wenn ein Kandidat gefunden wurde
+        Check = true;
+        junctions = new ArrayList<>();
+
+        List<int[]> components = collectComponents(subgraph);
+        if (pm != null) {
+            pm.setTicksCount(components.size());
+            pm.setCustomText(tr("search junctions in {0} independent parts of the subset", components.size()));
+        }
+        int threads = Math.min(components.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (int[] component : components) {
+                if (pm != null && pm.isCanceled()) {
+                    return;
+                }
+                junctions.addAll(searchComponent(component));
+                if (pm != null) {
+                    pm.worked(1);
+                }
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("junctionchecker-search-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Future<ArrayList<HashSet<Channel>>>> results = new ArrayList<>(components.size());
+            for (int[] component : components) {
+                results.add(executor.submit(() -> searchComponent(component)));
+            }
+            for (Future<ArrayList<HashSet<Channel>>> result : results) {
+                if (pm != null && pm.isCanceled()) {
+                    return;
+                }
+                junctions.addAll(result.get());
+                if (pm != null) {
+                    pm.worked(1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Logging.warn(e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new JosmRuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
-     * Überprüft die Kreuzunskandidaten, die JMinimality gefunden hat, welche davon eine Kreuzung darstellen (eine Kreuzung
-     * darf keine weiteren Kreuzungen enthalten)
+     * teilt die Kreuzungskandidaten E nach den schwach zusammenhängenden Komponenten der Teilmenge auf.
+     * Komponenten mit weniger als n Kandidaten können keine n-Kreuzung enthalten und werden weggelassen.
+     * @return für jede Komponente die Positionen ihrer Kandidaten in E
      */
-    private ArrayList<HashSet<Channel>> checkJunctionCandidates(ArrayList<HashSet<Channel>> junctioncandidates) {
-        @SuppressWarnings("unchecked")
-        ArrayList<HashSet<Channel>> junctions = (ArrayList<HashSet<Channel>>) junctioncandidates.clone();
-        for (int i = 0; i < junctioncandidates.size(); i++) {
-            for (int j = 0; j < junctioncandidates.size(); j++) {
-                if (junctioncandidates.get(i).containsAll(junctioncandidates.get(j))) {
-                    junctions.remove(junctioncandidates.get(i));
-                }
+    private List<int[]> collectComponents(ArrayList<Channel> subgraph) {
+        ChannelIndex index = new ChannelIndex(subgraph);
+        int[] component = index.components();
+        int[] count = new int[index.size()];
+        for (Channel channel : E) {
+            count[component[index.indexOf(channel)]]++;
+        }
+        int[][] members = new int[index.size()][];
+        int[] size = new int[index.size()];
+        List<int[]> components = new ArrayList<>();
+        for (int i = 0; i < E.size(); i++) {
+            int c = component[index.indexOf(E.get(i))];
+            if (count[c] < n) {
+                continue;
             }
+            if (members[c] == null) {
+                members[c] = new int[count[c]];
+                components.add(members[c]);
+            }
+            members[c][size[c]++] = i;
         }
-        return junctions;
+        return components;
+    }
+
+    /**
+     * sucht die Kreuzungen einer Komponente, ohne die Channels zu verändern
+     * @param component die Positionen der Kandidaten der Komponente in E
+     */
+    private ArrayList<HashSet<Channel>> searchComponent(int[] component) {
+        ArrayList<Channel> componentE = new ArrayList<>(component.length);
+        int[][] componentGrid = new int[component.length][component.length];
+        for (int y = 0; y < component.length; y++) {
+            componentE.add(E.get(component[y]));
+            for (int x = 0; x < component.length; x++) {
+                componentGrid[y][x] = Grid[component[y]][component[x]];
+            }
+        }
+        JMinimality minimality = new JMinimality(componentGrid, n, componentE, new ArrayList<Channel>(),
+                new ArrayList<Channel>(), channeldigraph, false);
+        long start = System.currentTimeMillis();
+        minimality.GenerateSubcolumns();
+        long generated = System.currentTimeMillis();
+        minimality.IterateThroughKn();
+        generateTime.addAndGet(generated - start);
+        iterateTime.addAndGet(System.currentTimeMillis() - generated);
+        return minimality.getMinimalJunctionCandidates();
     }
 
     private void collectECandidates(ArrayList<Channel> subgraph) {
@@ -158,11 +240,11 @@ public class JunctionChecker {
     }
 
     public long getMeasuredIterateTime() {
-        return (stopIterate - startIterate);
+        return iterateTime.get();
     }
 
     public long getMeasuredGenerateTime() {
-        return (startIterate - startGenerate);
+        return generateTime.get();
     }
 
     public ArrayList<Channel> getSubgraph() {
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.plugins.o5m;
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
 import org.openstreetmap.josm.plugins.Plugin;
 import org.openstreetmap.josm.plugins.PluginInformation;
+import org.openstreetmap.josm.plugins.o5m.io.O5mExporter;
 import org.openstreetmap.josm.plugins.o5m.io.O5mImporter;
 
 /**
@@ -18,5 +19,7 @@ public class O5mPlugin extends Plugin {
         super(info);
         // Allow JOSM to import *.o5m files
         ExtensionFileFilter.addImporter(new O5mImporter());
+        // Allow JOSM to export *.o5m files
+        ExtensionFileFilter.addExporter(new O5mExporter());
     }
 }
@@ -0,0 +1,38 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.o5m.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.openstreetmap.josm.gui.io.importexport.OsmExporter;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * OSM Exporter for o5m format (*.o5m).
+ */
+public class O5mExporter extends OsmExporter {
+
+    /**
+     * Constructs a new {@code O5mExporter}.
+     */
+    public O5mExporter() {
+        super(O5mImporter.FILE_FILTER);
+    }
+
+    @Override
+    protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        try (
+            OutputStream out = Files.newOutputStream(file.toPath());
+            O5mWriter w = new O5mWriter(out);
+        ) {
+            layer.data.getReadLock().lock();
+            try {
+                w.writeLayer(layer);
+            } finally {
+                layer.data.getReadLock().unlock();
+            }
+        }
+    }
+}
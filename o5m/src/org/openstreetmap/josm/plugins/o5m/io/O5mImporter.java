@@ -24,10 +24,15 @@ public class O5mImporter extends OsmImporter {
      * File extension.
      */
     private static final String EXTENSION = "o5m";
+
+    /**
+     * File filter used in import/export dialogs.
+     */
+    static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(EXTENSION, EXTENSION,
+            tr("OSM Server Files o5m compressed") + " (*."+EXTENSION+")");
     
     public O5mImporter() {
-        super(new ExtensionFileFilter(EXTENSION, EXTENSION, 
-                tr("OSM Server Files o5m compressed") + " (*."+EXTENSION+")"));
+        super(FILE_FILTER);
     }
 
     @Override
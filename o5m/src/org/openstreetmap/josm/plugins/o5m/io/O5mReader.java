@@ -3,12 +3,12 @@ package org.openstreetmap.josm.plugins.o5m.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -79,18 +79,27 @@ public class O5mReader extends AbstractReader {
     private static final String[] REL_REF_TYPES = {"node", "way", "relation", "?"};
     private static final double FACTOR = 1d/1_000_000_000; // used with 100*<Val>*FACTOR 
 
-    private BufferedInputStream fis;
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
     private InputStream is;
 
-    // buffer for byte -> String conversions
-    private byte[] cnvBuffer; 
+    // large reusable buffer filled from the input stream
+    private final byte[] inBuf;
+    private int inBufPos;
+    private int inBufLimit;
 
+    // content of the current data set
     private byte[] ioBuf;
     private int ioBufPos;
-    // the o5m string table
-    private String[][] stringTable;
+    // the o5m string table, a preallocated ring of string pairs.
+    private final String[][] stringTable;
+    // users referenced by author pairs of the string table, to avoid a lookup for each back-reference
+    private final User[] userTable;
+    private final StringInterner interner;
     private String[] stringPair;
     private int currStringTablePos;
+    // tags of the current primitive, reused as primitives copy them
+    private final Map<String, String> tags;
     // a counter that must be maintained by all routines that read data from the stream
     private int bytesToRead;
     // total number of bytes read from stream
@@ -112,10 +121,14 @@ public class O5mReader extends AbstractReader {
      * A parser for the o5m format
      */
     O5mReader() {
-        this.cnvBuffer = new byte[4000]; // OSM data should not contain string pairs with length > 512
+        this.inBuf = new byte[INPUT_BUFFER_SIZE];
         this.ioBuf = new byte[8192];
         this.ioBufPos = 0;
+        this.stringTable = new String[2][STRING_TABLE_SIZE];
+        this.userTable = new User[STRING_TABLE_SIZE];
+        this.interner = new StringInterner();
         this.stringPair = new String[2];
+        this.tags = new HashMap<>();
         this.lastRef = new long[3];
         reset();
     }
@@ -126,11 +139,12 @@ public class O5mReader extends AbstractReader {
      * @throws ParsingCancelException if operation was canceled 
      */
     public void parse(InputStream source) throws ParsingCancelException {
-        this.fis = new BufferedInputStream(source);
-        is = fis;
+        this.is = source;
+        this.inBufPos = 0;
+        this.inBufLimit = 0;
 
         try {
-            int start = is.read();
+            int start = readByteFromStream();
             ++countBytes;
             if (start != RESET_FLAG) 
                 throw new IOException(tr("wrong header byte ") + Integer.toHexString(start));
@@ -149,9 +163,8 @@ public class O5mReader extends AbstractReader {
                 cancel = false;
                 throw new ParsingCancelException(tr("Reading was canceled at file offset {0}", countBytes));
             }
-            is = fis;
             long size = 0;
-            int fileType = is.read();
+            int fileType = readByteFromStream();
             ++countBytes;
             if (fileType >= 0 && fileType < 0xf0) {
                 bytesToRead = 0;
@@ -166,7 +179,7 @@ public class O5mReader extends AbstractReader {
                 case BBOX_DATASET:
                 case TIMESTAMP_DATASET:
                 case HEADER_DATASET:
-                    is = fillByteArray();
+                    fillByteArray();
                     break;                    
                 default: break;    
                 }
@@ -186,18 +199,50 @@ public class O5mReader extends AbstractReader {
         }
     }
 
-    private InputStream fillByteArray() throws IOException {
+    /**
+     * Refill the input buffer from the stream
+     * @return false if the end of the stream has been reached
+     * @throws IOException in case of I/O error
+     */
+    private boolean fillInputBuffer() throws IOException {
+        int n;
+        do {
+            n = is.read(inBuf, 0, inBuf.length);
+        } while (n == 0);
+        inBufPos = 0;
+        inBufLimit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    /**
+     * read a single byte from the input buffer
+     * @return the byte as unsigned value, or -1 at end of stream
+     * @throws IOException in case of I/O error
+     */
+    private int readByteFromStream() throws IOException {
+        if (inBufPos >= inBufLimit && !fillInputBuffer())
+            return EOF_FLAG;
+        return inBuf[inBufPos++] & 0xff;
+    }
+
+    /**
+     * copy the content of the current data set from the input buffer
+     * @throws IOException in case of I/O error
+     */
+    private void fillByteArray() throws IOException {
         if (bytesToRead > ioBuf.length) {
             ioBuf = new byte[bytesToRead + 100];
         }
-        int bytesRead = 0;
-        int neededBytes = bytesToRead;
-        while (neededBytes > 0) {
-            bytesRead += is.read(ioBuf, bytesRead, neededBytes);
-            neededBytes -= bytesRead;
+        int filled = 0;
+        while (filled < bytesToRead) {
+            if (inBufPos >= inBufLimit && !fillInputBuffer())
+                throw new EOFException(tr("Unexpected end of file at offset {0}", countBytes));
+            int n = Math.min(bytesToRead - filled, inBufLimit - inBufPos);
+            System.arraycopy(inBuf, inBufPos, ioBuf, filled, n);
+            inBufPos += n;
+            filled += n;
         }
         ioBufPos = 0;
-        return new ByteArrayInputStream(ioBuf, 0, bytesToRead);
     }
 
     /**
@@ -213,9 +258,17 @@ public class O5mReader extends AbstractReader {
      * @throws IOException in case of I/O error
      */
     private void skip(long bytes) throws IOException {
-        long toSkip = bytes;
+        long buffered = Math.min(bytes, inBufLimit - inBufPos);
+        inBufPos += (int) buffered;
+        long toSkip = bytes - buffered;
         while (toSkip > 0) {
-            toSkip -= is.skip(toSkip);
+            long skipped = is.skip(toSkip);
+            if (skipped <= 0) {
+                if (is.read() < 0)
+                    throw new EOFException(tr("Unexpected end of file at offset {0}", countBytes));
+                skipped = 1;
+            }
+            toSkip -= skipped;
         }
     }
 
@@ -374,22 +427,28 @@ public class O5mReader extends AbstractReader {
         }
     }
 
+    /**
+     * read the tags of the current primitive. The returned map is reused for the next primitive.
+     * @return the tags
+     */
     private Map<String, String> readTags() {
-        Map<String, String> keys = new HashMap<>();
+        tags.clear();
         while (bytesToRead > 0) {
             readStringPair();
-            keys.put(stringPair[0], stringPair[1]);
+            tags.put(stringPair[0], stringPair[1]);
         }
         assert bytesToRead == 0;
-        return keys;
+        return tags;
     }
 
     /**
      * Store a new string pair (length check must be performed by caller)
+     * @param user the user defined by the pair, if it is an author pair
      */
-    private void storeStringPair() {
+    private void storeStringPair(User user) {
         stringTable[0][currStringTablePos] = stringPair[0];
         stringTable[1][currStringTablePos] = stringPair[1];
+        userTable[currStringTablePos] = user;
         ++currStringTablePos;
         if (currStringTablePos >= STRING_TABLE_SIZE)
             currStringTablePos = 0;
@@ -399,13 +458,30 @@ public class O5mReader extends AbstractReader {
      * set stringPair to the values referenced by given string reference
      * No checking is performed.
      * @param ref valid values are 1 .. STRING_TABLE_SIZE
+     * @return the position of the pair in the string table
      */
-    private void setStringRefPair(int ref) {
+    private int setStringRefPair(int ref) {
         int pos = currStringTablePos - ref;
         if (pos < 0) 
             pos += STRING_TABLE_SIZE;
         stringPair[0] = stringTable[0][pos];
         stringPair[1] = stringTable[1][pos];
+        return pos;
+    }
+
+    /**
+     * read a zero terminated string from the data set buffer
+     * @return the string
+     */
+    private String readString() {
+        int start = ioBufPos;
+        int end = start;
+        while (ioBuf[end] != 0) {
+            end++;
+        }
+        ioBufPos = end + 1;
+        bytesToRead -= ioBufPos - start;
+        return interner.get(ioBuf, start, end - start);
     }
 
     /**
@@ -441,27 +517,20 @@ public class O5mReader extends AbstractReader {
                 ioBufPos++; // skip terminating zero from uid
                 --bytesToRead;
             }
-            int start = 0;
-            int buffPos = 0; 
-            stringPair[1] = null;
-            while (stringPair[1] == null) {
-                final int b = ioBuf[ioBufPos++];
-                --bytesToRead;
-                cnvBuffer[buffPos++] = (byte) b;
-
-                if (b == 0)
-                    stringPair[1] = new String(cnvBuffer, start, buffPos-1, StandardCharsets.UTF_8);
-            }
+            stringPair[1] = readString();
+            osmUser = uidNum == 0 ? null : User.createOsmUser(uidNum, stringPair[1]);
             long bytes = toReadStart - bytesToRead;
             if (bytes <= MAX_STRING_PAIR_SIZE)
-                storeStringPair();
-        } else 
-            setStringRefPair(stringRef);
-        if (stringPair[0] != null && !stringPair[0].isEmpty()) {
-            long uid = Long.parseLong(stringPair[0]);
-            osmUser = User.createOsmUser(uid, stringPair[1]);
-        } else 
-            osmUser = null;
+                storeStringPair(osmUser);
+        } else {
+            int pos = setStringRefPair(stringRef);
+            osmUser = userTable[pos];
+            if (osmUser == null && stringPair[0] != null && !stringPair[0].isEmpty()) {
+                // pair was stored as a tag or role, but is referenced as author
+                osmUser = User.createOsmUser(Long.parseLong(stringPair[0]), stringPair[1]);
+                userTable[pos] = osmUser;
+            }
+        }
     }
 
     /**
@@ -479,21 +548,10 @@ public class O5mReader extends AbstractReader {
             if (refType < 0 || refType > 2)
                 refType = 3;
             stringPair[0] = REL_REF_TYPES[refType];
-
-            int start = 0;
-            int buffPos = 0; 
-            stringPair[1] = null;
-            while (stringPair[1] == null) {
-                final int b = ioBuf[ioBufPos++];
-                --bytesToRead;
-                cnvBuffer[buffPos++] = (byte) b;
-
-                if (b == 0)
-                    stringPair[1] = new String(cnvBuffer, start, buffPos-1, StandardCharsets.UTF_8);
-            }
+            stringPair[1] = readString();
             long bytes = toReadStart - bytesToRead;
             if (bytes <= MAX_STRING_PAIR_SIZE)
-                storeStringPair();
+                storeStringPair(null);
         } else {
             setStringRefPair(stringRef);
             char c = stringPair[0].charAt(0);
@@ -514,23 +572,11 @@ public class O5mReader extends AbstractReader {
         int stringRef = readUnsignedNum32();
         if (stringRef == 0) {
             long toReadStart = bytesToRead;
-            int cnt = 0;
-            int buffPos = 0; 
-            int start = 0;
-            while (cnt < 2) {
-                final int b = ioBuf[ioBufPos++];
-                --bytesToRead;
-                cnvBuffer[buffPos++] = (byte) b;
-
-                if (b == 0) {
-                    stringPair[cnt] = new String(cnvBuffer, start, buffPos-start-1, StandardCharsets.UTF_8);
-                    ++cnt;
-                    start = buffPos;
-                }
-            }
+            stringPair[0] = readString();
+            stringPair[1] = readString();
             long bytes = toReadStart - bytesToRead;
             if (bytes <= MAX_STRING_PAIR_SIZE)
-                storeStringPair();
+                storeStringPair(null);
         } else 
             setStringRefPair(stringRef);
     }
@@ -541,7 +587,9 @@ public class O5mReader extends AbstractReader {
         lastRef[0] = 0; lastRef[1] = 0; lastRef[2] = 0;
         lastTs = 0; lastChangeSet = 0;
         lastLon = 0; lastLat = 0;
-        stringTable = new String[2][STRING_TABLE_SIZE];
+        Arrays.fill(stringTable[0], null);
+        Arrays.fill(stringTable[1], null);
+        Arrays.fill(userTable, null);
         currStringTablePos = 0;
     }
 
@@ -599,7 +647,7 @@ public class O5mReader extends AbstractReader {
      * @throws IOException in case of I/O error
      */
     private long readUnsignedNum64FromStream()throws IOException {
-        int b = is.read();
+        int b = readByteFromStream();
         --bytesToRead;
         long result = b;
         if ((b & 0x80) == 0) {  // just one byte
@@ -607,7 +655,7 @@ public class O5mReader extends AbstractReader {
         }
         result &= 0x7f;
         int shift = 7;
-        while (((b = is.read()) & 0x80) != 0) { // more bytes will follow
+        while (((b = readByteFromStream()) & 0x80) != 0) { // more bytes will follow
             --bytesToRead;
             result += ((long) (b & 0x7f)) << shift;
             shift += 7;
@@ -649,6 +697,39 @@ public class O5mReader extends AbstractReader {
         return (int) readUnsignedNum64();
     }
 
+    /**
+     * Bounded, direct-mapped cache of strings keyed by their UTF-8 bytes.
+     * Strings are only created when their bytes are not found in the cache,
+     * so that frequent keys and values which fell out of the o5m string table are shared.
+     */
+    private static final class StringInterner {
+        private static final int SIZE = 1 << 14;
+        private static final int MAX_LENGTH = 64;
+
+        private final byte[][] bytes = new byte[SIZE][];
+        private final String[] strings = new String[SIZE];
+
+        String get(byte[] buf, int start, int length) {
+            if (length == 0)
+                return "";
+            if (length > MAX_LENGTH)
+                return new String(buf, start, length, StandardCharsets.UTF_8);
+            int hash = 1;
+            for (int i = start; i < start + length; i++) {
+                hash = 31 * hash + buf[i];
+            }
+            int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+            byte[] cached = bytes[index];
+            if (cached != null && Arrays.equals(cached, 0, cached.length, buf, start, start + length)) {
+                return strings[index];
+            }
+            String s = new String(buf, start, length, StandardCharsets.UTF_8);
+            bytes[index] = Arrays.copyOfRange(buf, start, start + length);
+            strings[index] = s;
+            return s;
+        }
+    }
+
     /**
      * Exception thrown after user cancellation.
      */
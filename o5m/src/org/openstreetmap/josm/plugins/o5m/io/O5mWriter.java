@@ -0,0 +1,376 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.o5m.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Write stream in o5m format.
+ * Ids, coordinates, timestamps and changesets are delta coded, and strings are written
+ * as back-references to the o5m string table whenever possible.
+ */
+public class O5mWriter implements Closeable {
+
+    // O5M data set constants
+    private static final int NODE_DATASET = 0x10;
+    private static final int WAY_DATASET = 0x11;
+    private static final int REL_DATASET = 0x12;
+    private static final int BBOX_DATASET = 0xdb;
+    private static final int HEADER_DATASET = 0xe0;
+    private static final int EOD_FLAG = 0xfe;
+    private static final int RESET_FLAG = 0xff;
+
+    // o5m constants
+    private static final int STRING_TABLE_SIZE = 15000;
+    private static final int MAX_STRING_PAIR_SIZE = 250 + 2;
+    private static final double FACTOR = 10_000_000d; // o5m coordinates are in 100 nanodegrees
+
+    private final OutputStream os;
+
+    // content of the current data set
+    private byte[] ioBuf = new byte[8192];
+    private int ioBufPos;
+    // encoded string currently written
+    private byte[] strBuf = new byte[1024];
+    private int strBufPos;
+
+    // the o5m string table: position of each stored string, and strings stored at each position of the ring
+    private final Map<String, Integer> stringTable = new HashMap<>();
+    private final String[] stringRing = new String[STRING_TABLE_SIZE];
+    private int stringCount;
+
+    // for delta calculations
+    private long lastNodeId;
+    private long lastWayId;
+    private long lastRelId;
+    private final long[] lastRef = new long[3];
+    private long lastTs;
+    private long lastChangeSet;
+    private int lastLon;
+    private int lastLat;
+
+    /**
+     * Constructs a new {@code O5mWriter}.
+     * @param out output stream
+     */
+    public O5mWriter(OutputStream out) {
+        this.os = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    /**
+     * Writes data from an OSM data layer.
+     * @param layer data layer
+     * @throws IOException in case of I/O error
+     */
+    public void writeLayer(OsmDataLayer layer) throws IOException {
+        writeData(layer.getDataSet());
+    }
+
+    /**
+     * Writes data from a dataset.
+     * @param ds dataset
+     * @throws IOException in case of I/O error
+     */
+    public void writeData(DataSet ds) throws IOException {
+        reset();
+        writeHeader();
+        if (!ds.getDataSources().isEmpty()) {
+            writeBBox(ds.getDataSources().iterator().next());
+        }
+        Comparator<OsmPrimitive> cmp = Comparator.comparingLong(OsmPrimitive::getUniqueId);
+        Node[] nodes = ds.getNodes().stream().filter(n -> n.isUsable() && n.isLatLonKnown()).sorted(cmp).toArray(Node[]::new);
+        for (Node n : nodes) {
+            writeNode(n);
+        }
+        reset();
+        Way[] ways = ds.getWays().stream().filter(Way::isUsable).sorted(cmp).toArray(Way[]::new);
+        for (Way w : ways) {
+            writeWay(w);
+        }
+        reset();
+        Relation[] rels = ds.getRelations().stream().filter(Relation::isUsable).sorted(cmp).toArray(Relation[]::new);
+        for (Relation r : rels) {
+            writeRel(r);
+        }
+        os.write(EOD_FLAG);
+        os.flush();
+    }
+
+    /**
+     * write a reset flag and reset the delta values and string table
+     * @throws IOException in case of I/O error
+     */
+    private void reset() throws IOException {
+        os.write(RESET_FLAG);
+        lastNodeId = 0; lastWayId = 0; lastRelId = 0;
+        lastRef[0] = 0; lastRef[1] = 0; lastRef[2] = 0;
+        lastTs = 0; lastChangeSet = 0;
+        lastLon = 0; lastLat = 0;
+        stringTable.clear();
+        Arrays.fill(stringRing, null);
+        stringCount = 0;
+    }
+
+    private void writeHeader() throws IOException {
+        ioBufPos = 0;
+        writeBytes("o5m2".getBytes(StandardCharsets.US_ASCII));
+        writeDataSet(HEADER_DATASET);
+    }
+
+    private void writeBBox(DataSource source) throws IOException {
+        Bounds b = source.bounds;
+        ioBufPos = 0;
+        writeSignedNum(toFixed(b.getMinLon()));
+        writeSignedNum(toFixed(b.getMinLat()));
+        writeSignedNum(toFixed(b.getMaxLon()));
+        writeSignedNum(toFixed(b.getMaxLat()));
+        writeDataSet(BBOX_DATASET);
+    }
+
+    private void writeNode(Node n) throws IOException {
+        ioBufPos = 0;
+        long id = n.getUniqueId();
+        writeSignedNum(id - lastNodeId);
+        lastNodeId = id;
+        writeVersionTsAuthor(n);
+        int lon = toFixed(n.lon());
+        int lat = toFixed(n.lat());
+        writeSignedNum((long) lon - lastLon);
+        lastLon = lon;
+        writeSignedNum((long) lat - lastLat);
+        lastLat = lat;
+        writeTags(n);
+        writeDataSet(NODE_DATASET);
+    }
+
+    private void writeWay(Way w) throws IOException {
+        ioBufPos = 0;
+        long id = w.getUniqueId();
+        writeSignedNum(id - lastWayId);
+        lastWayId = id;
+        writeVersionTsAuthor(w);
+        // references are written in a temporary area, as their length comes first
+        int refsStart = ioBufPos;
+        for (Node n : w.getNodes()) {
+            long ref = n.getUniqueId();
+            writeSignedNum(ref - lastRef[0]);
+            lastRef[0] = ref;
+        }
+        insertLength(refsStart);
+        writeTags(w);
+        writeDataSet(WAY_DATASET);
+    }
+
+    private void writeRel(Relation r) throws IOException {
+        ioBufPos = 0;
+        long id = r.getUniqueId();
+        writeSignedNum(id - lastRelId);
+        lastRelId = id;
+        writeVersionTsAuthor(r);
+        int refsStart = ioBufPos;
+        for (RelationMember m : r.getMembers()) {
+            int refType = refType(m.getType());
+            long ref = m.getUniqueId();
+            writeSignedNum(ref - lastRef[refType]);
+            lastRef[refType] = ref;
+            strBufPos = 0;
+            writeStr((char) ('0' + refType) + m.getRole());
+            writeStringRef(MAX_STRING_PAIR_SIZE - 1);
+        }
+        insertLength(refsStart);
+        writeTags(r);
+        writeDataSet(REL_DATASET);
+    }
+
+    private static int refType(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE: return 0;
+        case WAY: return 1;
+        default: return 2;
+        }
+    }
+
+    /**
+     * Write version, time stamp, change set and author.
+     * @param osm primitive
+     */
+    private void writeVersionTsAuthor(OsmPrimitive osm) {
+        int version = osm.getVersion();
+        writeUnsignedNum(version);
+        if (version != 0) {
+            long ts = osm.getInstant().getEpochSecond();
+            writeSignedNum(ts - lastTs);
+            lastTs = ts;
+            if (ts != 0) {
+                long changeSet = osm.getChangesetId();
+                writeSignedNum(changeSet - lastChangeSet);
+                lastChangeSet = changeSet;
+                writeAuthor(osm.getUser());
+            }
+        }
+    }
+
+    private void writeAuthor(User user) {
+        strBufPos = 0;
+        long uid = user == null ? 0 : user.getId();
+        if (uid <= 0) {
+            strPut(0);
+            writeStr("");
+        } else {
+            long v = uid;
+            while ((v & ~0x7fL) != 0) {
+                strPut((int) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            strPut((int) v);
+            strPut(0);
+            writeStr(user.getName());
+        }
+        writeStringRef(MAX_STRING_PAIR_SIZE);
+    }
+
+    private void writeTags(OsmPrimitive osm) {
+        osm.visitKeys((p, k, v) -> {
+            strBufPos = 0;
+            writeStr(k);
+            writeStr(v);
+            writeStringRef(MAX_STRING_PAIR_SIZE);
+        });
+    }
+
+    /**
+     * write the encoded string (or string pair) either as back-reference to the string table,
+     * or inline, storing it in the string table if it is short enough
+     * @param maxSize maximum size of a string stored in the table, as checked by the reader
+     */
+    private void writeStringRef(int maxSize) {
+        String key = new String(strBuf, 0, strBufPos, StandardCharsets.ISO_8859_1);
+        Integer pos = stringTable.get(key);
+        if (pos != null) {
+            writeUnsignedNum(stringCount - pos);
+            return;
+        }
+        writeUnsignedNum(0);
+        ensureCapacity(strBufPos);
+        System.arraycopy(strBuf, 0, ioBuf, ioBufPos, strBufPos);
+        ioBufPos += strBufPos;
+        if (strBufPos <= maxSize) {
+            int slot = stringCount % STRING_TABLE_SIZE;
+            if (stringRing[slot] != null) {
+                stringTable.remove(stringRing[slot]);
+            }
+            stringRing[slot] = key;
+            stringTable.put(key, stringCount);
+            stringCount++;
+        }
+    }
+
+    private void writeStr(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (strBufPos + bytes.length + 1 > strBuf.length) {
+            strBuf = Arrays.copyOf(strBuf, Math.max(2 * strBuf.length, strBufPos + bytes.length + 1));
+        }
+        System.arraycopy(bytes, 0, strBuf, strBufPos, bytes.length);
+        strBufPos += bytes.length;
+        strBuf[strBufPos++] = 0;
+    }
+
+    private void strPut(int b) {
+        if (strBufPos >= strBuf.length) {
+            strBuf = Arrays.copyOf(strBuf, 2 * strBuf.length);
+        }
+        strBuf[strBufPos++] = (byte) b;
+    }
+
+    /**
+     * Insert the length of the data written since the given position before it
+     * @param start start position of the data
+     */
+    private void insertLength(int start) {
+        int length = ioBufPos - start;
+        int end = ioBufPos;
+        writeUnsignedNum(length);
+        int lengthSize = ioBufPos - end;
+        byte[] lengthBytes = Arrays.copyOfRange(ioBuf, end, ioBufPos);
+        System.arraycopy(ioBuf, start, ioBuf, start + lengthSize, length);
+        System.arraycopy(lengthBytes, 0, ioBuf, start, lengthSize);
+    }
+
+    /**
+     * write the data set type, length and content to the stream
+     * @param type data set type
+     * @throws IOException in case of I/O error
+     */
+    private void writeDataSet(int type) throws IOException {
+        os.write(type);
+        long v = ioBufPos;
+        while ((v & ~0x7fL) != 0) {
+            os.write((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        os.write((int) v);
+        os.write(ioBuf, 0, ioBufPos);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, ioBuf, ioBufPos, bytes.length);
+        ioBufPos += bytes.length;
+    }
+
+    private void ensureCapacity(int n) {
+        if (ioBufPos + n > ioBuf.length) {
+            ioBuf = Arrays.copyOf(ioBuf, Math.max(2 * ioBuf.length, ioBufPos + n));
+        }
+    }
+
+    /**
+     * write a varying length signed number (see o5m definition)
+     * @param num the number
+     */
+    private void writeSignedNum(long num) {
+        writeUnsignedNum((num << 1) ^ (num >> 63));
+    }
+
+    /**
+     * write a varying length unsigned number (see o5m definition)
+     * @param num the number
+     */
+    private void writeUnsignedNum(long num) {
+        ensureCapacity(10);
+        long v = num;
+        while ((v & ~0x7fL) != 0) {
+            ioBuf[ioBufPos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        ioBuf[ioBufPos++] = (byte) v;
+    }
+
+    private static int toFixed(double degrees) {
+        return (int) Math.round(degrees * FACTOR);
+    }
+
+    @Override
+    public void close() throws IOException {
+        os.close();
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.o5m.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests for {@link O5mExporter}.
+ */
+@BasicPreferences
+class O5mExporterTest {
+
+    /**
+     * Unit test of {@link O5mWriter#writeData}: data read back must be identical.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testRoundTrip() throws Exception {
+        DataSet ds = new O5mImporter().parseDataSet(TestUtils.getTestDataRoot() + "/monaco-latest.o5m");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (O5mWriter writer = new O5mWriter(out)) {
+            writer.writeData(ds);
+        }
+        DataSet ds2 = O5mReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), null);
+        assertEquals(ds.getNodes().size(), ds2.getNodes().size());
+        assertEquals(ds.getWays().size(), ds2.getWays().size());
+        assertEquals(ds.getRelations().size(), ds2.getRelations().size());
+        assertEquals(ds.getDataSourceBounds(), ds2.getDataSourceBounds());
+
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            OsmPrimitive p2 = ds2.getPrimitiveById(p.getUniqueId(), p.getType());
+            assertNotNull(p2, p.toString());
+            assertEquals(p.getKeys(), p2.getKeys(), p.toString());
+            assertEquals(p.getVersion(), p2.getVersion(), p.toString());
+            assertEquals(p.getUser(), p2.getUser(), p.toString());
+            assertEquals(p.getInstant(), p2.getInstant(), p.toString());
+            assertEquals(p.getChangesetId(), p2.getChangesetId(), p.toString());
+        }
+        for (Relation r : ds.getRelations()) {
+            Relation r2 = (Relation) ds2.getPrimitiveById(r);
+            assertEquals(r.getMembersCount(), r2.getMembersCount(), r.toString());
+            for (int i = 0; i < r.getMembersCount(); i++) {
+                assertEquals(r.getMember(i).getRole(), r2.getMember(i).getRole());
+                assertEquals(r.getMember(i).getMember().getPrimitiveId(), r2.getMember(i).getMember().getPrimitiveId());
+            }
+        }
+    }
+}
@@ -47,6 +47,14 @@ public abstract class OdConstants {
     public static final String PREF_TOLERANCE = "opendata.spreadsheet.tolerance";
     public static final double DEFAULT_TOLERANCE = 0.1;
 
+    public static final String PREF_SPREADSHEET_THREADS = "opendata.spreadsheet.threads";
+
+    public static final String PREF_ARCHIVE_THREADS = "opendata.archive.threads";
+
+    public static final String PREF_GEOGRAPHIC_VIEW_ONLY = "opendata.geographic.view_only";
+
+    public static final String PREF_GEOGRAPHIC_THREADS = "opendata.geographic.threads";
+
     public static final String PREF_MODULES = "opendata.modules";
     public static final String PREF_MODULES_SITES = "opendata.modules.sites";
     public static final String OSM_SITE = "https://svn.openstreetmap.org/applications/editors/josm/plugins/opendata/";
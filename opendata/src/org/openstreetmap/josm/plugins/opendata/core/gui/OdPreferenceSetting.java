@@ -39,6 +39,7 @@ public class OdPreferenceSetting extends DefaultTabPreferenceSetting {
     private final JTextField xapi = new JTextField();
 
     private final JCheckBox rawData = new JCheckBox(tr("Raw data"));
+    private final JCheckBox viewOnly = new JCheckBox(tr("Only import features in the current view"));
 
     public final JTabbedPane tabPane = new JTabbedPane();
     public JPanel masterPanel;
@@ -91,6 +92,11 @@ public class OdPreferenceSetting extends DefaultTabPreferenceSetting {
         rawData.setToolTipText(tr("Import only raw data (i.e. do not add/delete tags or replace them by standard OSM tags)"));
         general.add(rawData, GBC.eop().insets(0, 0, 0, 0));
 
+        // option to restrict shapefile and GeoPackage imports to the current view
+        viewOnly.setSelected(Config.getPref().getBoolean(OdConstants.PREF_GEOGRAPHIC_VIEW_ONLY, false));
+        viewOnly.setToolTipText(tr("When reading shapefiles and GeoPackages, skip the features outside of the current map view"));
+        general.add(viewOnly, GBC.eop().insets(0, 0, 0, 0));
+
         // separator
         general.add(new JSeparator(SwingConstants.HORIZONTAL), GBC.eol().fill(GBC.HORIZONTAL));
 
@@ -137,6 +143,7 @@ public class OdPreferenceSetting extends DefaultTabPreferenceSetting {
         Config.getPref().put(OdConstants.PREF_OAPI, oapi.getText());
         Config.getPref().put(OdConstants.PREF_XAPI, xapi.getText());
         Config.getPref().putBoolean(OdConstants.PREF_RAWDATA, rawData.isSelected());
+        Config.getPref().putBoolean(OdConstants.PREF_GEOGRAPHIC_VIEW_ONLY, viewOnly.isSelected());
 
         // create a task for downloading modules if the user has activated, yet not downloaded,
         // new modules
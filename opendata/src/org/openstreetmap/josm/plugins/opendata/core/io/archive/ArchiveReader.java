@@ -10,8 +10,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
@@ -37,7 +45,9 @@ import org.openstreetmap.josm.plugins.opendata.core.io.tabular.CsvReader;
 import org.openstreetmap.josm.plugins.opendata.core.io.tabular.OdsReader;
 import org.openstreetmap.josm.plugins.opendata.core.io.tabular.XlsReader;
 import org.openstreetmap.josm.plugins.opendata.core.util.OdUtils;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 public abstract class ArchiveReader extends AbstractReader {
 
@@ -57,7 +67,30 @@ public abstract class ArchiveReader extends AbstractReader {
         return file;
     }
 
-    protected abstract void extractArchive(File temp, List<File> candidates) throws IOException, FileNotFoundException;
+    /**
+     * Lists the file entries of the archive, without extracting them.
+     * @param temp the temporary directory, where a copy of the archive may be stored if needed
+     * @return the names of the file entries
+     * @throws IOException if the archive cannot be read
+     */
+    protected abstract List<String> listEntries(File temp) throws IOException;
+
+    /**
+     * Extracts some file entries of the archive in the temporary directory,
+     * and notifies the {@link ArchiveHandler} for each written file.
+     * @param temp the temporary directory
+     * @param entries the names of the entries to extract
+     * @throws IOException if the archive cannot be read, or the files cannot be written
+     */
+    protected abstract void extractEntries(File temp, Collection<String> entries) throws IOException;
+
+    /**
+     * Releases the resources used to read the archive. Called once all documents have been parsed.
+     * @throws IOException if an I/O error occurs
+     */
+    protected void closeArchive() throws IOException {
+        // To be overriden if needed
+    }
 
     protected abstract String getTaskMessage();
 
@@ -67,8 +100,23 @@ public abstract class ArchiveReader extends AbstractReader {
         if (progressMonitor != null) {
             progressMonitor.beginTask(getTaskMessage());
         }
-        extractArchive(temp, candidates);
+        final List<String> entries = listEntries(temp);
+        final Map<File, String> entryNames = new HashMap<>();
+        // XML files are recognized by their content, so they have to be extracted before looking for candidates
+        final List<String> xmlEntries = new ArrayList<>();
+        for (String entry : entries) {
+            File f = getEntryFile(temp, entry);
+            entryNames.put(f, entry);
+            if (XmlImporter.XML_FILE_FILTER.accept(f)) {
+                xmlEntries.add(entry);
+            }
+        }
+        extractEntries(temp, xmlEntries);
+        for (String entry : entries) {
+            lookForCandidate(entry, candidates, getEntryFile(temp, entry));
+        }
 
+        Collection<File> docs = Collections.emptyList();
         if (promptUser && candidates.size() > 1) {
             DialogPrompter<CandidateChooser> prompt = new DialogPrompter<CandidateChooser>() {
                 @Override
@@ -77,12 +125,44 @@ public abstract class ArchiveReader extends AbstractReader {
                 }
             };
             if (prompt.promptInEdt().getValue() == 1) {
-                return Collections.singleton(prompt.getDialog().getSelectedFile());
+                docs = Collections.singleton(prompt.getDialog().getSelectedFile());
             }
         } else if (!candidates.isEmpty()) {
-            return candidates;
+            docs = candidates;
+        }
+
+        // Only extract the chosen documents, and the files sharing their base name (.dbf/.shx/.prj for shapefiles, .mid for MIF, ...)
+        final Set<String> toExtract = new LinkedHashSet<>();
+        for (File doc : docs) {
+            String base = getBaseName(entryNames.get(doc));
+            for (String entry : entries) {
+                if (base.equals(getBaseName(entry)) && !xmlEntries.contains(entry)) {
+                    toExtract.add(entry);
+                }
+            }
+        }
+        extractEntries(temp, toExtract);
+        return docs;
+    }
+
+    private static String getBaseName(String entry) {
+        int dot = entry.lastIndexOf('.');
+        return (dot > entry.lastIndexOf('/') ? entry.substring(0, dot) : entry).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the file where an entry is extracted.
+     * @param temp the temporary directory
+     * @param entry the name of the entry
+     * @return the file where the entry is extracted
+     * @throws IOException if the entry would be extracted outside of the temporary directory
+     */
+    protected static File getEntryFile(File temp, String entry) throws IOException {
+        File file = new File(temp, entry);
+        if (!file.getCanonicalPath().startsWith(temp.getCanonicalPath() + File.separator)) {
+            throw new IOException("Invalid archive entry: " + entry);
         }
-        return Collections.emptyList();
+        return file;
     }
 
     public Map<File, DataSet> parseDocs(final ProgressMonitor progressMonitor)
@@ -91,13 +171,21 @@ public abstract class ArchiveReader extends AbstractReader {
         File temp = OdUtils.createTempDir();
         try {
             file = null;
-            for (File f : getDocsToParse(temp, progressMonitor)) {
-                DataSet from = getDataForFile(f, progressMonitor);
-                if (from != null) {
-                    result.put(f, from);
+            Collection<File> docs = getDocsToParse(temp, progressMonitor);
+            // Dataset handlers are not thread-safe, so documents are only parsed in parallel without handler
+            int threads = handler == null ? Config.getPref().getInt(OdConstants.PREF_ARCHIVE_THREADS, 1) : 1;
+            if (threads > 1 && docs.size() > 1) {
+                parseDocsInParallel(docs, threads, result);
+            } else {
+                for (File f : docs) {
+                    DataSet from = getDataForFile(f, progressMonitor);
+                    if (from != null) {
+                        result.put(f, from);
+                    }
                 }
             }
         } finally {
+            closeArchive();
             OdUtils.deleteDir(temp);
             if (progressMonitor != null) {
                 progressMonitor.finishTask();
@@ -106,6 +194,43 @@ public abstract class ArchiveReader extends AbstractReader {
         return result;
     }
 
+    private void parseDocsInParallel(Collection<File> docs, int threads, Map<File, DataSet> result)
+            throws IOException, XMLStreamException, IllegalDataException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, docs.size()),
+                Utils.newThreadFactory("opendata-archive-%d", Thread.NORM_PRIORITY));
+        try {
+            Map<File, Future<DataSet>> futures = new LinkedHashMap<>();
+            for (File f : docs) {
+                futures.put(f, executor.submit(() -> getDataForFile(f, null)));
+            }
+            for (Map.Entry<File, Future<DataSet>> entry : futures.entrySet()) {
+                DataSet from = entry.getValue().get();
+                if (from != null) {
+                    result.put(entry.getKey(), from);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            } else if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public DataSet parseDoc(final ProgressMonitor progressMonitor)
             throws IOException, XMLStreamException, FactoryConfigurationError, IllegalDataException {
         File temp = OdUtils.createTempDir();
@@ -124,6 +249,7 @@ public abstract class ArchiveReader extends AbstractReader {
         } catch (IllegalArgumentException e) {
             Logging.error(e);
         } finally {
+            closeArchive();
             OdUtils.deleteDir(temp);
             if (progressMonitor != null) {
                 progressMonitor.finishTask();
@@ -4,12 +4,13 @@ package org.openstreetmap.josm.plugins.opendata.core.io.archive;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +18,10 @@ import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 
 import org.j7zip.SevenZip.ArchiveExtractCallback;
-import org.j7zip.SevenZip.HRESULT;
 import org.j7zip.SevenZip.IInStream;
 import org.j7zip.SevenZip.MyRandomAccessFile;
 import org.j7zip.SevenZip.Archive.IInArchive;
+import org.j7zip.SevenZip.Archive.SevenZipEntry;
 import org.j7zip.SevenZip.Archive.SevenZip.Handler;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -32,15 +33,16 @@ import org.openstreetmap.josm.tools.Logging;
 public class SevenZipReader extends ArchiveReader {
 
     private final IInArchive archive = new Handler();
+    private final File tmpFile;
+    private final IInStream random;
 
     public SevenZipReader(InputStream in, AbstractDataSetHandler handler, boolean promptUser) throws IOException {
         super(handler, handler != null ? handler.getArchiveHandler() : null, promptUser);
         // Write entire 7z file as a temp file on disk as we need random access later, and "in" can be a network stream
-        File tmpFile = File.createTempFile("7z_", ".7z", OdUtils.createTempDir());
+        tmpFile = File.createTempFile("7z_", ".7z", OdUtils.createTempDir());
         Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         // random must be kept open for later extracting
-        @SuppressWarnings("resource")
-        IInStream random = new MyRandomAccessFile(tmpFile.getPath(), "r");
+        random = new MyRandomAccessFile(tmpFile.getPath(), "r");
         if (archive.Open(random) != 0) {
             String message = "Unable to open 7z archive: "+tmpFile.getPath();
             Logging.warn(message);
@@ -68,25 +70,73 @@ public class SevenZipReader extends ArchiveReader {
     }
 
     @Override
-    protected void extractArchive(File temp, List<File> candidates) throws IOException, FileNotFoundException {
-        archive.Extract(null, -1, IInArchive.NExtract_NAskMode_kExtract, new ExtractCallback(archive, temp, candidates));
+    protected List<String> listEntries(File temp) throws IOException {
+        List<String> entries = new ArrayList<>();
+        // The archive does not expose its number of entries
+        for (int i = 0; hasEntry(i); i++) {
+            SevenZipEntry entry = archive.getEntry(i);
+            if (!entry.isDirectory()) {
+                entries.add(entry.getName());
+            }
+        }
+        return entries;
+    }
+
+    private boolean hasEntry(int index) {
+        try {
+            return archive.getEntry(index) != null;
+        } catch (IndexOutOfBoundsException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
+    @Override
+    protected void extractEntries(File temp, Collection<String> entries) throws IOException {
+        int[] indices = new int[entries.size()];
+        int n = 0;
+        for (int i = 0; n < indices.length && hasEntry(i); i++) {
+            if (entries.contains(archive.getEntry(i).getName())) {
+                indices[n++] = i;
+            }
+        }
+        if (n > 0) {
+            archive.Extract(indices, n, IInArchive.NExtract_NAskMode_kExtract, new ExtractCallback(archive, temp));
+        }
+    }
+
+    @Override
+    protected void closeArchive() throws IOException {
         archive.close();
+        random.close();
+        if (!tmpFile.delete()) {
+            tmpFile.deleteOnExit();
+        }
     }
 
     private class ExtractCallback extends ArchiveExtractCallback {
-        private final List<File> candidates;
+        private boolean extracting;
 
-        ExtractCallback(IInArchive archive, File tempDir, List<File> candidates) {
+        ExtractCallback(IInArchive archive, File tempDir) {
             Init(archive);
             super.outputDir = tempDir.getPath();
-            this.candidates = candidates;
         }
 
         @Override
         public int GetStream(int index, OutputStream[] outStream, int askExtractMode) throws IOException {
-            int res = super.GetStream(index, outStream, askExtractMode);
-            if (res == HRESULT.S_OK) {
-                lookForCandidate(_filePath, candidates, file);
+            // Refuse entries which would be extracted outside of the temporary directory
+            SevenZipEntry entry = archive.getEntry(index);
+            getEntryFile(new File(outputDir), entry.getName());
+            extracting = askExtractMode == IInArchive.NExtract_NAskMode_kExtract && !entry.isDirectory();
+            return super.GetStream(index, outStream, askExtractMode);
+        }
+
+        @Override
+        public int SetOperationResult(int operationResult) throws IOException {
+            int res = super.SetOperationResult(operationResult);
+            // Allow handler to perform specific treatments (for example, fix invalid .prj files)
+            if (archiveHandler != null && extracting) {
+                archiveHandler.notifyTempFileWritten(file);
             }
             return res;
         }
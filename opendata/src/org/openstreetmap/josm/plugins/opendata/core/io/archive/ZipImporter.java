@@ -30,6 +30,10 @@ public class ZipImporter extends AbstractImporter {
     protected DataSet parseDataSet(InputStream in, ProgressMonitor instance)
             throws IllegalDataException {
         try {
+            if (file != null && file.isFile()) {
+                // Read the local file directly, rather than a copy of the stream
+                return new ZipReader(file, handler, true).parseDoc(instance);
+            }
             return ZipReader.parseDataSet(in, handler, instance, true);
         } catch (IOException | XMLStreamException | FactoryConfigurationError e) {
             throw new IllegalDataException(e);
@@ -4,14 +4,17 @@ package org.openstreetmap.josm.plugins.opendata.core.io.archive;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
@@ -24,13 +27,24 @@ import org.openstreetmap.josm.tools.Logging;
 
 public class ZipReader extends ArchiveReader {
 
-    private final ZipInputStream zis;
-
-    private ZipEntry entry;
+    private final InputStream in;
+    private File zipFile;
 
     public ZipReader(InputStream in, AbstractDataSetHandler handler, boolean promptUser) {
         super(handler, handler != null ? handler.getArchiveHandler() : null, promptUser);
-        this.zis = in instanceof ZipInputStream ? (ZipInputStream) in : new ZipInputStream(in);
+        this.in = in;
+    }
+
+    /**
+     * Constructs a new {@code ZipReader} reading directly from a local zip file.
+     * @param zipFile zip file
+     * @param handler dataset handler, can be null
+     * @param promptUser if {@code true}, the user chooses the file to load when the archive contains several candidates
+     */
+    public ZipReader(File zipFile, AbstractDataSetHandler handler, boolean promptUser) {
+        super(handler, handler != null ? handler.getArchiveHandler() : null, promptUser);
+        this.in = null;
+        this.zipFile = zipFile;
     }
 
     public static DataSet parseDataSet(InputStream in, AbstractDataSetHandler handler, ProgressMonitor instance, boolean promptUser)
@@ -44,28 +58,40 @@ public class ZipReader extends ArchiveReader {
     }
 
     @Override
-    protected void extractArchive(final File temp, final List<File> candidates) throws IOException, FileNotFoundException {
-        while ((entry = zis.getNextEntry()) != null) {
-            Logging.debug("Extracting {0}", entry.getName());
-            File file = new File(temp + File.separator + entry.getName());
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) {
-                parent.mkdirs();
-            }
-            if (file.exists() && !file.delete()) {
-                throw new IOException("Could not delete temp file/dir: " + file.getAbsolutePath());
+    protected List<String> listEntries(File temp) throws IOException {
+        if (zipFile == null) {
+            // The central directory is at the end of the archive, and "in" can be a network stream
+            zipFile = File.createTempFile("zip_", ".zip", temp);
+            Files.copy(in, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        List<String> entries = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.isDirectory()) {
+                    entries.add(entry.getName());
+                }
             }
-            if (!entry.isDirectory()) {
-                if (!file.createNewFile()) {
-                    throw new IOException("Could not create temp file: " + file.getAbsolutePath());
+        }
+        return entries;
+    }
+
+    @Override
+    protected void extractEntries(File temp, Collection<String> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            for (String name : entries) {
+                ZipEntry entry = zip.getEntry(name);
+                Logging.debug("Extracting {0}", name);
+                File file = getEntryFile(temp, name);
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
                 }
-                // Write temp file
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    byte[] buffer = new byte[8192];
-                    int count = 0;
-                    while ((count = zis.read(buffer, 0, buffer.length)) > 0) {
-                        fos.write(buffer, 0, count);
-                    }
+                try (InputStream is = zip.getInputStream(entry)) {
+                    Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 }
                 // Allow handler to perform specific treatments (for example, fix invalid .prj files)
                 if (archiveHandler != null) {
@@ -76,9 +102,6 @@ public class ZipReader extends ArchiveReader {
                 if (time > -1) {
                     file.setLastModified(time);
                 }
-                lookForCandidate(entry.getName(), candidates, file);
-            } else if (!file.mkdir()) {
-                throw new IOException("Could not create temp dir: " + file.getAbsolutePath());
             }
         }
     }
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.opendata.core.io.geographic;
 
+import org.opengis.filter.Filter;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -24,4 +25,12 @@ public interface GeographicHandler {
 
     MathTransform findMathTransform(CoordinateReferenceSystem sourceCRS, CoordinateReferenceSystem targetCRS, boolean lenient)
             throws FactoryException;
+
+    /**
+     * Get the filter on feature attributes, evaluated by the data store when reading shapefiles and GeoPackages
+     * @return The filter, or {@code null} to import all features
+     */
+    default Filter getFeatureFilter() {
+        return null;
+    }
 }
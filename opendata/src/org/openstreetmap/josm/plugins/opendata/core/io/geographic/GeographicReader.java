@@ -10,7 +10,6 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -44,6 +43,7 @@ import org.opengis.referencing.datum.Datum;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.OperationNotFoundException;
 import org.opengis.referencing.operation.TransformException;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -66,7 +66,6 @@ import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.ReflectionUtils;
 import org.openstreetmap.josm.tools.UserCancelException;
-import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Superclass of geographic format readers (currently GML, GPKG, and SHP).
@@ -86,14 +85,23 @@ public abstract class GeographicReader extends AbstractReader {
     private final GeographicHandler[] defaultHandlers;
 
     protected final Map<LatLon, Node> nodes;
+    /** Spatial index of {@link #nodes}, only filled when the handler checks node proximity */
+    private final Map<Long, List<Node>> nodeGrid;
+    /** Ways created by {@link #createOrGetWay}, indexed by their {@link #fingerprint} */
+    private final Map<Long, List<Way>> wayIndex;
 
     protected CoordinateReferenceSystem crs;
     protected MathTransform transform;
+    /** {@code true} if the geometries given to this reader have already been transformed to WGS84 */
+    private boolean preTransformed;
+    private Bounds bounds;
 
     private static final Map<String, Integer> esriWkid = new TreeMap<>();
 
     protected GeographicReader(GeographicHandler handler, GeographicHandler[] defaultHandlers) {
         this.nodes = new HashMap<>();
+        this.nodeGrid = new HashMap<>();
+        this.wayIndex = new HashMap<>();
         this.handler = handler;
         this.defaultHandlers = defaultHandlers;
     }
@@ -107,19 +115,91 @@ public abstract class GeographicReader extends AbstractReader {
         return this.handler;
     }
 
+    /**
+     * Get the bounds of the features to import
+     * @return The bounds, or {@code null} if not restricted
+     */
+    public Bounds getBounds() {
+        return this.bounds;
+    }
+
+    /**
+     * Only import the features intersecting some bounds. This is evaluated by the data store, using its spatial index if any.
+     * @param bounds The bounds, or {@code null} to import all features
+     */
+    public void setBounds(Bounds bounds) {
+        this.bounds = bounds;
+    }
+
     protected Node getNode(Point p, LatLon key) {
         Node n = nodes.get(key);
         if (n == null && handler != null && handler.checkNodeProximity()) {
             LatLon ll = new LatLon(p.getY(), p.getX());
-            for (Node node : nodes.values()) {
-                if (node.equalsEpsilon(ll, ILatLon.MAX_SERVER_PRECISION)) {
-                    return node;
+            long latCell = gridCell(ll.lat());
+            long lonCell = gridCell(ll.lon());
+            // Nodes within MAX_SERVER_PRECISION are at most one cell away
+            for (long lat = latCell - 1; lat <= latCell + 1; lat++) {
+                for (long lon = lonCell - 1; lon <= lonCell + 1; lon++) {
+                    List<Node> cell = nodeGrid.get(gridKey(lat, lon));
+                    if (cell != null) {
+                        for (Node node : cell) {
+                            if (node.equalsEpsilon(ll, ILatLon.MAX_SERVER_PRECISION)) {
+                                return node;
+                            }
+                        }
+                    }
                 }
             }
         }
         return n;
     }
 
+    /**
+     * Remember a node, so that it can be reused for the same (or, if the handler checks node proximity, a close) location
+     * @param key The location of the node
+     * @param n The node
+     */
+    protected void addNode(LatLon key, Node n) {
+        Node previous = nodes.put(key, n);
+        if (handler != null && handler.checkNodeProximity()) {
+            List<Node> cell = nodeGrid.computeIfAbsent(gridKey(gridCell(key.lat()), gridCell(key.lon())), k -> new ArrayList<>(1));
+            if (previous != null) {
+                // Keep the same candidates as the node map
+                cell.remove(previous);
+            }
+            cell.add(n);
+        }
+    }
+
+    /**
+     * Forget all the nodes remembered by {@link #addNode}
+     */
+    protected void clearNodes() {
+        nodes.clear();
+        nodeGrid.clear();
+    }
+
+    private static long gridCell(double coordinate) {
+        // Cells are twice the precision, so that rounding errors cannot put two close nodes more than one cell apart
+        return (long) Math.floor(coordinate / (2 * ILatLon.MAX_SERVER_PRECISION));
+    }
+
+    private static long gridKey(long latCell, long lonCell) {
+        return (latCell << 32) ^ (lonCell & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Set if the geometries given to this reader have already been transformed to WGS84
+     * @param preTransformed {@code true} to skip the transformation of points
+     */
+    void setPreTransformed(boolean preTransformed) {
+        this.preTransformed = preTransformed;
+    }
+
+    private Point toWgs84(Point p) throws TransformException {
+        return preTransformed ? p : (Point) JTS.transform(p, transform);
+    }
+
     protected Node createOrGetNode(Point p) throws MismatchedDimensionException, TransformException {
         return createOrGetNode(p, null);
     }
@@ -128,7 +208,7 @@ public abstract class GeographicReader extends AbstractReader {
         if (!p.isValid()) {
             throw new IllegalArgumentException("Invalid point: " + p);
         }
-        Point p2 = (Point) JTS.transform(p, transform);
+        Point p2 = toWgs84(p);
         LatLon key = new LatLon(p2.getY(), p2.getX());
         Node n = getNode(p2, key);
         if (n == null) {
@@ -137,7 +217,7 @@ public abstract class GeographicReader extends AbstractReader {
                 n.put("ele", ele);
             }
             if (handler == null || handler.useNodeMap()) {
-                nodes.put(key, n);
+                addNode(key, n);
             }
             ds.addPrimitive(n);
         } else if (n.getDataSet() == null) {
@@ -148,7 +228,7 @@ public abstract class GeographicReader extends AbstractReader {
     }
 
     protected Node createOrGetEmptyNode(Point p) throws MismatchedDimensionException, TransformException {
-        Point p2 = (Point) JTS.transform(p, transform);
+        Point p2 = toWgs84(p);
         LatLon key = new LatLon(p2.getY(), p2.getX());
         Node n = getNode(p2, key);
         if (n != null && n.hasKeys()) {
@@ -157,7 +237,7 @@ public abstract class GeographicReader extends AbstractReader {
         if (n == null) {
             n = new Node(key);
             if (handler == null || handler.useNodeMap()) {
-                nodes.put(key, n);
+                addNode(key, n);
             }
             ds.addPrimitive(n);
         } else if (n.getDataSet() == null) {
@@ -190,12 +270,19 @@ public abstract class GeographicReader extends AbstractReader {
                 }
             }
             tempWay.setNodes(nodes);
-            // Find possible duplicated ways
-            if (tempWay.getNodesCount() > 0) {
-                Collection<Way> candidates = Utils.filteredCollection(tempWay.firstNode().getReferrers(), Way.class);
-                candidates.remove(tempWay);
+        }
+        long fingerprint = fingerprint(tempWay);
+        // Find possible duplicated ways
+        if (tempWay.getNodesCount() > 0) {
+            List<Way> candidates = wayIndex.get(fingerprint);
+            if (candidates != null) {
+                Node first = tempWay.firstNode();
                 List<LatLon> tempNodes = DuplicateWay.getOrderedNodes(tempWay);
                 for (Way candidate : candidates) {
+                    // Only ways sharing the first node are duplicates, see Node#getReferrers()
+                    if (candidate.getDataSet() != first.getDataSet() || !candidate.containsNode(first)) {
+                        continue;
+                    }
                     List<LatLon> candNodesA = DuplicateWay.getOrderedNodes(candidate);
                     List<LatLon> candNodesB = new ArrayList<>(candNodesA);
                     Collections.reverse(candNodesB);
@@ -210,10 +297,47 @@ public abstract class GeographicReader extends AbstractReader {
         if (w == null) {
             w = createWay();
             w.setNodes(tempWay.getNodes());
+            wayIndex.computeIfAbsent(fingerprint, k -> new ArrayList<>(1)).add(w);
         }
         return w;
     }
 
+    /**
+     * Compute a fingerprint of the geometry of a way. Ways with the same {@link DuplicateWay#getOrderedNodes ordered nodes},
+     * in either direction, have the same fingerprint.
+     * @param w The way
+     * @return The fingerprint of the way
+     */
+    private static long fingerprint(Way w) {
+        int count = w.getNodesCount();
+        long hash = 0;
+        if (w.isClosed()) {
+            // The ordered nodes of a closed way start and end with the node with the lowest id
+            Node lowest = w.firstNode();
+            for (int i = 0; i < count - 1; i++) {
+                Node node = w.getNode(i);
+                hash += hash(node);
+                if (node.getUniqueId() < lowest.getUniqueId()) {
+                    lowest = node;
+                }
+            }
+            hash += hash(lowest);
+        } else {
+            // Summing does not depend on the order, so reversed ways have the same fingerprint
+            for (int i = 0; i < count; i++) {
+                hash += hash(w.getNode(i));
+            }
+        }
+        return 31 * hash + count;
+    }
+
+    private static long hash(Node node) {
+        long h = 31L * Double.hashCode(node.lat()) + Double.hashCode(node.lon());
+        // Spread the bits, so that the sum of several hashes stays well distributed
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
     protected final Relation createMultipolygon() {
         Relation r = new Relation();
         r.put("type", "multipolygon");
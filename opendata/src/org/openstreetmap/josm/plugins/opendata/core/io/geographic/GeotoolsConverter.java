@@ -8,19 +8,33 @@ import java.awt.Component;
 import java.awt.GraphicsEnvironment;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 
 import org.geotools.data.DataStore;
 import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.LineString;
@@ -32,9 +46,13 @@ import org.opengis.feature.GeometryAttribute;
 import org.opengis.feature.Property;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.geometry.MismatchedDimensionException;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.TransformException;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
@@ -42,13 +60,21 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.opendata.core.OdConstants;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.UserCancelException;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Convert a {@link DataStore} to a {@link DataSet}
  */
 public class GeotoolsConverter {
+    /** The number of features converted between two progress updates */
+    private static final int PAGE_SIZE = 1000;
+    private static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
     private final DataStore dataStore;
     private final GeographicReader reader;
     private final Set<OsmPrimitive> featurePrimitives = new HashSet<>();
@@ -79,11 +105,14 @@ public class GeotoolsConverter {
             progressMonitor.beginTask(tr("Loading shapefile ({0} layers)", typeNames.length), typeNames.length);
         }
         try {
+            Bounds bounds = getBounds();
             for (String typeName : typeNames) {
                 FeatureSource<?, ?> featureSource = dataStore.getFeatureSource(typeName);
-                FeatureCollection<?, ?> collection = featureSource.getFeatures();
+                Query query = createQuery(typeName, featureSource, bounds);
+                FeatureCollection<?, ?> collection = featureSource.getFeatures(query);
                 try {
-                    parseFeatures(progressMonitor != null ? progressMonitor.createSubTaskMonitor(1, false) : null, collection);
+                    parseFeatures(progressMonitor != null ? progressMonitor.createSubTaskMonitor(1, false) : null, collection,
+                            featureSource.getCount(query));
                     // Geotools wraps an IOException in a RuntimeException. We want to keep parsing layers, even if we could not understand
                     // a previous layer.
                 } catch (RuntimeException runtimeException) {
@@ -101,50 +130,133 @@ public class GeotoolsConverter {
         }
     }
 
+    /**
+     * Get the bounds of the features to import
+     * @return The bounds set on the reader, or the bounds of the current view if only features in view are imported, or {@code null}
+     */
+    private Bounds getBounds() {
+        if (reader.getBounds() != null) {
+            return reader.getBounds();
+        } else if (Config.getPref().getBoolean(OdConstants.PREF_GEOGRAPHIC_VIEW_ONLY, false) && MainApplication.isDisplayingMapView()) {
+            return MainApplication.getMap().mapView.getRealBounds();
+        }
+        return null;
+    }
+
+    /**
+     * Create the query for the features to import. Filters are evaluated by the data store, so spatial indexes
+     * (GeoPackage R-tree, shapefile .qix) are used for the bounds.
+     * @param typeName The name of the feature type
+     * @param featureSource The source of the features
+     * @param bounds The bounds of the features to import, may be {@code null}
+     * @return The query
+     * @throws FactoryException See {@link ReferencedEnvelope#transform(CoordinateReferenceSystem, boolean)}
+     */
+    private Query createQuery(String typeName, FeatureSource<?, ?> featureSource, Bounds bounds) throws FactoryException {
+        Filter filter = Filter.INCLUDE;
+        GeometryDescriptor geometry = featureSource.getSchema().getGeometryDescriptor();
+        if (bounds != null && geometry != null) {
+            ReferencedEnvelope envelope = new ReferencedEnvelope(bounds.getMinLon(), bounds.getMaxLon(), bounds.getMinLat(), bounds.getMaxLat(),
+                    DefaultGeographicCRS.WGS84);
+            CoordinateReferenceSystem nativeCrs = geometry.getCoordinateReferenceSystem();
+            try {
+                if (nativeCrs != null) {
+                    envelope = envelope.transform(nativeCrs, true);
+                }
+                filter = FF.bbox(FF.property(geometry.getLocalName()), envelope);
+            } catch (TransformException e) {
+                // The bounds may be outside of the domain of the projection
+                Logging.warn("Unable to filter features by bounds: " + e.getMessage());
+                Logging.trace(e);
+            }
+        }
+        Filter featureFilter = reader.getHandler() != null ? reader.getHandler().getFeatureFilter() : null;
+        if (featureFilter != null) {
+            filter = filter == Filter.INCLUDE ? featureFilter : FF.and(filter, featureFilter);
+        }
+        return new Query(typeName, filter);
+    }
+
     /**
      * Run the actual conversion process for a collection of features
      * @param progressMonitor The monitor to show progress on
      * @param collection The collection to parse
+     * @param size The number of features in the collection, or -1 if unknown
      * @throws FactoryException See {@link GeographicReader#findMathTransform(Component, boolean)}
      * @throws GeoMathTransformException See {@link GeographicReader#findMathTransform(Component, boolean)}
      * @throws TransformException See {@link GeographicReader#createOrGetNode(Point)}
      * @throws GeoCrsException If the CRS cannot be detected
      */
-    private void parseFeatures(ProgressMonitor progressMonitor, FeatureCollection<?, ?> collection)
+    private void parseFeatures(ProgressMonitor progressMonitor, FeatureCollection<?, ?> collection, int size)
             throws FactoryException, GeoMathTransformException, TransformException, GeoCrsException {
         if (progressMonitor != null) {
-            progressMonitor.beginTask(tr("Loading shapefile ({0} features)", collection.size()), collection.size());
+            if (size >= 0) {
+                progressMonitor.beginTask(tr("Loading shapefile ({0} features)", size), size);
+            } else {
+                progressMonitor.beginTask(tr("Loading shapefile"));
+            }
         }
 
         int n = 0;
 
         Component parent = progressMonitor != null ? progressMonitor.getWindowParent() : MainApplication.getMainFrame();
 
-        int size = collection.size();
+        final int threads = Config.getPref().getInt(OdConstants.PREF_GEOGRAPHIC_THREADS, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("opendata-geographic-%d", Thread.NORM_PRIORITY))
+                : null;
+        // Geometries of a page of features are transformed to WGS84 and attributes are read on the worker threads, while nodes
+        // are deduplicated and primitives are added to the dataset on this thread, in feature order.
+        final int maxPending = executor != null ? 2 * threads : 1;
+        final Deque<Future<PreparedFeature[]>> pending = new ArrayDeque<>(maxPending);
         this.reader.getDataSet().beginUpdate();
         try (FeatureIterator<?> iterator = collection.features()) {
+            List<Feature> page = new ArrayList<>(PAGE_SIZE);
             while (iterator.hasNext()) {
-                n++;
+                Feature feature = iterator.next();
                 try {
-                    Feature feature = iterator.next();
-                    parseFeature(feature, parent);
-                    if (reader.getHandler() instanceof ShpHandler) {
-                        ((ShpHandler) reader.getHandler()).notifyFeatureParsed(feature, reader.getDataSet(), featurePrimitives);
-                    }
+                    // The CRS is detected on the first feature, and the user may be asked for it
+                    findCrs(feature.getDefaultGeometryProperty(), parent);
                 } catch (UserCancelException e) {
                     Logging.error(e);
                     return;
                 }
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                    progressMonitor.setCustomText(n+"/"+size);
-                    if (progressMonitor.isCanceled()) {
+                page.add(feature);
+                if (page.size() == PAGE_SIZE || !iterator.hasNext()) {
+                    pending.add(submit(page, executor));
+                    page = new ArrayList<>(PAGE_SIZE);
+                }
+                while (pending.size() >= maxPending || (!iterator.hasNext() && !pending.isEmpty())) {
+                    PreparedFeature[] features = getPreparedFeatures(pending.poll());
+                    if (features == null) {
                         return;
                     }
+                    for (PreparedFeature preparedFeature : features) {
+                        parseFeature(preparedFeature);
+                        if (reader.getHandler() instanceof ShpHandler) {
+                            ((ShpHandler) reader.getHandler()).notifyFeatureParsed(preparedFeature.feature, reader.getDataSet(),
+                                    featurePrimitives);
+                        }
+                    }
+                    n += features.length;
+                    if (progressMonitor != null) {
+                        if (size >= 0) {
+                            progressMonitor.worked(features.length);
+                            progressMonitor.setCustomText(n+"/"+size);
+                        } else {
+                            progressMonitor.setCustomText(Integer.toString(n));
+                        }
+                        if (progressMonitor.isCanceled()) {
+                            return;
+                        }
+                    }
                 }
             }
         } finally {
-            reader.nodes.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            reader.clearNodes();
             this.reader.getDataSet().endUpdate();
             if (progressMonitor != null) {
                 progressMonitor.setCustomText(null);
@@ -152,80 +264,143 @@ public class GeotoolsConverter {
         }
     }
 
-    private void parseFeature(Feature feature, final Component parent) throws UserCancelException, GeoMathTransformException,
-            FactoryException, GeoCrsException, MismatchedDimensionException, TransformException {
-        featurePrimitives.clear();
-        GeometryAttribute geometry = feature.getDefaultGeometryProperty();
-        if (geometry != null) {
+    private Future<PreparedFeature[]> submit(List<Feature> page, ExecutorService executor) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(prepareFeatures(page));
+        }
+        return executor.submit(() -> prepareFeatures(page));
+    }
 
-            GeometryDescriptor desc = geometry.getDescriptor();
-            if (reader.crs == null) {
-                if (desc != null && desc.getCoordinateReferenceSystem() != null) {
-                    reader.crs = desc.getCoordinateReferenceSystem();
-                } else if (!GraphicsEnvironment.isHeadless()) {
-                    GuiHelper.runInEDTAndWait(() -> {
-                        if (0 == JOptionPane.showConfirmDialog(
-                                parent,
-                                tr("Unable to detect Coordinate Reference System.\nWould you like to fallback to ESPG:4326 (WGS 84) ?"),
-                                tr("Warning: CRS not found"),
-                                JOptionPane.YES_NO_CANCEL_OPTION
-                        )) {
-                            reader.crs = wgs84;
-                        }
-                    });
-                } else {
-                    // Always use WGS84 in headless mode (used for unit tests only)
-                    reader.crs = wgs84;
-                }
-                if (reader.crs != null) {
-                    reader.findMathTransform(parent, true);
-                } else {
-                    throw new GeoCrsException(tr("Unable to detect CRS !"));
-                }
+    /**
+     * Wait for a page of features to be prepared
+     * @param future The future of the page
+     * @return The prepared features, or {@code null} if the conversion has been interrupted
+     */
+    private static PreparedFeature[] getPreparedFeatures(Future<PreparedFeature[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.error(e);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
 
-            Object geomObject = geometry.getValue();
-            if (geomObject instanceof Point) {
-                // Sure you could have a Set of 1 object and join these 2 branches of
-                // code, but I feel there would be a performance hit.
-                OsmPrimitive primitive = reader.createOrGetEmptyNode((Point) geomObject);
-                readNonGeometricAttributes(feature, primitive);
-            } else if (geomObject instanceof LineString) {
-                OsmPrimitive primitive = reader.createOrGetWay((LineString) geomObject);
-                readNonGeometricAttributes(feature, primitive);
-            } else if (geomObject instanceof Polygon) {
-                Polygon polygon = (Polygon) geomObject;
-                Way outer = reader.createOrGetWay(polygon.getExteriorRing());
-                Way[] inner = new Way[polygon.getNumInteriorRing()];
-                for (int i = 0; i < inner.length; i++) {
-                    inner[i] = reader.createOrGetWay(polygon.getInteriorRingN(i));
+    /**
+     * Transform the geometries of a page of features to WGS84 and read their attributes. This is called on worker threads,
+     * and must not modify the reader.
+     * @param page The features
+     * @return The prepared features
+     */
+    private PreparedFeature[] prepareFeatures(List<Feature> page) {
+        PreparedFeature[] prepared = new PreparedFeature[page.size()];
+        for (int i = 0; i < prepared.length; i++) {
+            Feature feature = page.get(i);
+            GeometryAttribute geometry = feature.getDefaultGeometryProperty();
+            Object geomObject = geometry != null ? geometry.getValue() : null;
+            Geometry transformed = null;
+            Map<String, String> tags = null;
+            if (geomObject instanceof Geometry) {
+                try {
+                    transformed = JTS.transform((Geometry) geomObject, reader.transform);
+                } catch (TransformException | RuntimeException e) {
+                    // The points are then transformed one by one when the primitives are created, so a single bad point
+                    // is handled as before
+                    Logging.trace(e);
                 }
-                final OsmPrimitive primitive;
-                if (inner.length == 0) {
-                    primitive = outer;
-                } else {
-                    Relation relation = reader.createMultipolygon();
-                    GeographicReader.addWayToMp(relation, "outer", outer);
-                    for (Way iWay : inner) {
-                        GeographicReader.addWayToMp(relation, "inner", iWay);
+                tags = readNonGeometricAttributes(feature);
+            }
+            prepared[i] = new PreparedFeature(feature, transformed, tags);
+        }
+        return prepared;
+    }
+
+    private void findCrs(GeometryAttribute geometry, final Component parent) throws UserCancelException, GeoMathTransformException,
+            FactoryException, GeoCrsException {
+        if (geometry != null && reader.crs == null) {
+            GeometryDescriptor desc = geometry.getDescriptor();
+            if (desc != null && desc.getCoordinateReferenceSystem() != null) {
+                reader.crs = desc.getCoordinateReferenceSystem();
+            } else if (!GraphicsEnvironment.isHeadless()) {
+                GuiHelper.runInEDTAndWait(() -> {
+                    if (0 == JOptionPane.showConfirmDialog(
+                            parent,
+                            tr("Unable to detect Coordinate Reference System.\nWould you like to fallback to ESPG:4326 (WGS 84) ?"),
+                            tr("Warning: CRS not found"),
+                            JOptionPane.YES_NO_CANCEL_OPTION
+                    )) {
+                        reader.crs = wgs84;
                     }
-                    primitive = relation;
-                }
-                readNonGeometricAttributes(feature, primitive);
-            } else if (geomObject instanceof GeometryCollection) { // Deals with both MultiLineString and MultiPolygon
-                Set<OsmPrimitive> primitives = processGeometryCollection((GeometryCollection) geomObject);
-                for (OsmPrimitive prim : primitives) {
-                    readNonGeometricAttributes(feature, prim);
-                }
+                });
+            } else {
+                // Always use WGS84 in headless mode (used for unit tests only)
+                reader.crs = wgs84;
+            }
+            if (reader.crs != null) {
+                reader.findMathTransform(parent, true);
             } else {
-                // Debug unknown geometry
-                Logging.debug("\ttype: "+geometry.getType());
-                Logging.debug("\tbounds: "+geometry.getBounds());
-                Logging.debug("\tdescriptor: "+desc);
-                Logging.debug("\tname: "+geometry.getName());
-                Logging.debug("\tvalue: "+geomObject);
-                Logging.debug("\tid: "+geometry.getIdentifier());
-                Logging.debug("-------------------------------------------------------------");
+                throw new GeoCrsException(tr("Unable to detect CRS !"));
+            }
+        }
+    }
+
+    private void parseFeature(PreparedFeature prepared) throws MismatchedDimensionException, TransformException {
+        featurePrimitives.clear();
+        GeometryAttribute geometry = prepared.feature.getDefaultGeometryProperty();
+        if (geometry != null) {
+            Object geomObject = prepared.geometry != null ? prepared.geometry : geometry.getValue();
+            Map<String, String> tags = prepared.tags;
+            reader.setPreTransformed(prepared.geometry != null);
+            try {
+                if (geomObject instanceof Point) {
+                    // Sure you could have a Set of 1 object and join these 2 branches of
+                    // code, but I feel there would be a performance hit.
+                    OsmPrimitive primitive = reader.createOrGetEmptyNode((Point) geomObject);
+                    putTags(primitive, tags);
+                } else if (geomObject instanceof LineString) {
+                    OsmPrimitive primitive = reader.createOrGetWay((LineString) geomObject);
+                    putTags(primitive, tags);
+                } else if (geomObject instanceof Polygon) {
+                    Polygon polygon = (Polygon) geomObject;
+                    Way outer = reader.createOrGetWay(polygon.getExteriorRing());
+                    Way[] inner = new Way[polygon.getNumInteriorRing()];
+                    for (int i = 0; i < inner.length; i++) {
+                        inner[i] = reader.createOrGetWay(polygon.getInteriorRingN(i));
+                    }
+                    final OsmPrimitive primitive;
+                    if (inner.length == 0) {
+                        primitive = outer;
+                    } else {
+                        Relation relation = reader.createMultipolygon();
+                        GeographicReader.addWayToMp(relation, "outer", outer);
+                        for (Way iWay : inner) {
+                            GeographicReader.addWayToMp(relation, "inner", iWay);
+                        }
+                        primitive = relation;
+                    }
+                    putTags(primitive, tags);
+                } else if (geomObject instanceof GeometryCollection) { // Deals with both MultiLineString and MultiPolygon
+                    Set<OsmPrimitive> primitives = processGeometryCollection((GeometryCollection) geomObject);
+                    for (OsmPrimitive prim : primitives) {
+                        putTags(prim, tags);
+                    }
+                } else {
+                    // Debug unknown geometry
+                    Logging.debug("\ttype: "+geometry.getType());
+                    Logging.debug("\tbounds: "+geometry.getBounds());
+                    Logging.debug("\tdescriptor: "+geometry.getDescriptor());
+                    Logging.debug("\tname: "+geometry.getName());
+                    Logging.debug("\tvalue: "+geomObject);
+                    Logging.debug("\tid: "+geometry.getIdentifier());
+                    Logging.debug("-------------------------------------------------------------");
+                }
+            } finally {
+                reader.setPreTransformed(false);
             }
         }
     }
@@ -274,7 +449,7 @@ public class GeotoolsConverter {
         return primitives;
     }
 
-    private static void readNonGeometricAttributes(Feature feature, OsmPrimitive primitive) {
+    private static Map<String, String> readNonGeometricAttributes(Feature feature) {
         try {
             Collection<Property> properties = feature.getProperties();
             Map<String, String> tagMap = new LinkedHashMap<>(properties.size());
@@ -290,14 +465,37 @@ public class GeotoolsConverter {
                         }
                         if (!sName.isEmpty() && !sValue.isEmpty()) {
                             tagMap.put(sName, sValue);
-                            //primitive.put(sName, sValue);
                         }
                     }
                 }
             }
-            primitive.putAll(tagMap);
+            return tagMap;
         } catch (Exception e) {
             Logging.error(e);
+            return null;
+        }
+    }
+
+    private static void putTags(OsmPrimitive primitive, Map<String, String> tags) {
+        if (tags != null) {
+            primitive.putAll(tags);
+        }
+    }
+
+    /**
+     * A feature with its geometry transformed to WGS84 and its attributes read, ready to be added to the dataset
+     */
+    private static final class PreparedFeature {
+        final Feature feature;
+        /** The geometry transformed to WGS84, or {@code null} if it has to be transformed point by point */
+        final Geometry geometry;
+        /** The tags of the feature, or {@code null} if they could not be read */
+        final Map<String, String> tags;
+
+        PreparedFeature(Feature feature, Geometry geometry, Map<String, String> tags) {
+            this.feature = feature;
+            this.geometry = geometry;
+            this.tags = tags;
         }
     }
 }
@@ -6,14 +6,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.plugins.opendata.core.OdConstants;
 import org.openstreetmap.josm.plugins.opendata.core.datasets.AbstractDataSetHandler;
-import org.openstreetmap.josm.plugins.opendata.core.util.OdUtils;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 public class CsvReader extends SpreadSheetReader {
 
@@ -69,9 +71,56 @@ public class CsvReader extends SpreadSheetReader {
 
     private String[] splitLine() {
         if (line != null) {
-            return OdUtils.stripQuotesAndExtraChars(line.split(sep), sep);
+            return splitLine(line, sep);
         } else {
             return null;
         }
     }
+
+    /**
+     * Splits a CSV line into fields, in a single pass.
+     * A field starting with a double quote may contain the separator, and two double quotes in it stand for one.
+     * As with {@link String#split}, trailing empty fields are removed.
+     * @param line the line to split
+     * @param sep the separator
+     * @return the fields, stripped of exotic characters such as U+FEFF
+     */
+    static String[] splitLine(String line, String sep) {
+        List<String> result = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int length = line.length();
+        // Skip the byte order mark found at the start of some files
+        int i = length > 0 && line.charAt(0) == '\uFEFF' ? 1 : 0;
+        while (i <= length) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                // Quoted field, up to the closing quote
+                i++;
+                while (i < length) {
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            // Unquoted field, or characters after the closing quote
+            int end = line.indexOf(sep, i);
+            if (end < 0) {
+                end = length;
+            }
+            field.append(line, i, end);
+            result.add(Utils.strip(field.toString()));
+            i = end + sep.length();
+        }
+        int size = result.size();
+        while (size > 0 && result.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return result.subList(0, size).toArray(new String[0]);
+    }
 }
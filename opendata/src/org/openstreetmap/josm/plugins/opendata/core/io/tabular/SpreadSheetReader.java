@@ -8,16 +8,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.projection.Projection;
@@ -29,11 +38,16 @@ import org.openstreetmap.josm.plugins.opendata.core.gui.ChooserLauncher;
 import org.openstreetmap.josm.plugins.opendata.core.io.ProjectionPatterns;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 public abstract class SpreadSheetReader extends AbstractReader {
 
-    private static final NumberFormat formatFrance = NumberFormat.getInstance(Locale.FRANCE);
-    private static final NumberFormat formatUK = NumberFormat.getInstance(Locale.UK);
+    // NumberFormat is not thread-safe, and rows are parsed on several threads
+    private static final ThreadLocal<NumberFormat> formatFrance = ThreadLocal.withInitial(() -> NumberFormat.getInstance(Locale.FRANCE));
+    private static final ThreadLocal<NumberFormat> formatUK = ThreadLocal.withInitial(() -> NumberFormat.getInstance(Locale.UK));
+
+    /** Number of rows in each batch of the parsing pipeline */
+    private static final int BATCH_SIZE = 1000;
 
     private static final String COOR = "(\\-?\\d+(?:[\\.,]\\d+)?)";
     // Lat/lon pattern with optional altitude and precision
@@ -47,11 +61,41 @@ public abstract class SpreadSheetReader extends AbstractReader {
     }
 
     protected static double parseDouble(String value) throws ParseException {
-        if (value.contains(",")) {
-            return formatFrance.parse(value.replace(" ", "")).doubleValue();
+        String stripped = value.replace(" ", "");
+        boolean comma = value.contains(",");
+        if (isPlainDecimal(stripped, comma ? ',' : '.')) {
+            // Fast path, giving the same result as the number formats
+            return Double.parseDouble(comma ? stripped.replace(',', '.') : stripped);
+        } else if (comma) {
+            return formatFrance.get().parse(stripped).doubleValue();
         } else {
-            return formatUK.parse(value.replace(" ", "")).doubleValue();
+            return formatUK.get().parse(stripped).doubleValue();
+        }
+    }
+
+    /**
+     * Determines if a value is a plain decimal number: an optional minus sign, digits, and optionally a decimal separator followed by digits.
+     * @param value the value
+     * @param decimalSeparator the decimal separator
+     * @return {@code true} if the value is a plain decimal number
+     */
+    private static boolean isPlainDecimal(String value, char decimalSeparator) {
+        int start = value.startsWith("-") ? 1 : 0;
+        int length = value.length();
+        // Avoid long values, for which the number formats may round differently
+        if (length == start || length - start > 15) {
+            return false;
+        }
+        int separator = -1;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == decimalSeparator && separator < 0 && i > start && i < length - 1) {
+                separator = i;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
         }
+        return true;
     }
 
     protected abstract void initResources(InputStream in, ProgressMonitor progressMonitor) throws IOException;
@@ -176,96 +220,213 @@ public abstract class SpreadSheetReader extends AbstractReader {
         Logging.info("Loading data using projections "+message);
 
         final DataSet ds = new DataSet();
-        int lineNumber = 1;
+        final RowParser parser = new RowParser(header, columns, handlerOK);
+        final int threads = Config.getPref().getInt(OdConstants.PREF_SPREADSHEET_THREADS, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("opendata-spreadsheet-%d", Thread.NORM_PRIORITY))
+                : null;
+        // Rows are read and added to the dataset on this thread, in file order, while batches of rows are parsed and projected
+        // on the worker threads. The number of batches in flight is bounded to keep the memory usage low.
+        final int maxPending = executor != null ? 2 * threads : 1;
+        final Deque<Future<ParsedRow[]>> pending = new ArrayDeque<>(maxPending);
+        try {
+            int lineNumber = 1;
+            List<String[]> batch = new ArrayList<>(BATCH_SIZE);
+            String[] fields;
+            while ((fields = readLine(progressMonitor)) != null) {
+                batch.add(fields);
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(submit(parser, batch, lineNumber, executor));
+                    lineNumber += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    while (pending.size() >= maxPending) {
+                        addRows(ds, header, columns, handlerOK, pending.poll());
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submit(parser, batch, lineNumber, executor));
+            }
+            while (!pending.isEmpty()) {
+                addRows(ds, header, columns, handlerOK, pending.poll());
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        return ds;
+    }
+
+    private static Future<ParsedRow[]> submit(RowParser parser, List<String[]> batch, int lineNumber, ExecutorService executor) {
+        final int firstLine = lineNumber + 1;
+        if (executor == null) {
+            return CompletableFuture.completedFuture(parser.parse(batch, firstLine));
+        }
+        return executor.submit(() -> parser.parse(batch, firstLine));
+    }
+
+    private void addRows(DataSet ds, String[] header, List<CoordinateColumns> columns, boolean handlerOK, Future<ParsedRow[]> future)
+            throws IOException {
+        try {
+            addRows(ds, header, columns, handlerOK, future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
 
-        String[] fields;
-        while ((fields = readLine(progressMonitor)) != null) {
-            lineNumber++;
+    private void addRows(DataSet ds, String[] header, List<CoordinateColumns> columns, boolean handlerOK, ParsedRow[] rows) {
+        final double tolerance = Config.getPref().getDouble(OdConstants.PREF_TOLERANCE, OdConstants.DEFAULT_TOLERANCE);
+        final boolean rawData = Config.getPref().getBoolean(OdConstants.PREF_RAWDATA);
+        for (ParsedRow row : rows) {
+            final int lineNumber = row.lineNumber;
             if (handler != null) {
-                handler.setXCol(-1);
-                handler.setYCol(-1);
+                handler.setXCol(row.xCol);
+                handler.setYCol(row.yCol);
+            }
+
+            if (row.fields.length > header.length) {
+                Logging.warn(
+                        tr("Invalid file. Bad length on line {0}. Expected {1} columns, got {2}.", lineNumber, header.length, row.fields.length));
+                Logging.warn(Arrays.toString(row.fields));
             }
 
-            final Map<CoordinateColumns, EastNorth> ens = new HashMap<>();
             final Map<CoordinateColumns, Node> nodes = new HashMap<>();
             for (CoordinateColumns c : columns) {
-                nodes.put(c, new Node());
-                ens.put(c, new EastNorth(Double.NaN, Double.NaN));
+                Node n = new Node();
+                n.setKeys(row.tags);
+                nodes.put(c, n);
             }
 
-            if (fields.length > header.length) {
-                Logging.warn(
-                        tr("Invalid file. Bad length on line {0}. Expected {1} columns, got {2}.", lineNumber, header.length, fields.length));
-                Logging.warn(Arrays.toString(fields));
+            Node firstNode = null;
+            for (int j = 0; j < columns.size(); j++) {
+                CoordinateColumns c = columns.get(j);
+                Node n = nodes.get(c);
+                EastNorth en = row.eastNorths[j];
+                if (en.isValid()) {
+                    n.setCoor(c.proj != null && !handlerOK ? row.coors[j] : handler != null ? handler.getCoor(en, row.fields) : null);
+                } else {
+                    Logging.warn("Skipping line "+lineNumber+" because no valid coordinates have been found at columns "+c);
+                }
+                if (n.getCoor() != null) {
+                    if (firstNode == null) {
+                        firstNode = n;
+                    }
+                    if (n == firstNode || n.greatCircleDistance(firstNode) > tolerance) {
+                        ds.addPrimitive(n);
+                    } else {
+                        nodes.remove(c);
+                    }
+                }
+            }
+            if (handler != null && !rawData) {
+                handler.nodesAdded(ds, nodes, header, lineNumber);
+            }
+        }
+    }
+
+    /**
+     * A row of the spreadsheet, with its fields parsed
+     */
+    private static final class ParsedRow {
+        final String[] fields;
+        final int lineNumber;
+        /** The tags shared by the nodes of the row */
+        final Map<String, String> tags = new LinkedHashMap<>();
+        /** The coordinates read for each coordinate column */
+        final EastNorth[] eastNorths;
+        /** The coordinates projected for each coordinate column, when the handler does not handle the projection */
+        final LatLon[] coors;
+        int xCol = -1;
+        int yCol = -1;
+
+        ParsedRow(String[] fields, int lineNumber, int columns) {
+            this.fields = fields;
+            this.lineNumber = lineNumber;
+            this.eastNorths = new EastNorth[columns];
+            this.coors = new LatLon[columns];
+        }
+    }
+
+    /**
+     * Parses the fields and coordinates of rows. This does not depend on the handler, so that batches of rows can be parsed in parallel.
+     */
+    private static final class RowParser {
+        private final String[] header;
+        private final List<CoordinateColumns> columns;
+        private final boolean handlerOK;
+
+        RowParser(String[] header, List<CoordinateColumns> columns, boolean handlerOK) {
+            this.header = header;
+            this.columns = columns;
+            this.handlerOK = handlerOK;
+        }
+
+        ParsedRow[] parse(List<String[]> batch, int firstLine) {
+            ParsedRow[] rows = new ParsedRow[batch.size()];
+            for (int r = 0; r < rows.length; r++) {
+                rows[r] = parse(batch.get(r), firstLine + r);
             }
+            return rows;
+        }
+
+        private ParsedRow parse(String[] fields, int lineNumber) {
+            final ParsedRow row = new ParsedRow(fields, lineNumber, columns.size());
+            final double[] east = new double[columns.size()];
+            final double[] north = new double[columns.size()];
+            Arrays.fill(east, Double.NaN);
+            Arrays.fill(north, Double.NaN);
 
             for (int i = 0; i < Math.min(fields.length, header.length); i++) {
                 try {
                     boolean coordinate = false;
-                    for (CoordinateColumns c : columns) {
-                        EastNorth en = ens.get(c);
+                    for (int j = 0; j < columns.size(); j++) {
+                        CoordinateColumns c = columns.get(j);
                         if (i == c.xCol && i == c.yCol) {
                             Matcher m = LATLON_PATTERN.matcher(fields[i]);
                             if (m.matches()) {
                                 coordinate = true;
-                                ens.put(c, new EastNorth(parseDouble(m.group(2)), parseDouble(m.group(1))));
-                                if (handler != null) {
-                                    handler.setXCol(i);
-                                    handler.setYCol(i);
-                                }
+                                double x = parseDouble(m.group(2));
+                                north[j] = parseDouble(m.group(1));
+                                east[j] = x;
+                                row.xCol = i;
+                                row.yCol = i;
                             }
                         } else if (i == c.xCol) {
                             coordinate = true;
-                            ens.put(c, new EastNorth(parseDouble(fields[i]), en.north()));
-                            if (handler != null) {
-                                handler.setXCol(i);
-                            }
+                            east[j] = parseDouble(fields[i]);
+                            row.xCol = i;
                         } else if (i == c.yCol) {
                             coordinate = true;
-                            ens.put(c, new EastNorth(en.east(), parseDouble(fields[i])));
-                            if (handler != null) {
-                                handler.setYCol(i);
-                            }
+                            north[j] = parseDouble(fields[i]);
+                            row.yCol = i;
                         }
                     }
-                    if (!coordinate) {
-                        if (!fields[i].isEmpty()) {
-                            for (Node n : nodes.values()) {
-                                n.put(header[i], fields[i]);
-                            }
-                        }
+                    if (!coordinate && !fields[i].isEmpty()) {
+                        row.tags.put(header[i], fields[i]);
                     }
                 } catch (ParseException e) {
                     Logging.warn("Parsing error on line "+lineNumber+": "+e.getMessage());
                 }
             }
-            Node firstNode = null;
-            for (CoordinateColumns c : columns) {
-                Node n = nodes.get(c);
-                EastNorth en = ens.get(c);
-                if (en.isValid()) {
-                    n.setCoor(c.proj != null && !handlerOK ? c.proj.eastNorth2latlon(en) : handler != null ? handler.getCoor(en, fields) : null);
-                } else {
-                    Logging.warn("Skipping line "+lineNumber+" because no valid coordinates have been found at columns "+c);
-                }
-                if (n.getCoor() != null) {
-                    if (firstNode == null) {
-                        firstNode = n;
-                    }
-                    if (n == firstNode || n.greatCircleDistance(firstNode)
-                            > Config.getPref().getDouble(OdConstants.PREF_TOLERANCE, OdConstants.DEFAULT_TOLERANCE)) {
-                        ds.addPrimitive(n);
-                    } else {
-                        nodes.remove(c);
-                    }
+
+            for (int j = 0; j < columns.size(); j++) {
+                CoordinateColumns c = columns.get(j);
+                EastNorth en = new EastNorth(east[j], north[j]);
+                row.eastNorths[j] = en;
+                if (en.isValid() && c.proj != null && !handlerOK) {
+                    row.coors[j] = c.proj.eastNorth2latlon(en);
                 }
             }
-            if (handler != null && !Config.getPref().getBoolean(OdConstants.PREF_RAWDATA)) {
-                handler.nodesAdded(ds, nodes, header, lineNumber);
-            }
+            return row;
         }
-
-        return ds;
     }
 
     public final DataSet parse(InputStream in, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
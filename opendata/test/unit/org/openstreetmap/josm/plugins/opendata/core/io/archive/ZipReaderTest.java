@@ -1,17 +1,24 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.opendata.core.io.archive;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.plugins.opendata.core.OdConstants;
 import org.openstreetmap.josm.plugins.opendata.core.io.NonRegFunctionalTests;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 import org.openstreetmap.josm.tools.Logging;
@@ -41,4 +48,33 @@ class ZipReaderTest {
             }
         }
     }
+
+    /**
+     * Test that reading a local zip file directly, and parsing its documents in parallel, gives the same documents as reading a stream
+     * @throws Exception if an error occurs during reading
+     */
+    @Test
+    void testReadZipFilesDirectly() throws Exception {
+        Config.getPref().putInt(OdConstants.PREF_ARCHIVE_THREADS, 4);
+        try {
+            for (Path p : NonRegFunctionalTests.listDataFiles("zip")) {
+                File zipfile = p.toFile();
+                Map<File, DataSet> fromStream;
+                try (InputStream is = Files.newInputStream(zipfile.toPath())) {
+                    fromStream = ZipReader.parseDataSets(is, null, null, false);
+                }
+                Map<File, DataSet> fromFile = new ZipReader(zipfile, null, false).parseDocs(null);
+                assertEquals(names(fromStream), names(fromFile), zipfile.getName());
+                for (Entry<File, DataSet> entry : fromFile.entrySet()) {
+                    NonRegFunctionalTests.testGeneric(zipfile.getName()+"/"+entry.getKey().getName(), entry.getValue());
+                }
+            }
+        } finally {
+            Config.getPref().put(OdConstants.PREF_ARCHIVE_THREADS, null);
+        }
+    }
+
+    private static Set<String> names(Map<File, DataSet> datasets) {
+        return datasets.keySet().stream().map(File::getName).collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,188 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.opendata.core.io.geographic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.DuplicateWay;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Unit tests of {@link GeographicReader} class.
+ */
+@BasicPreferences
+@Projection
+class GeographicReaderTest {
+    private static final double PRECISION = ILatLon.MAX_SERVER_PRECISION;
+    /** A latitude and a longitude on the boundaries of the node grid, whose cells are twice the precision wide */
+    private static final double LAT = 225_000_000 * 2 * PRECISION;
+    private static final double LON = 10_000_000 * 2 * PRECISION;
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    private static ShpReader newReader() {
+        DefaultShpHandler handler = new DefaultShpHandler();
+        handler.setCheckNodeProximity(true);
+        ShpReader reader = new ShpReader(handler);
+        reader.setPreTransformed(true);
+        return reader;
+    }
+
+    private Point point(double lat, double lon) {
+        return factory.createPoint(new Coordinate(lon, lat));
+    }
+
+    /**
+     * The nodes merged with a new point before the node grid, by comparing the point to all nodes
+     */
+    private static List<Node> linearScan(List<Node> nodes, double lat, double lon) {
+        LatLon ll = new LatLon(lat, lon);
+        return nodes.stream().filter(node -> node.equalsEpsilon(ll, PRECISION)).collect(Collectors.toList());
+    }
+
+    /**
+     * Unit test of node proximity matching, with close nodes on either side of a cell boundary of the node grid.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testNodeProximityAcrossGridCells() throws Exception {
+        ShpReader reader = newReader();
+        Node node = reader.createOrGetNode(point(LAT - 0.4 * PRECISION, LON - 0.4 * PRECISION));
+        // close nodes in the next cells, in latitude, longitude, and both
+        assertSame(node, reader.createOrGetNode(point(LAT + 0.4 * PRECISION, LON - 0.4 * PRECISION)));
+        assertSame(node, reader.createOrGetNode(point(LAT - 0.4 * PRECISION, LON + 0.4 * PRECISION)));
+        assertSame(node, reader.createOrGetNode(point(LAT + 0.4 * PRECISION, LON + 0.4 * PRECISION)));
+        // too far, although in the next cell
+        Node other = reader.createOrGetNode(point(LAT + 1.5 * PRECISION, LON - 0.4 * PRECISION));
+        assertNotSame(node, other);
+        assertSame(other, reader.createOrGetNode(point(LAT + 1.5 * PRECISION, LON - 0.4 * PRECISION)));
+    }
+
+    /**
+     * Unit test of node proximity matching, compared to a linear scan of all nodes, with points around cell boundaries.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testNodeProximityLikeLinearScan() throws Exception {
+        ShpReader reader = newReader();
+        Random random = new Random(12345);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 20 * PRECISION;
+            double lon = LON + (random.nextDouble() - 0.5) * 20 * PRECISION;
+            List<Node> expected = linearScan(nodes, lat, lon);
+            Node node = reader.createOrGetNode(point(lat, lon));
+            if (expected.isEmpty()) {
+                assertFalse(nodes.contains(node), "new node expected at " + lat + ", " + lon);
+                nodes.add(node);
+            } else {
+                // the linear scan returned any of the close nodes
+                assertTrue(expected.contains(node), "close node expected at " + lat + ", " + lon);
+            }
+        }
+        // some points are merged, some are not
+        assertTrue(nodes.size() > 10);
+        assertTrue(nodes.size() < 2000);
+        assertEquals(nodes.size(), nodes.stream().distinct().count());
+    }
+
+    /**
+     * The way duplicated by new nodes before the way index, by comparing them to all ways referring to their first node
+     */
+    private static Way linearDuplicate(List<Node> nodes) {
+        Way tempWay = new Way();
+        tempWay.setNodes(nodes);
+        try {
+            List<LatLon> tempNodes = DuplicateWay.getOrderedNodes(tempWay);
+            for (Way candidate : Utils.filteredCollection(tempWay.firstNode().getReferrers(), Way.class)) {
+                if (candidate != tempWay && candidate.getDataSet() != null) {
+                    List<LatLon> candNodesA = DuplicateWay.getOrderedNodes(candidate);
+                    List<LatLon> candNodesB = new ArrayList<>(candNodesA);
+                    Collections.reverse(candNodesB);
+                    if (tempNodes.equals(candNodesA) || tempNodes.equals(candNodesB)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            tempWay.setNodes(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Read a way, and check that it is merged with the same way as with the comparison to all ways referring to its first node
+     */
+    private Way createOrGetWay(ShpReader reader, List<Way> ways, double[]... points) throws Exception {
+        List<Node> nodes = new ArrayList<>();
+        Coordinate[] coordinates = new Coordinate[points.length];
+        for (int i = 0; i < points.length; i++) {
+            nodes.add(reader.createOrGetNode(point(points[i][0], points[i][1])));
+            coordinates[i] = new Coordinate(points[i][1], points[i][0]);
+        }
+        Way expected = linearDuplicate(nodes);
+        LineString ls = factory.createLineString(coordinates);
+        Way way = reader.createOrGetWay(ls);
+        if (expected == null) {
+            assertFalse(ways.contains(way));
+            ways.add(way);
+        } else {
+            assertSame(expected, way);
+        }
+        return way;
+    }
+
+    /**
+     * Unit test of duplicate way detection, with reversed ways and ways with the same fingerprint which are not duplicates.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testDuplicateWays() throws Exception {
+        ShpReader reader = newReader();
+        List<Way> ways = new ArrayList<>();
+        double[] a = {LAT, LON};
+        double[] b = {LAT + 0.001, LON};
+        double[] c = {LAT + 0.001, LON + 0.001};
+        double[] d = {LAT, LON + 0.001};
+
+        Way line = createOrGetWay(reader, ways, a, b, c);
+        assertSame(line, createOrGetWay(reader, ways, a, b, c));
+        // reversed duplicate
+        assertSame(line, createOrGetWay(reader, ways, c, b, a));
+        // same nodes in another order, so same fingerprint, but not duplicates
+        assertNotSame(line, createOrGetWay(reader, ways, a, c, b));
+        assertNotSame(line, createOrGetWay(reader, ways, b, a, c));
+
+        Way ring = createOrGetWay(reader, ways, a, b, c, d, a);
+        // rotated and reversed duplicates
+        assertSame(ring, createOrGetWay(reader, ways, b, c, d, a, b));
+        assertSame(ring, createOrGetWay(reader, ways, a, d, c, b, a));
+        assertSame(ring, createOrGetWay(reader, ways, c, b, a, d, c));
+        // same nodes in another order, but not duplicates
+        Way crossed = createOrGetWay(reader, ways, a, c, b, d, a);
+        assertNotSame(ring, crossed);
+        assertSame(crossed, createOrGetWay(reader, ways, d, b, c, a, d));
+
+        assertEquals(5, ways.size());
+    }
+}
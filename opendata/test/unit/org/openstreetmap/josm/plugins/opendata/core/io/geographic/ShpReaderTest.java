@@ -19,7 +19,9 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.plugins.opendata.core.io.NonRegFunctionalTests;
@@ -120,4 +122,32 @@ class ShpReaderTest {
             assertEquals("Westminster city", way.get("NAMELSAD"));
         }
     }
+
+    /**
+     * Test that features outside of the reader bounds are not imported
+     * @throws Exception if an error occurs during reading
+     */
+    @Test
+    void testBounds() throws Exception {
+        File file = new File(TestUtils.getRegressionDataFile(12714, "linhas.shp"));
+        DataSet all = new ShpReader(null).parse(file, null);
+        assertFalse(all.getWays().isEmpty());
+
+        Bounds extent = null;
+        for (Node n : all.getNodes()) {
+            if (extent == null) {
+                extent = new Bounds(n.lat(), n.lon(), n.lat(), n.lon());
+            } else {
+                extent.extend(n.lat(), n.lon());
+            }
+        }
+        ShpReader extentReader = new ShpReader(null);
+        extentReader.setBounds(new Bounds(extent.getMinLat() - 0.01, extent.getMinLon() - 0.01,
+                extent.getMaxLat() + 0.01, extent.getMaxLon() + 0.01));
+        assertEquals(all.getWays().size(), extentReader.parse(file, null).getWays().size());
+
+        ShpReader emptyReader = new ShpReader(null);
+        emptyReader.setBounds(new Bounds(-89.99, -179.99, -89.98, -179.98));
+        assertTrue(emptyReader.parse(file, null).getWays().isEmpty());
+    }
 }
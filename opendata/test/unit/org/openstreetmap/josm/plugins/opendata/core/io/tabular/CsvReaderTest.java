@@ -1,6 +1,8 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.opendata.core.io.tabular;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
 import java.io.InputStream;
 
 import org.junit.jupiter.api.Test;
@@ -88,4 +90,15 @@ class CsvReaderTest {
             NonRegFunctionalTests.testGeneric("#8805", CsvReader.parseDataSet(is, newHandler("EPSG:4326"), null));
         }
     }
+
+    /**
+     * Unit test of {@link CsvReader#splitLine(String, String)}
+     */
+    @Test
+    void testSplitLine() {
+        assertArrayEquals(new String[] {"a", "b", "", "c"}, CsvReader.splitLine("a;b;;c;;", ";"));
+        assertArrayEquals(new String[] {"a;b", "c \"d\"", "e"}, CsvReader.splitLine("\"a;b\";\"c \"\"d\"\"\";e", ";"));
+        assertArrayEquals(new String[] {"1,5", "x"}, CsvReader.splitLine("\uFEFF\"1,5\",x", ","));
+        assertArrayEquals(new String[] {"unterminated,quote"}, CsvReader.splitLine("\"unterminated,quote", ","));
+    }
 }
@@ -0,0 +1,146 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pbf.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.tools.Utils;
+
+import com.google.protobuf.ByteString;
+
+import crosby.binary.Fileformat;
+import crosby.binary.file.BlockOutputStream;
+import crosby.binary.file.FileBlock;
+
+/**
+ * Block output stream compressing and framing blocks on a bounded pool of worker threads.
+ * Blocks are still written to the underlying stream in the order they have been submitted.
+ */
+class PbfBlockOutputStream extends BlockOutputStream {
+
+    private final OutputStream out;
+    private final int compressionLevel;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending;
+
+    /**
+     * Constructs a new {@code PbfBlockOutputStream}.
+     * @param out output stream
+     * @param compressionLevel zlib compression level, from {@link Deflater#NO_COMPRESSION} (raw blobs)
+     *        to {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param threads number of compression threads. If 1 or less, blocks are compressed on the calling thread
+     */
+    PbfBlockOutputStream(OutputStream out, int compressionLevel, int threads) {
+        super(out);
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.out = out;
+        this.compressionLevel = compressionLevel;
+        this.executor = threads > 1
+                ? Executors.newFixedThreadPool(threads, Utils.newThreadFactory("pbf-compressor-%d", Thread.NORM_PRIORITY))
+                : null;
+        this.maxPending = 2 * Math.max(threads, 1);
+        this.pending = new ArrayDeque<>(maxPending);
+    }
+
+    @Override
+    public void write(FileBlock block) throws IOException {
+        String type = block.getType();
+        ByteString data = block.getData();
+        if (executor == null) {
+            out.write(frame(type, data));
+        } else {
+            pending.add(executor.submit(() -> frame(type, data)));
+            if (pending.size() >= maxPending) {
+                writeNext();
+            }
+        }
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            out.write(pending.poll().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Compresses the given block data and frames it with its blob header.
+     * @param type block type
+     * @param data uncompressed block data
+     * @return the framed block, ready to be written
+     * @throws IOException if an I/O error occurs
+     */
+    private byte[] frame(String type, ByteString data) throws IOException {
+        Fileformat.Blob.Builder blob = Fileformat.Blob.newBuilder();
+        if (compressionLevel == Deflater.NO_COMPRESSION) {
+            blob.setRaw(data);
+        } else {
+            Deflater deflater = new Deflater(compressionLevel);
+            try {
+                deflater.setInput(data.toByteArray());
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 2 + 64);
+                byte[] buffer = new byte[64 * 1024];
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                blob.setZlibData(ByteString.copyFrom(compressed.toByteArray()));
+                blob.setRawSize(data.size());
+            } finally {
+                deflater.end();
+            }
+        }
+        ByteString blobBytes = blob.build().toByteString();
+        ByteString headerBytes = Fileformat.BlobHeader.newBuilder()
+                .setType(type)
+                .setDatasize(blobBytes.size())
+                .build().toByteString();
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(4 + headerBytes.size() + blobBytes.size());
+        DataOutputStream dos = new DataOutputStream(framed);
+        dos.writeInt(headerBytes.size());
+        headerBytes.writeTo(dos);
+        blobBytes.writeTo(dos);
+        dos.flush();
+        return framed.toByteArray();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pbf.io;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.osm.Tagged;
+
+/**
+ * Filter applied by {@link PbfReader} while streaming a PBF file.
+ * <p>
+ * Nodes outside the area are dropped as soon as they are decoded. Ways and relations are kept only if they
+ * refer to at least one kept primitive and match the optional tag filter. When a tag filter is set,
+ * kept nodes that neither match it nor are referenced by a kept way or relation are dropped at the end of parsing.
+ */
+public class PbfFilter {
+
+    private final Bounds bounds;
+    private final Area area;
+    private final Predicate<Tagged> tagFilter;
+
+    /**
+     * Constructs a new {@code PbfFilter} for a bounding box.
+     * @param bounds bounding box of data to keep. Must not be null
+     * @param tagFilter optional tag filter applied to ways and relations, and to nodes not member of kept ways. Can be null
+     */
+    public PbfFilter(Bounds bounds, Predicate<Tagged> tagFilter) {
+        this.bounds = Objects.requireNonNull(bounds);
+        this.area = null;
+        this.tagFilter = tagFilter;
+    }
+
+    /**
+     * Constructs a new {@code PbfFilter} for a polygon.
+     * @param area polygon of data to keep, in lat/lon coordinates (x is longitude, y is latitude). Must not be null
+     * @param tagFilter optional tag filter applied to ways and relations, and to nodes not member of kept ways. Can be null
+     */
+    public PbfFilter(Area area, Predicate<Tagged> tagFilter) {
+        Rectangle2D r = area.getBounds2D();
+        this.bounds = new Bounds(r.getMinY(), r.getMinX(), r.getMaxY(), r.getMaxX());
+        this.area = area;
+        this.tagFilter = tagFilter;
+    }
+
+    /**
+     * Returns the bounding box of data to keep.
+     * @return the bounding box of data to keep
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Determines if the given coordinates are inside the filtered area.
+     * @param coor coordinates
+     * @return {@code true} if the coordinates are inside the filtered area
+     */
+    public boolean contains(ILatLon coor) {
+        return coor != null && coor.isLatLonKnown() && bounds.contains(coor)
+                && (area == null || area.contains(coor.lon(), coor.lat()));
+    }
+
+    /**
+     * Determines if a tag filter is set.
+     * @return {@code true} if a tag filter is set
+     */
+    public boolean hasTagFilter() {
+        return tagFilter != null;
+    }
+
+    /**
+     * Determines if the given primitive matches the tag filter.
+     * @param tagged tagged primitive
+     * @return {@code true} if the primitive matches the tag filter, or if no tag filter is set
+     */
+    public boolean matches(Tagged tagged) {
+        return tagFilter == null || tagFilter.test(tagged);
+    }
+}
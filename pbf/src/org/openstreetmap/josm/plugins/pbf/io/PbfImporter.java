@@ -30,6 +30,18 @@ public class PbfImporter extends OsmImporter {
         return PbfReader.parseDataSet(in, progressMonitor);
     }
 
+    /**
+     * Parses the given input stream, keeping only the data matching the given filter.
+     * @param in input stream
+     * @param progressMonitor progress monitor
+     * @param filter filter applied while streaming the file. If null, the whole file is read
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data
+     */
+    public DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor, PbfFilter filter) throws IllegalDataException {
+        return PbfReader.parseDataSet(in, progressMonitor, filter);
+    }
+
     protected DataSet parseDataSet(final String source) throws IOException, IllegalDataException {
         try (CachedFile cf = new CachedFile(source)) {
             return parseDataSet(cf.getInputStream(), NullProgressMonitor.INSTANCE);
@@ -3,27 +3,43 @@ package org.openstreetmap.josm.plugins.pbf.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.User;
 import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.AbstractReader;
@@ -31,8 +47,10 @@ import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.ImportCancelException;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 import crosby.binary.BinaryParser;
+import crosby.binary.Fileformat;
 import crosby.binary.Osmformat;
 import crosby.binary.Osmformat.DenseInfo;
 import crosby.binary.Osmformat.DenseNodes;
@@ -80,7 +98,7 @@ public class PbfReader extends AbstractReader {
                     double maxlon = parseRawDegrees(bbox.getRight());
                     Bounds b = new Bounds(minlat, minlon, maxlat, maxlon);
                     if (!b.isCollapsed() && areCoordinatesValid(minlat, minlon, maxlat, maxlon)) {
-                        ds.addDataSource(new DataSource(b, header.getSource()));
+                        ds.addDataSource(new DataSource(filter != null ? filter.getBounds() : b, header.getSource()));
                     } else {
                         Logging.error("Invalid Bounds: "+b);
                     }
@@ -190,7 +208,7 @@ public class PbfReader extends AbstractReader {
                             }
                         }
                         nd.setKeys(keys);
-                        buildPrimitive(nd);
+                        addPrimitive(nd);
                     }
                 } catch (IllegalDataException e) {
                     exception = e;
@@ -216,7 +234,7 @@ public class PbfReader extends AbstractReader {
                             keys.put(getStringById(n.getKeys(i)), getStringById(n.getVals(i)));
                         }
                         nd.setKeys(keys);
-                        buildPrimitive(nd);
+                        addPrimitive(nd);
                     }
                 } catch (IllegalDataException e) {
                     exception = e;
@@ -246,8 +264,7 @@ public class PbfReader extends AbstractReader {
                             id += idDelta;
                             nodeIds.add(id);
                         }
-                        ways.put(wd.getUniqueId(), nodeIds);
-                        buildPrimitive(wd);
+                        addWay(wd, nodeIds);
                     }
                 } catch (IllegalDataException e) {
                     exception = e;
@@ -280,13 +297,50 @@ public class PbfReader extends AbstractReader {
                                     mapOsmType(r.getTypes(i)),
                                     memId));
                         }
-                        relations.put(rd.getUniqueId(), members);
-                        buildPrimitive(rd);
+                        addRelation(rd, members);
                     }
                 } catch (IllegalDataException e) {
                     exception = e;
                 }
             }
+            applyUploadPolicy();
+        }
+
+        /**
+         * Called for each decoded node. Builds the primitive immediately, unless filtered out.
+         * @param pd node data
+         */
+        protected void addPrimitive(PrimitiveData pd) {
+            if (filter == null || filter.contains(((NodeData) pd).getCoor())) {
+                buildPrimitive(pd);
+            }
+        }
+
+        /**
+         * Called for each decoded way. Builds the primitive immediately, unless filtered out.
+         * @param wd way data
+         * @param nodeIds way node ids
+         */
+        protected void addWay(WayData wd, Collection<Long> nodeIds) {
+            if (filter == null || (filter.matches(wd) && nodeIds.stream().anyMatch(id -> isKept(id, OsmPrimitiveType.NODE)))) {
+                ways.put(wd.getUniqueId(), nodeIds);
+                buildPrimitive(wd);
+            }
+        }
+
+        /**
+         * Called for each decoded relation. Builds the primitive immediately, unless filtered out.
+         * @param rd relation data
+         * @param members relation members
+         */
+        protected void addRelation(RelationData rd, Collection<RelationMemberData> members) {
+            if (filter == null || (filter.matches(rd) && members.stream().anyMatch(m -> isKept(m.getMemberId(), m.getMemberType())))) {
+                relations.put(rd.getUniqueId(), members);
+                buildPrimitive(rd);
+            }
+        }
+
+        protected void applyUploadPolicy() {
             if (discourageUpload)
                 ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
         }
@@ -306,13 +360,86 @@ public class PbfReader extends AbstractReader {
 
         @Override
         public void complete() {
-            if (discourageUpload)
-                ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            applyUploadPolicy();
         }
     }
 
+    /**
+     * Parser decoding a single data block on a worker thread.
+     * Decoded primitives are buffered so they can be merged into the data set in file order.
+     */
+    private final class BlockDecoder extends PbfParser implements Callable<BlockDecoder> {
+
+        private final byte[] blob;
+        private final List<PrimitiveData> primitives = new ArrayList<>();
+        private final Map<Long, Collection<Long>> blockWays = new HashMap<>();
+        private final Map<Long, Collection<RelationMemberData>> blockRelations = new HashMap<>();
+
+        BlockDecoder(byte[] blob) {
+            this.blob = blob;
+        }
+
+        @Override
+        public BlockDecoder call() throws IOException {
+            if (!cancel) {
+                parse(Osmformat.PrimitiveBlock.parseFrom(inflateBlob(blob)));
+            }
+            return this;
+        }
+
+        @Override
+        protected void addPrimitive(PrimitiveData pd) {
+            primitives.add(pd);
+        }
+
+        @Override
+        protected void addWay(WayData wd, Collection<Long> nodeIds) {
+            blockWays.put(wd.getUniqueId(), nodeIds);
+            primitives.add(wd);
+        }
+
+        @Override
+        protected void addRelation(RelationData rd, Collection<RelationMemberData> members) {
+            blockRelations.put(rd.getUniqueId(), members);
+            primitives.add(rd);
+        }
+
+        @Override
+        protected void applyUploadPolicy() {
+            // Upload policy is set by the reading thread when merging the block
+        }
+    }
+
+    /**
+     * Number of threads used to inflate and decode data blocks. A value of 1 disables parallel decoding.
+     */
+    public static final IntegerProperty DECODER_THREADS = new IntegerProperty("pbf.reader.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    /** Maximum size of a BlobHeader, as defined by the PBF specification */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    /** Maximum size of a Blob, as defined by the PBF specification */
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private final PbfFilter filter;
+
     private PbfParser parser = new PbfParser();
 
+    /**
+     * Constructs a new {@code PbfReader} reading the whole file.
+     */
+    public PbfReader() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@code PbfReader} keeping only the data matching the given filter.
+     * @param filter filter applied while streaming the file. Can be null
+     */
+    public PbfReader(PbfFilter filter) {
+        this.filter = filter;
+    }
+
     /**
      * Parse the given input source and return the dataset.
      *
@@ -324,9 +451,25 @@ public class PbfReader extends AbstractReader {
      * @throws IllegalArgumentException thrown if source is null
      */
     public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return parseDataSet(source, progressMonitor, null);
+    }
+
+    /**
+     * Parse the given input source and return the dataset, keeping only the data matching the given filter.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor  the progress monitor. If null, {link NullProgressMonitor#INSTANCE} is assumed
+     * @param filter filter applied while streaming the file. If null, the whole file is read
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException thrown if the an error was found while parsing the data from the source
+     * @throws IllegalArgumentException thrown if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor, PbfFilter filter)
+            throws IllegalDataException {
         ProgressMonitor monitor = progressMonitor == null ? NullProgressMonitor.INSTANCE : progressMonitor;
         CheckParameterUtil.ensureParameterNotNull(source, "source");
-        return new PbfReader().doParseDataSet(source, monitor);
+        return new PbfReader(filter).doParseDataSet(source, monitor);
     }
 
     @Override
@@ -366,10 +509,148 @@ public class PbfReader extends AbstractReader {
 
     @SuppressWarnings("resource")
     public void parse(InputStream source) throws IOException, IllegalDataException {
-        new BlockInputStream(source, parser).process();
+        int threads = DECODER_THREADS.get();
+        if (threads > 1) {
+            parseParallel(source, threads);
+        } else {
+            new BlockInputStream(source, parser).process();
+        }
         if (parser.exception != null) {
             throw parser.exception;
         }
+        if (filter != null && filter.hasTagFilter()) {
+            pruneNodes();
+        }
+    }
+
+    /**
+     * Reads the blob framing sequentially and hands inflation and decoding of data blocks to a pool of workers.
+     * Decoded blocks are merged into the data set in file order.
+     * @param source the source input stream
+     * @param threads number of decoding threads
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if invalid data is found
+     */
+    private void parseParallel(InputStream source, int threads) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(source);
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("pbf-decoder-%d", Thread.NORM_PRIORITY));
+        // Bound the number of blocks in flight, so that memory usage does not depend on file size
+        int maxPending = 2 * threads;
+        Deque<Future<BlockDecoder>> pending = new ArrayDeque<>(maxPending);
+        try {
+            Fileformat.BlobHeader header;
+            while (!cancel && parser.exception == null && (header = readBlobHeader(in)) != null) {
+                if (header.getDatasize() < 0 || header.getDatasize() > MAX_BLOB_SIZE) {
+                    throw new IOException(tr("Invalid blob size: {0}", header.getDatasize()));
+                }
+                byte[] blob = new byte[header.getDatasize()];
+                in.readFully(blob);
+                switch (header.getType()) {
+                case "OSMHeader":
+                    parser.parse(HeaderBlock.parseFrom(inflateBlob(blob)));
+                    break;
+                case "OSMData":
+                    pending.add(executor.submit(new BlockDecoder(blob)));
+                    if (pending.size() >= maxPending) {
+                        merge(pending.poll());
+                    }
+                    break;
+                default:
+                    // Unknown blob types must be skipped, as stated by the specification
+                    Logging.debug("Skipping unknown PBF blob type: {0}", header.getType());
+                }
+            }
+            while (!cancel && !pending.isEmpty()) {
+                merge(pending.poll());
+            }
+            parser.complete();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void merge(Future<BlockDecoder> future) throws IOException, IllegalDataException {
+        BlockDecoder decoder;
+        try {
+            decoder = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        if (decoder.exception != null) {
+            throw decoder.exception;
+        }
+        parser.discourageUpload |= decoder.discourageUpload;
+        for (PrimitiveData pd : decoder.primitives) {
+            if (pd instanceof WayData) {
+                parser.addWay((WayData) pd, decoder.blockWays.get(pd.getUniqueId()));
+            } else if (pd instanceof RelationData) {
+                parser.addRelation((RelationData) pd, decoder.blockRelations.get(pd.getUniqueId()));
+            } else {
+                parser.addPrimitive(pd);
+            }
+        }
+    }
+
+    private boolean isKept(long id, OsmPrimitiveType type) {
+        return type != null && externalIdMap.containsKey(new SimplePrimitiveId(id, type));
+    }
+
+    /**
+     * Drops the kept nodes that neither match the tag filter nor are referenced by a kept way or relation.
+     */
+    private void pruneNodes() {
+        Set<Long> referencedNodes = new HashSet<>();
+        ways.values().forEach(referencedNodes::addAll);
+        relations.values().stream().flatMap(Collection::stream)
+            .filter(m -> m.getMemberType() == OsmPrimitiveType.NODE)
+            .forEach(m -> referencedNodes.add(m.getMemberId()));
+        externalIdMap.values().removeIf(p -> p instanceof Node && !referencedNodes.contains(p.getUniqueId())
+                && (!p.hasKeys() || !filter.matches(p)));
+    }
+
+    private static Fileformat.BlobHeader readBlobHeader(DataInputStream in) throws IOException {
+        int headerSize;
+        try {
+            headerSize = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+            throw new IOException(tr("Invalid blob header size: {0}", headerSize));
+        }
+        byte[] header = new byte[headerSize];
+        in.readFully(header);
+        return Fileformat.BlobHeader.parseFrom(header);
+    }
+
+    private static byte[] inflateBlob(byte[] data) throws IOException {
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(data);
+        if (blob.hasRaw()) {
+            return blob.getRaw().toByteArray();
+        } else if (blob.hasZlibData()) {
+            byte[] raw = new byte[blob.getRawSize()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(blob.getZlibData().toByteArray());
+                int size = inflater.inflate(raw);
+                if (size != raw.length || !inflater.finished()) {
+                    throw new IOException(tr("Invalid zlib blob size: {0}", size));
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.end();
+            }
+            return raw;
+        }
+        throw new IOException(tr("Unsupported PBF blob compression"));
     }
 
     /**
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -18,6 +19,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Logging;
 
@@ -35,14 +37,37 @@ import crosby.binary.file.FileBlock;
  */
 public class PbfWriter implements Closeable {
 
+    /**
+     * Zlib compression level of data blocks, from 0 (no compression) to 9, or -1 for the default level.
+     */
+    public static final IntegerProperty COMPRESSION_LEVEL = new IntegerProperty("pbf.writer.compression",
+            Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * Number of threads used to compress and write data blocks. A value of 1 disables parallel compression.
+     */
+    public static final IntegerProperty COMPRESSOR_THREADS = new IntegerProperty("pbf.writer.threads",
+            Runtime.getRuntime().availableProcessors());
+
     private final PbfSerializer out;
 
     /**
-     * Constructs a new {@code PbfWriter}.
+     * Constructs a new {@code PbfWriter} using compression settings from preferences.
      * @param out output stream
      */
     public PbfWriter(OutputStream out) {
-        this.out = new PbfSerializer(new BlockOutputStream(out));
+        this(out, COMPRESSION_LEVEL.get(), COMPRESSOR_THREADS.get());
+    }
+
+    /**
+     * Constructs a new {@code PbfWriter}.
+     * @param out output stream
+     * @param compressionLevel zlib compression level of data blocks,
+     *        from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param threads number of threads used to compress and write data blocks
+     */
+    public PbfWriter(OutputStream out, int compressionLevel, int threads) {
+        this.out = new PbfSerializer(new PbfBlockOutputStream(out, compressionLevel, threads));
     }
 
     // Copied from OsmosisSerializer (public domain)
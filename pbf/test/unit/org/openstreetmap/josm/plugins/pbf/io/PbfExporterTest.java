@@ -2,12 +2,16 @@
 package org.openstreetmap.josm.plugins.pbf.io;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.Deflater;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -39,4 +43,25 @@ class PbfExporterTest {
             Files.delete(out);
         }
     }
+
+    /**
+     * Unit test of {@link PbfWriter} with raw and compressed blocks, written sequentially and in parallel.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testWriteCompressionLevels() throws Exception {
+        DataSet ds = new PbfImporter().parseDataSet(TestUtils.getTestDataRoot() + "/monaco-latest.osm.pbf");
+        for (int level : new int[] {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION}) {
+            for (int threads : new int[] {1, 4}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (PbfWriter writer = new PbfWriter(out, level, threads)) {
+                    writer.writeData(ds);
+                }
+                DataSet ds2 = PbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), null);
+                assertEquals(ds.getNodes().size(), ds2.getNodes().size());
+                assertEquals(ds.getWays().size(), ds2.getWays().size());
+                assertEquals(ds.getRelations().size(), ds2.getRelations().size());
+            }
+        }
+    }
 }
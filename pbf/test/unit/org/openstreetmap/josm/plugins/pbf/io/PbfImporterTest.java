@@ -2,17 +2,25 @@
 package org.openstreetmap.josm.plugins.pbf.io;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 
@@ -51,6 +59,44 @@ class PbfImporterTest {
         doTestMonaco(TestUtils.getTestDataRoot() + "/monaco-latest.osm.pbf", false);
     }
 
+    /**
+     * Unit test of {@link PbfImporter#parseDataSet(String)} with sequential and parallel block decoding.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testParseDataSetDecoderThreads() throws Exception {
+        try {
+            PbfReader.DECODER_THREADS.put(1);
+            doTestMonaco(TestUtils.getTestDataRoot() + "/monaco-latest.osm.pbf", false);
+            PbfReader.DECODER_THREADS.put(4);
+            doTestMonaco(TestUtils.getTestDataRoot() + "/monaco-latest.osm.pbf", false);
+        } finally {
+            PbfReader.DECODER_THREADS.remove();
+        }
+    }
+
+    /**
+     * Unit test of {@link PbfImporter#parseDataSet(InputStream, ProgressMonitor, PbfFilter)}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testParseDataSetFiltered() throws Exception {
+        Bounds bounds = new Bounds(43.73, 7.41, 43.74, 7.43);
+        try (InputStream in = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "monaco-latest.osm.pbf"))) {
+            DataSet ds = new PbfImporter().parseDataSet(in, NullProgressMonitor.INSTANCE, new PbfFilter(bounds, null));
+            assertFalse(ds.getNodes().isEmpty());
+            assertTrue(ds.getNodes().size() < 18685);
+            assertTrue(ds.getWays().size() < 16735);
+            assertTrue(ds.getNodes().stream().filter(n -> !n.isIncomplete()).allMatch(n -> bounds.contains(n)));
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "monaco-latest.osm.pbf"))) {
+            DataSet ds = new PbfImporter().parseDataSet(in, NullProgressMonitor.INSTANCE,
+                    new PbfFilter(bounds, t -> t.hasKey("building")));
+            assertFalse(ds.getWays().isEmpty());
+            assertTrue(ds.getWays().stream().allMatch(w -> w.hasKey("building")));
+        }
+    }
+
     /**
      * Non-regression test for <a href="https://josm.openstreetmap.de/ticket/10132">Ticket #10132</a>.
      * @throws Exception if an error occurs
@@ -9,6 +9,7 @@ import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MVTFile;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.gui.layer.AbstractCachedTileSourceLayer;
 import org.openstreetmap.josm.plugins.pmtiles.data.imagery.PMTilesImageryInfo;
+import org.openstreetmap.josm.plugins.pmtiles.lib.PMTiles;
 
 /**
  * A layer for PMTiles using images
@@ -65,6 +66,12 @@ public class PMTilesImageLayer extends AbstractCachedTileSourceLayer<PMTilesImag
         return (PMTilesImageryInfo) super.getInfo();
     }
 
+    @Override
+    public synchronized void destroy() {
+        super.destroy();
+        PMTiles.close(this.getInfo().header().location());
+    }
+
     @Override
     public String getChangesetSourceTag() {
         return PMTilesLayer.super.getChangesetSourceTag();
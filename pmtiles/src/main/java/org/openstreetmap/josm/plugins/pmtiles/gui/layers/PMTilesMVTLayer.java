@@ -10,6 +10,7 @@ import org.openstreetmap.josm.data.imagery.vectortile.mapbox.MapboxVectorTileSou
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.gui.layer.imagery.MVTLayer;
 import org.openstreetmap.josm.plugins.pmtiles.data.imagery.PMTilesImageryInfo;
+import org.openstreetmap.josm.plugins.pmtiles.lib.PMTiles;
 
 /**
  * MVT layer that comes from PMTiles
@@ -66,6 +67,12 @@ public class PMTilesMVTLayer extends MVTLayer implements PMTilesLayer {
         return (PMTilesImageryInfo) super.getInfo();
     }
 
+    @Override
+    public synchronized void destroy() {
+        super.destroy();
+        PMTiles.close(this.getInfo().header().location());
+    }
+
     @Override
     public String getChangesetSourceTag() {
         return PMTilesLayer.super.getChangesetSourceTag();
@@ -1,33 +1,152 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.pmtiles.lib;
 
-import java.util.Arrays;
-import java.util.Iterator;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A cache for directories
+ * A cache for directories. The root directory is kept for the lifetime of the cache, while leaf directories
+ * are kept in a least recently used cache shared by all archives, bounded by its estimated size in bytes.
  */
-public final class DirectoryCache implements Iterable<Directory> {
-    private final Directory[] directories = new Directory[2];
+public final class DirectoryCache {
+    /** The estimated size of a directory entry in memory (4 longs plus object header and reference) */
+    private static final long ENTRY_SIZE = 4 * Long.BYTES + 16 + 8;
+    /** The estimated size of a directory without entries in memory */
+    private static final long DIRECTORY_SIZE = 64;
+    private static final LeafCache LEAVES = new LeafCache(64L * 1024 * 1024);
+
+    private final Directory root;
+
     /**
      * Create a new cache
      * @param root The root directory. This is <i>never</i> evicted.
      */
     public DirectoryCache(Directory root) {
-        this.directories[0] = root;
+        this.root = Objects.requireNonNull(root);
+    }
+
+    /**
+     * Get the root directory
+     * @return The root directory
+     */
+    public Directory getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Get a cached leaf directory
+     * @param location The location of the archive
+     * @param offset The offset of the leaf directory inside the leaf directory area
+     * @return The leaf directory, or {@code null} if it is not cached
+     */
+    public Directory getLeafDirectory(URI location, long offset) {
+        return LEAVES.get(new LeafKey(location, offset));
     }
 
     /**
-     * Add a directory to the cache. It is highly likely to evict another directory.
+     * Add a leaf directory to the cache. It may evict the least recently used leaf directories.
+     * @param location The location of the archive
+     * @param offset The offset of the leaf directory inside the leaf directory area
      * @param directory The directory to cache.
      */
-    public void addDirectory(Directory directory) {
-        this.directories[1] = directory;
+    public void addLeafDirectory(URI location, long offset, Directory directory) {
+        LEAVES.put(new LeafKey(location, offset), directory);
+    }
+
+    /**
+     * Set the maximum size of the shared leaf directory cache
+     * @param bytes The maximum estimated size in bytes
+     */
+    public static void setMaximumSize(long bytes) {
+        LEAVES.setMaximumSize(bytes);
+    }
+
+    /**
+     * Get the number of leaf directory lookups found in the cache
+     * @return The number of cache hits
+     */
+    public static long getHits() {
+        return LEAVES.hits.get();
+    }
+
+    /**
+     * Get the number of leaf directory lookups not found in the cache
+     * @return The number of cache misses
+     */
+    public static long getMisses() {
+        return LEAVES.misses.get();
+    }
+
+    /**
+     * Remove all leaf directories from the shared cache, and reset the counters
+     */
+    public static void clear() {
+        LEAVES.clear();
+    }
+
+    private static long estimateSize(Directory directory) {
+        return DIRECTORY_SIZE + ENTRY_SIZE * directory.entries().length;
+    }
+
+    /**
+     * The key of a leaf directory
+     * @param location The location of the archive
+     * @param offset The offset of the leaf directory inside the leaf directory area
+     */
+    private record LeafKey(URI location, long offset) {
     }
 
-    @Override
-    public Iterator<Directory> iterator() {
-        return Arrays.stream(this.directories).filter(Objects::nonNull).iterator();
+    /**
+     * A thread-safe least recently used cache of leaf directories, bounded by their estimated size
+     */
+    private static final class LeafCache {
+        private final Map<LeafKey, Directory> directories = new LinkedHashMap<>(16, 0.75f, true);
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private long maximumSize;
+        private long size;
+
+        LeafCache(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        synchronized Directory get(LeafKey key) {
+            final var directory = this.directories.get(key);
+            (directory == null ? this.misses : this.hits).incrementAndGet();
+            return directory;
+        }
+
+        synchronized void put(LeafKey key, Directory directory) {
+            final var previous = this.directories.put(key, directory);
+            if (previous != null) {
+                this.size -= estimateSize(previous);
+            }
+            this.size += estimateSize(directory);
+            evict();
+        }
+
+        synchronized void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            evict();
+        }
+
+        synchronized void clear() {
+            this.directories.clear();
+            this.size = 0;
+            this.hits.set(0);
+            this.misses.set(0);
+        }
+
+        private void evict() {
+            final var iterator = this.directories.values().iterator();
+            // Always keep the most recently added directory, even if it is larger than the maximum size
+            while (this.size > this.maximumSize && this.directories.size() > 1) {
+                this.size -= estimateSize(iterator.next());
+                iterator.remove();
+            }
+        }
     }
 }
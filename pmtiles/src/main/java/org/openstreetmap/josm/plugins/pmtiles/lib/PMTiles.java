@@ -6,10 +6,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.zip.InflaterInputStream;
 
@@ -19,6 +15,8 @@ import org.apache.commons.compress.compressors.brotli.BrotliCompressorInputStrea
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.openstreetmap.josm.plugins.pmtiles.lib.internal.DirectoryParser;
 import org.openstreetmap.josm.plugins.pmtiles.lib.internal.HeaderParser;
+import org.openstreetmap.josm.plugins.pmtiles.lib.internal.HttpRangeReader;
+import org.openstreetmap.josm.plugins.pmtiles.lib.internal.MappedArchive;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -98,7 +96,7 @@ public final class PMTiles {
             return EMPTY_BYTE;
         }
         try (var inputStream = decompressInputStream(header.tileCompression(),
-                getInputStream(header.location(), header.tileOffset() + entry.offset(), entry.length()))) {
+                getTileInputStream(header.location(), header.tileOffset() + entry.offset(), entry.length()))) {
             return inputStream.readAllBytes();
         }
     }
@@ -107,51 +105,59 @@ public final class PMTiles {
      * Get the data location in PM tiles
      * @param header The header to read
      * @param index The index to find
-     * @param cachedDirectories The directories to use to avoid recurring calls; this array <i>should</i> be of length 2.
-     *                          The first directory should be the root directory. The second should be the most recently used
-     *                          leaf directory, if available.
+     * @param cachedDirectories The directories to use to avoid recurring calls. It holds the root directory, and
+     *                          the recently used leaf directories.
      * @return The entry with the data. If {@code null} there is no entry for the data.
      * @throws IOException if we could not read data
      */
     public static DirectoryEntry getDataLocation(Header header, long index, DirectoryCache cachedDirectories) throws IOException {
-        DirectoryEntry leaf = null;
-        for (var directory : cachedDirectories) {
+        var directory = cachedDirectories.getRoot();
+        // The specification allows at most 3 levels of leaf directories
+        for (var depth = 0; depth <= 3; depth++) {
             final var entry = getDataEntry(index, directory);
-            if (entry != null && entry.isLeafDirectory()) {
-                leaf = entry;
-            } else if (entry != null) {
+            if (entry == null || !entry.isLeafDirectory()) {
                 return entry;
             }
-        }
-        // We now need to find the appropriate leaf directory, since it wasn't in the cached directories
-        while (leaf != null) {
-            final var leafDirectory = readLeafDirectory(header, leaf.offset(), leaf.length());
-            cachedDirectories.addDirectory(leafDirectory);
-            leaf = getDataEntry(index, leafDirectory);
-            if (leaf != null && leaf.contains(index) && !leaf.isLeafDirectory()) {
-                return leaf;
+            directory = cachedDirectories.getLeafDirectory(header.location(), entry.offset());
+            if (directory == null) {
+                directory = readLeafDirectory(header, entry.offset(), entry.length());
+                cachedDirectories.addLeafDirectory(header.location(), entry.offset(), directory);
             }
         }
         return null;
     }
 
     /**
-     * Perform a search for the specified entry
+     * Perform a binary search for the specified entry. Entries are sorted by tile id.
      * @param index The index to find
      * @param directory The directory to look through
      * @return The appropriate entry (may be a leaf directory or {@code null})
      */
     private static DirectoryEntry getDataEntry(long index, Directory directory) {
-        // This finds either the entry or the leaf directory
-        DirectoryEntry entry = null;
-        for (var current : directory) {
-            if (current.contains(index)) {
-                return current;
-            } else if (current.tileId() < index && current.isLeafDirectory() && (entry == null || current.tileId() > entry.tileId())) {
-                entry = current;
+        final var entries = directory.entries();
+        // Find the last entry starting at or before the index
+        var low = 0;
+        var high = entries.length - 1;
+        while (low <= high) {
+            final var mid = (low + high) >>> 1;
+            final var tileId = entries[mid].tileId();
+            if (tileId == index) {
+                return entries[mid];
+            } else if (tileId < index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        return entry;
+        if (high < 0) {
+            return null;
+        }
+        // This is either the entry, or the leaf directory which may contain it
+        final var entry = entries[high];
+        if (entry.isLeafDirectory() || entry.contains(index)) {
+            return entry;
+        }
+        return null;
     }
 
     /**
@@ -248,6 +254,18 @@ public final class PMTiles {
         }
     }
 
+    /**
+     * Release the resources shared by the readers of an archive, once no layer uses it anymore
+     * @param location The location of the archive
+     */
+    public static void close(URI location) {
+        if (Utils.isLocalUrl(location.toString())) {
+            MappedArchive.release(Path.of(location));
+        } else {
+            HttpRangeReader.release(location);
+        }
+    }
+
     private static InputStream decompressInputStream(InternalCompression compression, InputStream inputStream) throws IOException {
         return switch (compression) {
             case GZIP -> new GzipCompressorInputStream(inputStream);
@@ -260,30 +278,25 @@ public final class PMTiles {
 
     private static InputStream getInputStream(URI location, long start, long length) throws IOException {
         if (Utils.isLocalUrl(location.toString())) {
-            final var file = Path.of(location);
-            try (var is = Files.newInputStream(file)) {
-                if (start != is.skip(start)) {
-                    throw new IOException("Something is wrong with the file");
-                }
-                if (length < Integer.MAX_VALUE) {
-                    return new ByteArrayInputStream(is.readNBytes((int) length));
-                } else {
-                    throw new IOException("The PMTiles plugin currently does not support large streams from the file system");
-                }
-            }
+            // Local archives are mapped once and shared by all readers
+            return MappedArchive.get(Path.of(location)).getInputStream(start, length);
         }
-        var request = HttpRequest.newBuilder(location).header("Range", "bytes=" + start + "-" + (start + length))
-                .header("User-Agent", "JOSM PMTiles v1").GET().build();
-        try {
-            final var client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
-            final var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
-            if (response.statusCode() < 200 || response.statusCode() > 300) {
-                throw new IOException("Bad response code for " + response.request().uri() + ": " + response.statusCode());
-            }
-            return response.body();
-        } catch (InterruptedException interruptedException) {
-            Thread.currentThread().interrupt();
-            throw new IOException(interruptedException);
+        return HttpRangeReader.get(location).read(start, length);
+    }
+
+    /**
+     * Get the stream for tile data. Remote tile ranges requested at the same time are merged into a single request,
+     * since tiles that are close in Hilbert order are often contiguous in the archive.
+     * @param location The location of the archive
+     * @param start The start of the tile data
+     * @param length The length of the tile data
+     * @return The stream for the tile data
+     * @throws IOException if the data could not be read
+     */
+    private static InputStream getTileInputStream(URI location, long start, long length) throws IOException {
+        if (Utils.isLocalUrl(location.toString())) {
+            return getInputStream(location, start, length);
         }
+        return new ByteArrayInputStream(HttpRangeReader.get(location).readCoalesced(start, length));
     }
 }
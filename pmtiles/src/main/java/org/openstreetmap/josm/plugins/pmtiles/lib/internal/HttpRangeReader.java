@@ -0,0 +1,278 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pmtiles.lib.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read byte ranges of a remote archive. All requests for an archive share one HTTP/2 client, and requests for
+ * nearby ranges issued within a short time window are merged into a single range request.
+ */
+public final class HttpRangeReader {
+    /** The time to wait for other requests before sending a range request */
+    private static final long WINDOW_MILLIS = 5;
+    /** The maximum number of unrequested bytes between two merged ranges */
+    private static final long MAX_GAP = 16 * 1024;
+    /** The maximum size of a merged range */
+    private static final long MAX_RANGE = 8 * 1024 * 1024;
+    private static final Map<URI, HttpRangeReader> READERS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "pmtiles-range-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final URI location;
+    private final long windowMillis;
+    private final HttpClient client;
+    private final List<PendingRange> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private HttpRangeReader(URI location) {
+        this(location, WINDOW_MILLIS);
+    }
+
+    /**
+     * Create a reader which is not shared
+     * @param location The location of the archive
+     * @param windowMillis The time to wait for other requests before sending a range request
+     */
+    HttpRangeReader(URI location, long windowMillis) {
+        this.location = location;
+        this.windowMillis = windowMillis;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL).build();
+    }
+
+    /**
+     * Get the shared reader for an archive
+     * @param location The location of the archive
+     * @return The reader
+     */
+    public static HttpRangeReader get(URI location) {
+        return READERS.computeIfAbsent(location, HttpRangeReader::new);
+    }
+
+    /**
+     * Forget the shared reader for an archive, once the archive is closed. Requests already sent are not affected.
+     * @param location The location of the archive
+     */
+    public static void release(URI location) {
+        READERS.remove(location);
+    }
+
+    /**
+     * Read a range immediately
+     * @param start The start of the range
+     * @param length The length of the range
+     * @return The stream of the range
+     * @throws IOException if the range could not be read
+     */
+    public InputStream read(long start, long length) throws IOException {
+        try {
+            final var response = this.client.send(request(start, start + length), HttpResponse.BodyHandlers.ofInputStream());
+            checkResponse(response);
+            if (response.statusCode() == 200) {
+                // The server ignored the range, and sends the whole file
+                final var body = response.body();
+                try {
+                    body.skipNBytes(start);
+                } catch (IOException e) {
+                    body.close();
+                    throw e;
+                }
+                return new BoundedInputStream(body, length);
+            }
+            return response.body();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException(interruptedException);
+        }
+    }
+
+    /**
+     * Read a range, merging it with the other ranges requested at the same time
+     * @param start The start of the range
+     * @param length The length of the range
+     * @return The bytes of the range
+     * @throws IOException if the range could not be read
+     */
+    public byte[] readCoalesced(long start, long length) throws IOException {
+        final var range = new PendingRange(start, start + length, new CompletableFuture<>());
+        synchronized (this) {
+            this.pending.add(range);
+            if (!this.flushScheduled) {
+                this.flushScheduled = true;
+                SCHEDULER.schedule(this::flush, this.windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        try {
+            return range.future().get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException(interruptedException);
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(executionException.getCause());
+        }
+    }
+
+    /**
+     * Send the pending ranges, merging nearby ranges
+     */
+    private void flush() {
+        final List<PendingRange> ranges;
+        synchronized (this) {
+            ranges = new ArrayList<>(this.pending);
+            this.pending.clear();
+            this.flushScheduled = false;
+        }
+        ranges.sort(Comparator.comparingLong(PendingRange::start));
+        var group = new ArrayList<PendingRange>();
+        var groupStart = 0L;
+        var groupEnd = 0L;
+        for (var range : ranges) {
+            if (!group.isEmpty() && (range.start() > groupEnd + MAX_GAP || Math.max(groupEnd, range.end()) - groupStart > MAX_RANGE)) {
+                send(group, groupStart, groupEnd);
+                group = new ArrayList<>();
+            }
+            if (group.isEmpty()) {
+                groupStart = range.start();
+                groupEnd = range.end();
+            }
+            group.add(range);
+            groupEnd = Math.max(groupEnd, range.end());
+        }
+        if (!group.isEmpty()) {
+            send(group, groupStart, groupEnd);
+        }
+    }
+
+    /**
+     * Send a single request for a group of ranges, and split the response
+     * @param group The ranges to read
+     * @param start The start of the merged range
+     * @param end The end of the merged range (exclusive)
+     */
+    private void send(List<PendingRange> group, long start, long end) {
+        this.client.sendAsync(request(start, end), HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, throwable) -> {
+            try {
+                if (throwable != null) {
+                    throw new IOException(throwable);
+                }
+                checkResponse(response);
+                final byte[] body;
+                try (var inputStream = response.body()) {
+                    if (response.statusCode() == 200) {
+                        // The server ignored the range, and sends the whole file: only read the merged range
+                        inputStream.skipNBytes(start);
+                    }
+                    // A merged range is at most MAX_RANGE bytes
+                    body = inputStream.readNBytes((int) (end - start));
+                }
+                for (var range : group) {
+                    final long from = range.start() - start;
+                    final long to = range.end() - start;
+                    if (to > body.length) {
+                        throw new IOException("Short response for " + this.location + ": " + body.length + " bytes");
+                    }
+                    final var bytes = new byte[(int) (to - from)];
+                    System.arraycopy(body, (int) from, bytes, 0, bytes.length);
+                    range.future().complete(bytes);
+                }
+            } catch (IOException e) {
+                group.forEach(range -> range.future().completeExceptionally(e));
+            }
+        });
+    }
+
+    private HttpRequest request(long start, long end) {
+        return HttpRequest.newBuilder(this.location).header("Range", "bytes=" + start + "-" + (end - 1))
+                .header("User-Agent", "JOSM PMTiles v1").GET().build();
+    }
+
+    private static void checkResponse(HttpResponse<?> response) throws IOException {
+        if (response.statusCode() < 200 || response.statusCode() > 300) {
+            throw new IOException("Bad response code for " + response.request().uri() + ": " + response.statusCode());
+        }
+    }
+
+    /**
+     * A stream reading at most a given number of bytes, which closes the underlying stream
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            final var read = super.read();
+            if (read >= 0) {
+                this.remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.remaining <= 0) {
+                return len == 0 ? 0 : -1;
+            }
+            final var read = super.read(b, off, (int) Math.min(len, this.remaining));
+            if (read > 0) {
+                this.remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final var skipped = super.skip(Math.min(n, this.remaining));
+            this.remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), this.remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * A range waiting to be read
+     * @param start The start of the range
+     * @param end The end of the range (exclusive)
+     * @param future The future to complete with the bytes of the range
+     */
+    private record PendingRange(long start, long end, CompletableFuture<byte[]> future) {
+    }
+}
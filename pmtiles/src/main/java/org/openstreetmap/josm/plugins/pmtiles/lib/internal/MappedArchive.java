@@ -0,0 +1,157 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pmtiles.lib.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A local archive mapped into memory once, and shared by all readers.
+ * Archives larger than 2 GiB are mapped as several segments. A file which changed since it was mapped is mapped again.
+ */
+public final class MappedArchive {
+    /** The size of mapped segments; ranges crossing a segment boundary are read from several segments */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final Map<FileKey, MappedArchive> ARCHIVES = new ConcurrentHashMap<>();
+
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    private MappedArchive(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            this.segments = new MappedByteBuffer[(int) ((this.size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (var i = 0; i < this.segments.length; i++) {
+                final var start = i * SEGMENT_SIZE;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, this.size - start));
+            }
+        }
+    }
+
+    /**
+     * Get the shared mapping for a file, mapping it if needed
+     * @param path The path of the archive
+     * @return The mapped archive
+     * @throws IOException if the file could not be mapped
+     */
+    public static MappedArchive get(Path path) throws IOException {
+        final var normalized = path.toAbsolutePath().normalize();
+        final var key = new FileKey(normalized, Files.size(normalized), Files.getLastModifiedTime(normalized).toMillis());
+        final var archive = ARCHIVES.get(key);
+        if (archive != null) {
+            return archive;
+        }
+        // Forget the mappings of previous versions of the file
+        release(normalized);
+        final var newArchive = new MappedArchive(normalized);
+        final var previous = ARCHIVES.putIfAbsent(key, newArchive);
+        return previous != null ? previous : newArchive;
+    }
+
+    /**
+     * Forget the shared mapping for a file. The mapping is released once no readers use it anymore.
+     * @param path The path of the archive
+     */
+    public static void release(Path path) {
+        final var normalized = path.toAbsolutePath().normalize();
+        ARCHIVES.keySet().removeIf(key -> key.path().equals(normalized));
+    }
+
+    /**
+     * Get a read-only view of a range of the archive. No data is copied.
+     * @param start The start of the range
+     * @param length The length of the range. It is truncated at the end of the archive.
+     * @return The buffer for the range, or {@code null} if the range crosses a segment boundary
+     */
+    public ByteBuffer slice(long start, long length) {
+        final var end = Math.min(this.size, start + length);
+        if (start >= end) {
+            return ByteBuffer.allocate(0);
+        }
+        final var segment = (int) (start / SEGMENT_SIZE);
+        if (segment != (int) ((end - 1) / SEGMENT_SIZE)) {
+            return null;
+        }
+        return this.segments[segment].slice((int) (start - segment * SEGMENT_SIZE), (int) (end - start)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Get a stream for a range of the archive. No data is copied.
+     * @param start The start of the range
+     * @param length The length of the range. It is truncated at the end of the archive.
+     * @return The stream for the range
+     */
+    public InputStream getInputStream(long start, long length) {
+        final var buffer = slice(start, length);
+        if (buffer != null) {
+            return new ByteBufferInputStream(buffer);
+        }
+        final var end = Math.min(this.size, start + length);
+        final var streams = new ArrayList<InputStream>();
+        for (var current = start; current < end; current = (current / SEGMENT_SIZE + 1) * SEGMENT_SIZE) {
+            final var segmentEnd = Math.min(end, (current / SEGMENT_SIZE + 1) * SEGMENT_SIZE);
+            streams.add(new ByteBufferInputStream(slice(current, segmentEnd - current)));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * The identity of a version of a file
+     * @param path The normalized path of the file
+     * @param size The size of the file
+     * @param lastModified The last modification time of the file, in milliseconds
+     */
+    private record FileKey(Path path, long size, long lastModified) {
+    }
+
+    /**
+     * An input stream reading from a byte buffer
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final var read = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            final var skipped = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
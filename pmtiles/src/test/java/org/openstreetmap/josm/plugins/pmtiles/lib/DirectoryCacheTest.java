@@ -0,0 +1,48 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pmtiles.lib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link DirectoryCache}
+ */
+class DirectoryCacheTest {
+    @AfterEach
+    void tearDown() {
+        DirectoryCache.setMaximumSize(64L * 1024 * 1024);
+        DirectoryCache.clear();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        final var location = URI.create("file:///test.pmtiles");
+        final var root = new Directory(new DirectoryEntry(0, 0, 10, 0));
+        final var cache = new DirectoryCache(root);
+        final var leaf1 = new Directory(new DirectoryEntry(1, 0, 10, 1));
+        final var leaf2 = new Directory(new DirectoryEntry(2, 10, 10, 1));
+        final var leaf3 = new Directory(new DirectoryEntry(3, 20, 10, 1));
+        DirectoryCache.clear();
+        // Room for two leaf directories
+        DirectoryCache.setMaximumSize(250);
+        cache.addLeafDirectory(location, 0, leaf1);
+        cache.addLeafDirectory(location, 10, leaf2);
+        assertSame(leaf1, cache.getLeafDirectory(location, 0));
+        cache.addLeafDirectory(location, 20, leaf3);
+        // leaf2 is the least recently used directory
+        assertNull(cache.getLeafDirectory(location, 10));
+        assertSame(leaf1, cache.getLeafDirectory(location, 0));
+        assertSame(leaf3, cache.getLeafDirectory(location, 20));
+        assertSame(root, cache.getRoot());
+        // Leaf directories are keyed by archive
+        assertNull(cache.getLeafDirectory(URI.create("file:///other.pmtiles"), 0));
+        assertEquals(3, DirectoryCache.getHits());
+        assertEquals(2, DirectoryCache.getMisses());
+    }
+}
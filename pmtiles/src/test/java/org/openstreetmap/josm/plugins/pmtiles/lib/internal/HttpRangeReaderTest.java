@@ -0,0 +1,147 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pmtiles.lib.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link HttpRangeReader}
+ */
+class HttpRangeReaderTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    /** Long enough for all the ranges of a test to be merged */
+    private static final long WINDOW_MILLIS = 500;
+
+    private final List<String> requestedRanges = Collections.synchronizedList(new ArrayList<>());
+    private HttpServer server;
+    private ExecutorService executor;
+    private byte[] data;
+    private boolean ignoreRange;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/test.pmtiles", this::handle);
+        this.server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final var range = exchange.getRequestHeaders().getFirst("Range");
+            this.requestedRanges.add(range);
+            final var matcher = RANGE.matcher(range);
+            if (this.ignoreRange || !matcher.matches()) {
+                exchange.sendResponseHeaders(200, this.data.length);
+                exchange.getResponseBody().write(this.data);
+                return;
+            }
+            final var start = Integer.parseInt(matcher.group(1));
+            final var end = Math.min(this.data.length, Integer.parseInt(matcher.group(2)) + 1);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + '-' + (end - 1) + '/' + this.data.length);
+            exchange.sendResponseHeaders(206, end - start);
+            exchange.getResponseBody().write(this.data, start, end - start);
+        } catch (IOException e) {
+            // The client closed the connection once it read the bytes it needed
+        }
+    }
+
+    private HttpRangeReader reader() {
+        return new HttpRangeReader(URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ':'
+                + this.server.getAddress().getPort() + "/test.pmtiles"), WINDOW_MILLIS);
+    }
+
+    private static byte[] data(int length) {
+        final var bytes = new byte[length];
+        for (var i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31 + i / 256);
+        }
+        return bytes;
+    }
+
+    /**
+     * Read ranges at the same time, and check their bytes
+     * @param reader The reader to use
+     * @param ranges The start and length of each range
+     */
+    private void readConcurrently(HttpRangeReader reader, long[]... ranges) {
+        final var pool = Executors.newFixedThreadPool(ranges.length);
+        try {
+            final var futures = new ArrayList<CompletableFuture<byte[]>>();
+            for (var range : ranges) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return reader.readCoalesced(range[0], range[1]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, pool));
+            }
+            for (var i = 0; i < ranges.length; i++) {
+                final var start = (int) ranges[i][0];
+                assertArrayEquals(Arrays.copyOfRange(this.data, start, start + (int) ranges[i][1]), futures.get(i).join());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCoalescing() {
+        this.data = data(4096);
+        readConcurrently(reader(), new long[] {1000, 100}, new long[] {0, 100}, new long[] {150, 50}, new long[] {120, 200});
+        // Overlapping and nearby ranges are read with a single request
+        assertEquals(List.of("bytes=0-1099"), this.requestedRanges);
+    }
+
+    @Test
+    void testSplitting() {
+        this.data = data(12 * 1024 * 1024);
+        readConcurrently(reader(), new long[] {0, 10}, new long[] {10, 10}, new long[] {100_000, 10},
+                new long[] {200_000, 5 * 1024 * 1024}, new long[] {200_000 + 5 * 1024 * 1024, 5 * 1024 * 1024});
+        this.requestedRanges.sort(null);
+        // Ranges too far apart, or too large once merged, are read with several requests
+        assertEquals(List.of("bytes=0-19", "bytes=100000-100009", "bytes=200000-5442879", "bytes=5442880-10685759"),
+                this.requestedRanges);
+    }
+
+    @Test
+    void testIgnoredRange() throws IOException {
+        this.data = data(1024 * 1024);
+        this.ignoreRange = true;
+        final var reader = reader();
+        // Only the requested range is read from the whole file
+        try (var inputStream = reader.read(300_000, 1000)) {
+            assertArrayEquals(Arrays.copyOfRange(this.data, 300_000, 301_000), inputStream.readAllBytes());
+        }
+        readConcurrently(reader, new long[] {500_000, 100}, new long[] {500_200, 100});
+        assertEquals(List.of("bytes=300000-300999", "bytes=500000-500299"), this.requestedRanges);
+    }
+}
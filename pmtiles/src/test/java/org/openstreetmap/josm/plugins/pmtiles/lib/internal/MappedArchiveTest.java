@@ -0,0 +1,60 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pmtiles.lib.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for {@link MappedArchive}
+ */
+class MappedArchiveTest {
+    @Test
+    void testRanges(@TempDir Path tempDir) throws IOException {
+        final var file = tempDir.resolve("test.pmtiles");
+        final var data = new byte[4096];
+        for (var i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Files.write(file, data);
+        final var archive = MappedArchive.get(file);
+        assertSame(archive, MappedArchive.get(file));
+        try (var is = archive.getInputStream(100, 200)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 100, 300), is.readAllBytes());
+        }
+        // Ranges are truncated at the end of the archive
+        try (var is = archive.getInputStream(4000, 200)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 4000, 4096), is.readAllBytes());
+        }
+        assertEquals(0, archive.slice(5000, 10).remaining());
+        MappedArchive.release(file);
+    }
+
+    @Test
+    void testChangedFile(@TempDir Path tempDir) throws IOException {
+        final var file = tempDir.resolve("test.pmtiles");
+        Files.write(file, new byte[] {1, 2, 3});
+        final var archive = MappedArchive.get(file);
+        // A file replaced with another content is mapped again
+        Files.write(file, new byte[] {4, 5, 6, 7});
+        final var changed = MappedArchive.get(file);
+        assertNotSame(archive, changed);
+        assertSame(changed, MappedArchive.get(file));
+        try (var is = changed.getInputStream(0, 10)) {
+            assertArrayEquals(new byte[] {4, 5, 6, 7}, is.readAllBytes());
+        }
+        // A released file is mapped again
+        MappedArchive.release(file);
+        assertNotSame(changed, MappedArchive.get(file));
+        MappedArchive.release(file);
+    }
+}
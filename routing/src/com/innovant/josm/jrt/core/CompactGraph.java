@@ -0,0 +1,351 @@
+// License: GPL. For details, see LICENSE file.
+package com.innovant.josm.jrt.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import org.jgrapht.Graph;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
+
+import com.innovant.josm.jrt.osm.OsmEdge;
+
+/**
+ * Read-only copy of the routing graph using arrays of primitives (compressed sparse rows), searched with a bidirectional A*.
+ *
+ * Vertices are numbered from 0, the outgoing edges of vertex {@code v} are the edges {@code firstOut[v]} to
+ * {@code firstOut[v + 1] - 1}, and the incoming edges are listed the same way with {@code firstIn}.
+ */
+public class CompactGraph {
+
+    /**
+     * Factor applied to the heuristic, to keep it below the real cost despite rounding errors.
+     */
+    private static final double HEURISTIC_FACTOR = 0.99;
+
+    private final Node[] vertices;
+    private final Map<Node, Integer> index;
+    private final double[] lat;
+    private final double[] lon;
+
+    /**
+     * Outgoing edges
+     */
+    private final int[] firstOut;
+    private final int[] head;
+    private final int[] tail;
+    private final OsmEdge[] edges;
+    private final float[] weight;
+    private final float[] length;
+
+    /**
+     * Incoming edges, as indexes of the outgoing edges arrays
+     */
+    private final int[] firstIn;
+    private final int[] inEdge;
+
+    /**
+     * Maximum ratio between the length and the weight of an edge, used to get a lower bound of the weight from a distance.
+     */
+    private double maxSpeed;
+
+    /**
+     * Search state, reused between searches. A value is only valid if its stamp is the current search.
+     */
+    private int search;
+    private int source;
+    private int target;
+    private final int[] stamp;
+    private final double[] distForward;
+    private final double[] distBackward;
+    private final int[] parentForward;
+    private final int[] parentBackward;
+    private final double[] potential;
+
+    /**
+     * Creates a compact copy of a graph
+     * @param graph the graph
+     * @param weights the function giving the weight of an edge
+     */
+    public CompactGraph(Graph<Node, OsmEdge> graph, ToDoubleFunction<OsmEdge> weights) {
+        int n = graph.vertexSet().size();
+        vertices = graph.vertexSet().toArray(new Node[n]);
+        index = new HashMap<>(n * 2);
+        lat = new double[n];
+        lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            index.put(vertices[i], i);
+            lat[i] = Math.toRadians(vertices[i].lat());
+            lon[i] = Math.toRadians(vertices[i].lon());
+        }
+
+        int m = graph.edgeSet().size();
+        OsmEdge[] allEdges = graph.edgeSet().toArray(new OsmEdge[m]);
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        firstOut = new int[n + 1];
+        firstIn = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            sources[e] = index.get(graph.getEdgeSource(allEdges[e]));
+            targets[e] = index.get(graph.getEdgeTarget(allEdges[e]));
+            firstOut[sources[e] + 1]++;
+            firstIn[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            firstOut[v + 1] += firstOut[v];
+            firstIn[v + 1] += firstIn[v];
+        }
+
+        head = new int[m];
+        tail = new int[m];
+        edges = new OsmEdge[m];
+        weight = new float[m];
+        length = new float[m];
+        inEdge = new int[m];
+        int[] nextOut = Arrays.copyOf(firstOut, n);
+        int[] nextIn = Arrays.copyOf(firstIn, n);
+        for (int e = 0; e < m; e++) {
+            int i = nextOut[sources[e]]++;
+            head[i] = targets[e];
+            tail[i] = sources[e];
+            edges[i] = allEdges[e];
+            length[i] = (float) allEdges[e].getLength();
+            inEdge[nextIn[targets[e]]++] = i;
+        }
+        updateWeights(weights);
+
+        stamp = new int[n];
+        distForward = new double[n];
+        distBackward = new double[n];
+        parentForward = new int[n];
+        parentBackward = new int[n];
+        potential = new double[n];
+    }
+
+    /**
+     * Computes the weights of all edges again, for example after a change of the route type.
+     * @param weights the function giving the weight of an edge
+     */
+    public final void updateWeights(ToDoubleFunction<OsmEdge> weights) {
+        maxSpeed = 0;
+        for (int e = 0; e < edges.length; e++) {
+            double w = weights.applyAsDouble(edges[e]);
+            // Edges which cannot be traversed get an infinite weight, and are skipped by the search
+            weight[e] = w >= 0 && !Double.isNaN(w) ? (float) w : Float.POSITIVE_INFINITY;
+            if (weight[e] > 0 && weight[e] < Float.POSITIVE_INFINITY) {
+                maxSpeed = Math.max(maxSpeed, length[e] / (double) weight[e]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices.
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the number of edges.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Finds the path with the lowest weight between two nodes.
+     * @param from the start node
+     * @param to the end node
+     * @return the edges of the path, or {@code null} if there is no path
+     */
+    public List<OsmEdge> findPath(Node from, Node to) {
+        Integer s = index.get(from);
+        Integer t = index.get(to);
+        if (s == null || t == null) {
+            return null;
+        }
+        if (s.equals(t)) {
+            return Collections.emptyList();
+        }
+        search++;
+        if (search == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            search = 1;
+        }
+        source = s;
+        target = t;
+
+        // The forward search uses the potential p(v) = (h_t(v) - h_s(v)) / 2 and the backward search -p(v),
+        // so that both searches are consistent and can stop as soon as their keys add up to the best path found.
+        Heap forward = new Heap();
+        Heap backward = new Heap();
+        reach(source);
+        distForward[source] = 0;
+        forward.push(potential[source], source);
+        reach(target);
+        distBackward[target] = 0;
+        backward.push(-potential[target], target);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if (forward.peekKey() + backward.peekKey() >= best) {
+                break;
+            }
+            if (forward.peekKey() <= backward.peekKey()) {
+                double key = forward.peekKey();
+                int u = forward.pop();
+                if (key > distForward[u] + potential[u]) {
+                    continue; // already settled with a lower key
+                }
+                for (int e = firstOut[u]; e < firstOut[u + 1]; e++) {
+                    int v = head[e];
+                    double d = distForward[u] + weight[e];
+                    if (d == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    reach(v);
+                    if (d < distForward[v]) {
+                        distForward[v] = d;
+                        parentForward[v] = e;
+                        forward.push(d + potential[v], v);
+                        if (d + distBackward[v] < best) {
+                            best = d + distBackward[v];
+                            meeting = v;
+                        }
+                    }
+                }
+            } else {
+                double key = backward.peekKey();
+                int u = backward.pop();
+                if (key > distBackward[u] - potential[u]) {
+                    continue; // already settled with a lower key
+                }
+                for (int i = firstIn[u]; i < firstIn[u + 1]; i++) {
+                    int e = inEdge[i];
+                    int v = tail[e];
+                    double d = distBackward[u] + weight[e];
+                    if (d == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    reach(v);
+                    if (d < distBackward[v]) {
+                        distBackward[v] = d;
+                        parentBackward[v] = e;
+                        backward.push(d - potential[v], v);
+                        if (distForward[v] + d < best) {
+                            best = distForward[v] + d;
+                            meeting = v;
+                        }
+                    }
+                }
+            }
+        }
+        if (meeting < 0) {
+            return null;
+        }
+
+        List<OsmEdge> path = new ArrayList<>();
+        for (int v = meeting; v != source; v = tail[parentForward[v]]) {
+            path.add(edges[parentForward[v]]);
+        }
+        Collections.reverse(path);
+        for (int v = meeting; v != target; v = head[parentBackward[v]]) {
+            path.add(edges[parentBackward[v]]);
+        }
+        return path;
+    }
+
+    /**
+     * Marks a vertex as reached by the current search, initializing its state if needed.
+     * @param v the vertex
+     */
+    private void reach(int v) {
+        if (stamp[v] != search) {
+            stamp[v] = search;
+            distForward[v] = Double.POSITIVE_INFINITY;
+            distBackward[v] = Double.POSITIVE_INFINITY;
+            potential[v] = (lowerBound(v, target) - lowerBound(v, source)) / 2;
+        }
+    }
+
+    /**
+     * Returns a lower bound of the weight of a path between two vertices, from their great circle distance.
+     */
+    private double lowerBound(int u, int v) {
+        if (maxSpeed == 0) {
+            return 0;
+        }
+        double sinLat = Math.sin((lat[v] - lat[u]) / 2);
+        double sinLon = Math.sin((lon[v] - lon[u]) / 2);
+        double a = sinLat * sinLat + Math.cos(lat[u]) * Math.cos(lat[v]) * sinLon * sinLon;
+        double distance = 2 * Ellipsoid.WGS84.a * Math.asin(Math.min(1, Math.sqrt(a)));
+        return HEURISTIC_FACTOR * distance / maxSpeed;
+    }
+
+    /**
+     * Binary min-heap of vertices, with duplicate entries instead of a decrease-key operation.
+     */
+    private static final class Heap {
+        private double[] keys = new double[64];
+        private int[] values = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int result = values[0];
+            size--;
+            double key = keys[size];
+            int value = values[size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return result;
+        }
+    }
+}
@@ -5,8 +5,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jgrapht.Graph;
 import org.jgrapht.alg.BellmanFordShortestPath;
@@ -14,7 +17,11 @@ import org.jgrapht.alg.DijkstraShortestPath;
 import org.jgrapht.graph.DirectedWeightedMultigraph;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.gui.MainApplication;
 
 import com.innovant.josm.jrt.osm.OsmEdge;
@@ -41,7 +48,7 @@ public class RoutingGraph {
      * Diferent algorithms to apply to the graph.
      */
     public enum Algorithm {
-        ROUTING_ALG_DIJKSTRA, ROUTING_ALG_BELLMANFORD
+        ROUTING_ALG_DIJKSTRA, ROUTING_ALG_BELLMANFORD, ROUTING_ALG_BIDIRECTIONAL_ASTAR
     }
 
     /**
@@ -80,6 +87,22 @@ public class RoutingGraph {
     private Graph<Node, OsmEdge> graph;
     private RoutingGraphDelegator rgDelegator;
 
+    /**
+     * Edges of each way of the graph, used to update the graph when a way changes.
+     */
+    private final Map<Way, List<OsmEdge>> wayEdges = new HashMap<>();
+
+    /**
+     * Version of the edge weights. Edges compute their weight again when it changes.
+     */
+    private int weightVersion;
+
+    /**
+     * Compact copy of the graph for the bidirectional A*, created when needed.
+     */
+    private CompactGraph compactGraph;
+    private int compactWeightVersion;
+
     /**
      * Graph getter
      */
@@ -128,104 +151,240 @@ public class RoutingGraph {
     public void createGraph() {
         Logging.trace("Creating Graph...");
         graph = new DirectedWeightedMultigraph<>(OsmEdge.class);
-        rgDelegator = new RoutingGraphDelegator(graph);
-        rgDelegator.setRouteType(this.routeType);
+        rgDelegator = new RoutingGraphDelegator(graph, this);
+        wayEdges.clear();
+        compactGraph = null;
         // iterate all ways and segments for all nodes:
         for (Way way : data.getWays()) {
+            addWay(way);
+        }
 
-            // skip way if not suitable for routing.
-            if (way == null || way.isDeleted() || !this.isvalidWay(way)
-                    || way.getNodesCount() == 0) continue;
-
-            // INIT
-            Node from = null;
-            Node to = null;
-            List<Node> nodes = way.getNodes();
-            int nodesCount = nodes.size();
-
-            /*
-             * Assume node is A B C D E. The procedure should be
-             *
-             *  case 1 - bidirectional ways:
-             *  1) Add vertex A B C D E
-             *  2) Link A<->B, B<->C, C<->D, D<->E as Edges
-             *
-             *  case 2 - oneway reverse:
-             *  1) Add vertex A B C D E
-             *  2) Link B->A,C->B,D->C,E->D as Edges. result: A<-B<-C<-D<-E
-             *
-             *  case 3 - oneway normal:
-             *  1) Add vertex A B C D E
-             *  2) Link A->B, B->C, C->D, D->E as Edges. result: A->B->C->D->E
-             *
-             *
-             */
-
-            String onewayVal = way.get("oneway");   /*   get (oneway=?) tag for this way.   */
-            String junctionVal = way.get("junction");   /*   get (junction=?) tag for this way.   */
-
-            from = nodes.get(0);                   /*   1st node A  */
-            graph.addVertex(from);                 /*   add vertex A */
+        Logging.trace("End Create Graph");
+        Logging.trace("Vertex: {0}", graph.vertexSet().size());
+        Logging.trace("Edges: {0}", graph.edgeSet().size());
+    }
 
-            for (int i = 1; i < nodesCount; i++) { /*   loop from B until E */
+    /**
+     * Add the edges of a way to the graph
+     * @param way The way
+     */
+    private void addWay(Way way) {
+        // skip way if not suitable for routing.
+        if (way == null || way.isDeleted() || !this.isvalidWay(way)
+                || way.getNodesCount() == 0) return;
+
+        // INIT
+        Node from = null;
+        Node to = null;
+        List<Node> nodes = way.getNodes();
+        int nodesCount = nodes.size();
+
+        /*
+         * Assume node is A B C D E. The procedure should be
+         *
+         *  case 1 - bidirectional ways:
+         *  1) Add vertex A B C D E
+         *  2) Link A<->B, B<->C, C<->D, D<->E as Edges
+         *
+         *  case 2 - oneway reverse:
+         *  1) Add vertex A B C D E
+         *  2) Link B->A,C->B,D->C,E->D as Edges. result: A<-B<-C<-D<-E
+         *
+         *  case 3 - oneway normal:
+         *  1) Add vertex A B C D E
+         *  2) Link A->B, B->C, C->D, D->E as Edges. result: A->B->C->D->E
+         *
+         *
+         */
+
+        String onewayVal = way.get("oneway");   /*   get (oneway=?) tag for this way.   */
+        String junctionVal = way.get("junction");   /*   get (junction=?) tag for this way.   */
+
+        from = nodes.get(0);                   /*   1st node A  */
+        graph.addVertex(from);                 /*   add vertex A */
+
+        for (int i = 1; i < nodesCount; i++) { /*   loop from B until E */
+
+            to = nodes.get(i);                   /*   2nd node B   */
+
+            if (to != null && !to.isDeleted()) {
+                graph.addVertex(to);               /*   add vertex B */
+
+
+                //this is where we link the vertices
+                if (!routingProfile.isOnewayUsed()) {
+                    //"Ignore oneways" is selected
+                    addEdgeBidirectional(way, from, to);
+
+                } else if (onewayVal == null && "roundabout".equals(junctionVal)) {
+                    //Case (roundabout): oneway=implicit yes
+                    addEdgeNormalOneway(way, from, to);
+
+                } else if (onewayVal == null || Arrays.asList("false", "no", "0").contains(onewayVal)) {
+                    //Case (bi-way): oneway=false OR oneway=unset OR oneway=0 OR oneway=no
+                    addEdgeBidirectional(way, from, to);
+
+                } else if ("-1".equals(onewayVal)) {
+                    //Case (oneway reverse): oneway=-1
+                    addEdgeReverseOneway(way, from, to);
+
+                } else if (Arrays.asList("1", "yes", "true").contains(onewayVal)) {
+                    //Case (oneway normal): oneway=yes OR 1 OR true
+                    addEdgeNormalOneway(way, from, to);
 
-                to = nodes.get(i);                   /*   2nd node B   */
+                }
 
-                if (to != null && !to.isDeleted()) {
-                    graph.addVertex(to);               /*   add vertex B */
+                from = to;                         /*   we did A<->B, next loop we will do B<->C, so from=B,to=C for next loop. */
+            }
 
+        } // end of looping thru nodes
+    }
 
-                    //this is where we link the vertices
-                    if (!routingProfile.isOnewayUsed()) {
-                        //"Ignore oneways" is selected
-                        addEdgeBidirectional(way, from, to);
+    /**
+     * Add edge to the graph. Its weight is computed when it is first used.
+     */
+    private void addEdge(Way way, Node from, Node to) {
+        if (!from.isLatLonKnown() || !to.isLatLonKnown()) {
+            return;
+        }
 
-                    } else if (onewayVal == null && "roundabout".equals(junctionVal)) {
-                        //Case (roundabout): oneway=implicit yes
-                        addEdgeNormalOneway(way, from, to);
+        OsmEdge edge = new OsmEdge(way, from, to);
+        graph.addEdge(from, to, edge);
+        wayEdges.computeIfAbsent(way, w -> new ArrayList<>()).add(edge);
+        compactGraph = null;
+    }
 
-                    } else if (onewayVal == null || Arrays.asList("false", "no", "0").contains(onewayVal)) {
-                        //Case (bi-way): oneway=false OR oneway=unset OR oneway=0 OR oneway=no
-                        addEdgeBidirectional(way, from, to);
+    /**
+     * Remove the edges of a way from the graph, and the vertices which are not linked anymore
+     * @param way The way
+     */
+    private void removeWay(Way way) {
+        List<OsmEdge> edges = wayEdges.remove(way);
+        if (edges == null) {
+            return;
+        }
+        compactGraph = null;
+        for (OsmEdge edge : edges) {
+            Node from = graph.getEdgeSource(edge);
+            Node to = graph.getEdgeTarget(edge);
+            graph.removeEdge(edge);
+            removeIfIsolated(from);
+            removeIfIsolated(to);
+        }
+    }
 
-                    } else if ("-1".equals(onewayVal)) {
-                        //Case (oneway reverse): oneway=-1
-                        addEdgeReverseOneway(way, from, to);
+    private void removeIfIsolated(Node node) {
+        if (graph.containsVertex(node) && graph.edgesOf(node).isEmpty()) {
+            graph.removeVertex(node);
+        }
+    }
 
-                    } else if (Arrays.asList("1", "yes", "true").contains(onewayVal)) {
-                        //Case (oneway normal): oneway=yes OR 1 OR true
-                        addEdgeNormalOneway(way, from, to);
+    /**
+     * Replace the edges of a way in the graph
+     * @param way The way, which may have been removed from the dataset
+     */
+    private void updateWay(Way way) {
+        removeWay(way);
+        if (way.getDataSet() == data) {
+            addWay(way);
+        }
+    }
 
-                    }
+    /**
+     * Update the graph after a change of the dataset. Only the edges of the changed ways are replaced.
+     * @param event The dataset event
+     */
+    public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (graph == null || event.getDataset() != data) {
+            return;
+        }
+        Set<Way> ways = new HashSet<>();
+        if (!getChangedWays(event, ways)) {
+            // Too many changes to be listed, the graph is created again when it is needed
+            resetGraph();
+            return;
+        }
+        for (Way way : ways) {
+            updateWay(way);
+        }
+        Logging.trace("Updated {0} ways of the graph", ways.size());
+    }
 
-                    from = to;                         /*   we did A<->B, next loop we will do B<->C, so from=B,to=C for next loop. */
+    /**
+     * Get the ways whose edges have changed
+     * @param event The dataset event
+     * @param ways The set to add the ways to
+     * @return {@code false} if the changes are not known
+     */
+    private static boolean getChangedWays(AbstractDatasetChangedEvent event, Set<Way> ways) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                return false;
+            }
+            for (AbstractDatasetChangedEvent e : events) {
+                if (!getChangedWays(e, ways)) {
+                    return false;
                 }
+            }
+            return true;
+        }
+        for (OsmPrimitive primitive : event.getPrimitives()) {
+            if (primitive instanceof Way) {
+                ways.add((Way) primitive);
+            } else if (primitive instanceof Node && event.getType() == DatasetEventType.NODE_MOVED) {
+                // The length of the edges has changed
+                ways.addAll(((Node) primitive).getParentWays());
+            }
+        }
+        return true;
+    }
 
-            } // end of looping thru nodes
-        } // end of looping thru ways
+    /**
+     * Replace the edges of the ways whose direction depends on the "Ignore oneways" option
+     */
+    private void updateOnewayWays() {
+        for (Way way : new ArrayList<>(wayEdges.keySet())) {
+            if (way.hasKey("oneway") || "roundabout".equals(way.get("junction"))) {
+                updateWay(way);
+            }
+        }
+    }
 
-        Logging.trace("End Create Graph");
-        Logging.trace("Vertex: {0}", graph.vertexSet().size());
-        Logging.trace("Edges: {0}", graph.edgeSet().size());
+    /**
+     * Returns the weight of an edge, computing it again if the route type or the speeds have changed since it was last computed.
+     * @param edge the edge.
+     * @return the weight of the edge.
+     */
+    double getEdgeWeight(OsmEdge edge) {
+        if (edge.getWeightVersion() != weightVersion) {
+            setWeight(edge, edge.getLength());
+            edge.setWeight(getWeight(edge.getWay(), edge.getLength()), weightVersion);
+        }
+        return edge.getRoutingWeight();
     }
 
     /**
-     * Compute weight and add edge to the graph
+     * Returns the compact copy of the graph, creating it if the graph has changed.
+     * @return the compact graph
      */
-    private void addEdge(Way way, Node from, Node to) {
-        if (!from.isLatLonKnown() || !to.isLatLonKnown()) {
-            return;
+    private CompactGraph getCompactGraph() {
+        if (compactGraph == null) {
+            compactGraph = new CompactGraph(graph, this::getEdgeWeight);
+            compactWeightVersion = weightVersion;
+        } else if (compactWeightVersion != weightVersion) {
+            compactGraph.updateWeights(this::getEdgeWeight);
+            compactWeightVersion = weightVersion;
         }
+        return compactGraph;
+    }
 
-        OsmEdge edge = new OsmEdge(way, from, to);
-        double length = edge.getLength();
-        edge.setSpeed(12.1);
-        graph.addEdge(from, to, edge);
-        // weight = getWeight(way);
-        double weight = getWeight(way, length);
-        setWeight(edge, length);
-        Logging.trace("edge for way {0} (from node {1} to node {2}) has weight: {3}", way.getId(), from.getId(), to.getId(), weight);
-        ((DirectedWeightedMultigraph<Node, OsmEdge>) graph).setEdgeWeight(edge, weight);
+    /**
+     * Mark the weights of all edges as outdated, for example after a change of the {@link RoutingProfile} speeds.
+     * They are computed again when they are used.
+     */
+    public void invalidateWeights() {
+        weightVersion++;
     }
 
     /**
@@ -300,8 +459,9 @@ public class RoutingGraph {
      *            Nodes used to calculate path.
      * @param algorithm
      *            Algorithm used to compute the path,
-     *            RoutingGraph.Algorithm.ROUTING_ALG_DIJKSTRA or
-     *            RoutingGraph.Algorithm.ROUTING_ALG_BELLMANFORD
+     *            RoutingGraph.Algorithm.ROUTING_ALG_DIJKSTRA,
+     *            RoutingGraph.Algorithm.ROUTING_ALG_BELLMANFORD or
+     *            RoutingGraph.Algorithm.ROUTING_ALG_BIDIRECTIONAL_ASTAR
      * @return new path.
      */
     public List<OsmEdge> applyAlgorithm(List<Node> nodes, Algorithm algorithm) {
@@ -316,8 +476,10 @@ public class RoutingGraph {
         }
         RoutingModel routingModel = layer.getRoutingModel();
 
-        if (graph == null || routingModel.getOnewayChanged())
+        if (graph == null)
             this.createGraph();
+        else if (routingModel.getOnewayChanged())
+            this.updateOnewayWays();
         Logging.trace("apply algorithm between nodes ");
 
         for (Node node : nodes) {
@@ -325,8 +487,8 @@ public class RoutingGraph {
         }
         Logging.trace("-----------------------------------");
 
-        // Assign the graph to g
-        g = graph;
+        // Assign the graph to g, the weights are given by the delegator
+        g = rgDelegator;
 
         switch (algorithm) {
         case ROUTING_ALG_DIJKSTRA:
@@ -354,6 +516,18 @@ public class RoutingGraph {
                 }
             }
             break;
+        case ROUTING_ALG_BIDIRECTIONAL_ASTAR:
+            Logging.trace("Using bidirectional A* algorithm");
+            CompactGraph compact = getCompactGraph();
+            for (int index = 1; index < nodes.size(); ++index) {
+                List<OsmEdge> leg = compact.findPath(nodes.get(index - 1), nodes.get(index));
+                if (leg == null) {
+                    Logging.trace("no path found!");
+                    break;
+                }
+                path.addAll(leg);
+            }
+            break;
         default:
             Logging.trace("Wrong algorithm");
             break;
@@ -388,7 +562,7 @@ public class RoutingGraph {
      */
     public void setTypeRoute(RouteType routeType) {
         this.routeType = routeType;
-        this.rgDelegator.setRouteType(routeType);
+        invalidateWeights();
     }
 
     /**
@@ -404,10 +578,13 @@ public class RoutingGraph {
 
     public void setWaySpeeds(Map<String, Double> waySpeeds) {
         this.waySpeeds = waySpeeds;
+        invalidateWeights();
     }
 
     public void resetGraph() {
         graph = null;
+        wayEdges.clear();
+        compactGraph = null;
     }
 
     public RoutingProfile getRoutingProfile() {
@@ -5,7 +5,6 @@ import org.jgrapht.Graph;
 import org.jgrapht.graph.GraphDelegator;
 import org.openstreetmap.josm.data.osm.Node;
 
-import com.innovant.josm.jrt.core.RoutingGraph.RouteType;
 import com.innovant.josm.jrt.osm.OsmEdge;
 
 /**
@@ -14,20 +13,13 @@ import com.innovant.josm.jrt.osm.OsmEdge;
  */
 public class RoutingGraphDelegator extends GraphDelegator<Node, OsmEdge> {
     /**
-     *
+     * The routing graph computing the edge weights
      */
-    private RouteType routeType;
+    private final transient RoutingGraph routingGraph;
 
-    public RoutingGraphDelegator(Graph<Node, OsmEdge> arg0) {
+    public RoutingGraphDelegator(Graph<Node, OsmEdge> arg0, RoutingGraph routingGraph) {
         super(arg0);
-    }
-
-    public RouteType getRouteType() {
-        return routeType;
-    }
-
-    public void setRouteType(RouteType routeType) {
-        this.routeType = routeType;
+        this.routingGraph = routingGraph;
     }
 
     /**
@@ -37,12 +29,8 @@ public class RoutingGraphDelegator extends GraphDelegator<Node, OsmEdge> {
 
     @Override
     public double getEdgeWeight(OsmEdge edge) {
-        double weight = Double.MAX_VALUE;
-
-        if (routeType == RouteType.SHORTEST) weight = edge.getLength();
-        if (routeType == RouteType.FASTEST) weight = edge.getLength() / edge.getSpeed();
         // Return the time spent to traverse the way
-        return weight;
+        return routingGraph.getEdgeWeight(edge);
     }
 
 }
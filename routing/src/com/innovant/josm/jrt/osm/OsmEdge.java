@@ -31,6 +31,14 @@ public class OsmEdge extends DefaultWeightedEdge {
      * Speed edge.
      */
     private double speed;
+    /**
+     * Routing weight of the edge.
+     */
+    private double routingWeight;
+    /**
+     * Version of the routing weight, -1 if it has not been computed yet.
+     */
+    private int weightVersion = -1;
 
     /**
      * Constructor
@@ -77,4 +85,22 @@ public class OsmEdge extends DefaultWeightedEdge {
     public void setSpeed(double speed) {
         this.speed = speed;
     }
+
+    public double getRoutingWeight() {
+        return routingWeight;
+    }
+
+    public int getWeightVersion() {
+        return weightVersion;
+    }
+
+    /**
+     * Set the routing weight of the edge.
+     * @param routingWeight the weight
+     * @param weightVersion the version of the graph weights used to compute it
+     */
+    public void setWeight(double routingWeight, int weightVersion) {
+        this.routingWeight = routingWeight;
+        this.weightVersion = weightVersion;
+    }
 }
@@ -50,7 +50,8 @@ public class RoutingLayer extends Layer {
         KEY_ACTIVE_ROUTE_COLOR(marktr("routing active route")),
         KEY_INACTIVE_ROUTE_COLOR(marktr("routing inactive route")),
         KEY_ROUTE_WIDTH("routing.route.width"),
-        KEY_ROUTE_SELECT("routing.route.select");
+        KEY_ROUTE_SELECT("routing.route.select"),
+        KEY_ROUTE_ALGORITHM("routing.route.algorithm");
 
         private final String key;
         PreferencesKeys(String key) {
@@ -10,6 +10,8 @@ import org.openstreetmap.josm.data.osm.Node;
 import com.innovant.josm.jrt.core.RoutingGraph;
 import com.innovant.josm.jrt.core.RoutingGraph.Algorithm;
 import com.innovant.josm.jrt.osm.OsmEdge;
+import com.innovant.josm.plugin.routing.RoutingLayer.PreferencesKeys;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -109,13 +111,27 @@ public class RoutingModel {
      */
     public List<OsmEdge> getRouteEdges() {
         if (this.changeNodes || path == null) {
-            path = this.routingGraph.applyAlgorithm(nodes, Algorithm.ROUTING_ALG_DIJKSTRA);
+            path = this.routingGraph.applyAlgorithm(nodes, getAlgorithm());
             this.changeNodes = false;
             this.changeOneway = false;
         }
         return path;
     }
 
+    /**
+     * Get the algorithm used to compute the route, from the preferences.
+     * @return the algorithm, bidirectional A* by default
+     */
+    private static Algorithm getAlgorithm() {
+        String algorithm = Config.getPref().get(PreferencesKeys.KEY_ROUTE_ALGORITHM.getKey(), Algorithm.ROUTING_ALG_BIDIRECTIONAL_ASTAR.name());
+        try {
+            return Algorithm.valueOf(algorithm);
+        } catch (IllegalArgumentException e) {
+            Logging.warn("Unknown routing algorithm: " + algorithm);
+            return Algorithm.ROUTING_ALG_BIDIRECTIONAL_ASTAR;
+        }
+    }
+
     /**
      * Marks that some node or the node order has changed so the path should be computed again
      */
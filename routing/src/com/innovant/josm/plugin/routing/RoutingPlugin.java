@@ -242,8 +242,15 @@ public class RoutingPlugin extends Plugin implements LayerChangeListener, DataSe
     }
 
     @Override
-    public void processDatasetEvent(AbstractDatasetChangedEvent event){
-
+    public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        // Patch the graphs of the routing layers of the changed data layer
+        for (RoutingLayer layer : layers) {
+            if (layer.getDataLayer().getDataSet() == event.getDataset()) {
+                RoutingModel routingModel = layer.getRoutingModel();
+                routingModel.routingGraph.processDatasetEvent(event);
+                routingModel.setNodesChanged();
+            }
+        }
     }
 
     @Override
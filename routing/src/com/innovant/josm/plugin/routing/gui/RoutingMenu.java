@@ -65,10 +65,7 @@ public class RoutingMenu extends JMenu {
                 } else {
                     routingModel.routingGraph.setTypeRoute(RouteType.FASTEST);
                 }
-                //  routingModel.routingGraph.resetGraph();
-                //  routingModel.routingGraph.createGraph();
-                //TODO: Change this way
-                //FIXME: do not change node but recalculate routing.
+                // The edge weights are computed again when the route is computed
                 routingModel.setNodesChanged();
                 MainApplication.getMap().repaint();
             }